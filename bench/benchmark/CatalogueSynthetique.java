@@ -0,0 +1,122 @@
+package benchmark;
+
+import model.*;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generateur de catalogues synthetiques pour les benchmarks.
+ * Les donnees sont deterministes (graine fixe) pour que deux executions
+ * mesurent exactement le meme catalogue.
+ */
+public final class CatalogueSynthetique {
+    
+    private static final String[] SYLLABES = {
+        "pa", "ra", "ce", "ta", "mol", "do", "li", "pra", "ne", "ibu", "pro", "fen",
+        "amo", "xi", "cil", "line", "ome", "zol", "vol", "ta", "ren", "aspi", "ri",
+        "ma", "gne", "sium", "cal", "ci", "vit", "fer", "zinc", "sol", "tri", "flu"
+    };
+    
+    private static final String[] GENRES = {
+        "Antalgique", "Antibiotique", "Anti-inflammatoire", "Antihistaminique", "Antiseptique",
+        "Vitamine", "Sirop", "Antispasmodique", "Antiacide", "Laxatif", "Antifongique",
+        "Antiviral", "Hypnotique", "Anxiolytique", "Decongestionnant", "Complement"
+    };
+    
+    private static final String[] CONSTITUANTS = {
+        "Paracetamol", "Ibuprofene", "Amoxicilline", "Omeprazole", "Acide acetylsalicylique",
+        "Cetirizine", "Loratadine", "Diclofenac", "Metformine", "Tramadol"
+    };
+    
+    private static final String[] PLANTES = {
+        "Arnica", "Camomille", "Belladone", "Calendula", "Echinacea",
+        "Valeriane", "Passiflore", "Melisse", "Thym", "Eucalyptus"
+    };
+    
+    private static final String[] NOMS = {
+        "Ben Ali", "Trabelsi", "Gharbi", "Jaziri", "Hammami", "Mejri", "Ayari", "Bouazizi",
+        "Chebbi", "Dridi", "Ferchichi", "Guesmi", "Hamdi", "Jebali", "Khelifi", "Mansouri",
+        "Nasri", "Ouni", "Riahi", "Saidi", "Tlili", "Zouari", "Baccouche", "Kammoun"
+    };
+    
+    private static final String[] PRENOMS = {
+        "Ahmed", "Mohamed", "Ali", "Sami", "Youssef", "Karim", "Amine", "Mehdi",
+        "Fatma", "Amira", "Sarra", "Ines", "Mariem", "Nour", "Rim", "Zeineb", "Emna", "Hela"
+    };
+    
+    private CatalogueSynthetique() {
+    }
+    
+    /**
+     * Genere 'taille' medicaments (moitie chimiques, moitie homeopathiques)
+     */
+    public static List<Medicament> medicaments(int taille, long graine) {
+        Random random = new Random(graine);
+        LocalDate aujourdhui = LocalDate.now();
+        List<Medicament> medicaments = new ArrayList<>(taille);
+        
+        for (int i = 0; i < taille; i++) {
+            long code = i + 1;
+            String nom = nom(random) + " " + (100 + random.nextInt(900));
+            String genre = GENRES[random.nextInt(GENRES.length)];
+            long prix = Montant.deDinars(0.5 + random.nextDouble() * 80);
+            LocalDate expiration = aujourdhui.plusDays(random.nextInt(760) - 30);
+            
+            Medicament m;
+            if (random.nextBoolean()) {
+                m = new MedicamentChimique(code, 1000 + random.nextInt(taille), nom, genre, prix, expiration,
+                        CONSTITUANTS[random.nextInt(CONSTITUANTS.length)], random.nextInt(18));
+            } else {
+                m = new MedicamentHomeopathique(code, 1000 + random.nextInt(taille), nom, genre, prix, expiration,
+                        PLANTES[random.nextInt(PLANTES.length)]);
+            }
+            m.setQuantiteStock(random.nextInt(200));
+            medicaments.add(m);
+        }
+        return medicaments;
+    }
+    
+    /**
+     * Genere 'taille' clients fideles avec des CIN distincts
+     */
+    public static List<ClientFidele> clients(int taille, long graine) {
+        Random random = new Random(graine);
+        List<ClientFidele> clients = new ArrayList<>(taille);
+        
+        for (int i = 0; i < taille; i++) {
+            long cin = 10_000_000L + i;
+            String nom = NOMS[random.nextInt(NOMS.length)] + (i % 7 == 0 ? "" : " " + nom(random));
+            String prenom = PRENOMS[random.nextInt(PRENOMS.length)];
+            long montant = Montant.deDinars(random.nextDouble() * 150);
+            clients.add(new ClientFidele(cin, nom, prenom, 0, montant));
+        }
+        return clients;
+    }
+    
+    /**
+     * Genere 'taille' appareils medicaux
+     */
+    public static List<AppareilMedical> appareils(int taille, long graine) {
+        Random random = new Random(graine);
+        List<AppareilMedical> appareils = new ArrayList<>(taille);
+        
+        for (int i = 0; i < taille; i++) {
+            long prix = Montant.deDinars(10 + random.nextDouble() * 500);
+            appareils.add(new AppareilMedical(i + 1, "Appareil " + nom(random), prix, random.nextInt(50)));
+        }
+        return appareils;
+    }
+    
+    private static String nom(Random random) {
+        StringBuilder nom = new StringBuilder();
+        int syllabes = 2 + random.nextInt(3);
+        for (int i = 0; i < syllabes; i++) {
+            nom.append(SYLLABES[random.nextInt(SYLLABES.length)]);
+        }
+        nom.setCharAt(0, Character.toUpperCase(nom.charAt(0)));
+        return nom.toString();
+    }
+}
@@ -0,0 +1,28 @@
+package benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Point d'entree des benchmarks: execute tous les benchmarks du package
+ * avec le profileur d'allocations (equivalent de -prof gc).
+ * Les options JMH habituelles restent utilisables, par exemple:
+ *   java ... benchmark.LanceurBenchmarks PharmacieBenchmark.trier -p taille=100000
+ */
+public class LanceurBenchmarks {
+    
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions ligneCommande = new CommandLineOptions(args);
+        OptionsBuilder options = new OptionsBuilder();
+        options.parent(ligneCommande);
+        if (ligneCommande.getIncludes().isEmpty()) {
+            options.include("benchmark\\..*");
+        }
+        options.addProfiler(GCProfiler.class);
+        new Runner(options.build()).run();
+    }
+}
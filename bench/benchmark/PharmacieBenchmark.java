@@ -0,0 +1,222 @@
+package benchmark;
+
+import model.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import service.Pharmacie;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Benchmarks JMH des methodes de recherche, tri et statistiques de Pharmacie,
+ * sur des catalogues synthetiques de 1 000, 100 000 et 1 000 000 de medicaments
+ * et de clients. Aucun acces a la base: les donnees sont chargees en memoire.
+ *
+ * Lancement: voir la section "Benchmarks" du README (avec -prof gc).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class PharmacieBenchmark {
+    
+    @Param({"1000", "100000", "1000000"})
+    private int taille;
+    
+    private Pharmacie pharmacie;
+    
+    // Requetes qui existent dans le catalogue genere
+    private String nomExact;
+    private String morceauNom;
+    private String prefixe;
+    private String morceauClient;
+    private long cinExistant;
+    private long codeExistant;
+    
+    @Setup(Level.Trial)
+    public void preparer() {
+        List<Medicament> medicaments = CatalogueSynthetique.medicaments(taille, 42);
+        List<ClientFidele> clients = CatalogueSynthetique.clients(taille, 43);
+        List<AppareilMedical> appareils = CatalogueSynthetique.appareils(Math.max(100, taille / 100), 44);
+        
+        pharmacie = new Pharmacie();
+        pharmacie.chargerDonnees(medicaments, clients, appareils);
+        
+        Medicament exemple = medicaments.get(taille / 2);
+        nomExact = exemple.getNom();
+        morceauNom = exemple.getNom().substring(1, 5);
+        prefixe = exemple.getNom().substring(0, 3);
+        morceauClient = clients.get(taille / 3).getNom().substring(1, 5);
+        cinExistant = clients.get(taille / 4).getCin();
+        codeExistant = exemple.getCode();
+    }
+    
+    // ============================================
+    // TRIS
+    // ============================================
+    
+    @Benchmark
+    public List<Medicament> trierMedicamentsParPrix() {
+        return pharmacie.trierMedicamentsParPrix();
+    }
+    
+    @Benchmark
+    public List<Medicament> trierMedicamentsParNom() {
+        return pharmacie.trierMedicamentsParNom();
+    }
+    
+    @Benchmark
+    public List<ClientFidele> trierClientsParNom() {
+        return pharmacie.trierClientsParNom();
+    }
+    
+    // ============================================
+    // RECHERCHES
+    // ============================================
+    
+    @Benchmark
+    public List<Medicament> rechercherMedicamentsParNom() {
+        return pharmacie.rechercherMedicamentsParNom(morceauNom);
+    }
+    
+    @Benchmark
+    public List<Medicament> rechercherMedicaments() {
+        return pharmacie.rechercherMedicaments(morceauNom);
+    }
+    
+    @Benchmark
+    public List<Medicament> rechercherMedicamentsParPremieresLettres() {
+        return pharmacie.rechercherMedicamentsParPremieresLettres(prefixe, 100);
+    }
+    
+    @Benchmark
+    public List<Medicament> rechercherMedicamentsParCategorie() {
+        return pharmacie.rechercherMedicamentsParCategorie("HOMEOPATHIQUE");
+    }
+    
+    @Benchmark
+    public List<ClientFidele> rechercherClientsParNom() {
+        return pharmacie.rechercherClientsParNom(morceauClient);
+    }
+    
+    @Benchmark
+    public void rechercherParCle(Blackhole bh) {
+        bh.consume(pharmacie.getClient(cinExistant));
+        bh.consume(pharmacie.getMedicamentParCode(codeExistant));
+    }
+    
+    @Benchmark
+    public List<Medicament> getMedicamentsExpirantDans() {
+        return pharmacie.getMedicamentsExpirantDans(1);
+    }
+    
+    @Benchmark
+    public long compterMedicamentsCommencantParPEtPrixSup2() {
+        return pharmacie.compterMedicamentsCommencantParPEtPrixSup2();
+    }
+    
+    // ============================================
+    // STATISTIQUES ET GROUPEMENTS
+    // ============================================
+    
+    @Benchmark
+    public long moyennePrixMedicaments() {
+        return pharmacie.moyennePrixMedicaments();
+    }
+    
+    @Benchmark
+    public long sommePrixMedicaments() {
+        return pharmacie.sommePrixMedicaments();
+    }
+    
+    @Benchmark
+    public Optional<Medicament> medicamentLePlusCher() {
+        return pharmacie.medicamentLePlusCher();
+    }
+    
+    @Benchmark
+    public Optional<Medicament> medicamentLeMoinsCher() {
+        return pharmacie.medicamentLeMoinsCher();
+    }
+    
+    @Benchmark
+    public Map<String, List<Medicament>> grouperParGenre() {
+        return pharmacie.grouperParGenre();
+    }
+    
+    @Benchmark
+    public Map<String, List<Medicament>> grouperParType() {
+        return pharmacie.grouperParType();
+    }
+    
+    @Benchmark
+    public List<MedicamentHomeopathique> listerMedicamentsHomeo() {
+        return pharmacie.listerMedicamentsHomeo();
+    }
+    
+    // ============================================
+    // ANALYSES: COLONNES CONTRE PARCOURS DES OBJETS
+    // ============================================
+    
+    @Benchmark
+    public long valeurStockMedicaments() {
+        return pharmacie.valeurStockMedicaments();
+    }
+    
+    /**
+     * Meme calcul avec un Stream sur les objets, pour comparaison
+     */
+    @Benchmark
+    public long valeurStockMedicamentsFlux() {
+        return pharmacie.getListeMedicaments().stream()
+                .mapToLong(m -> m.getPrix() * m.getQuantiteStock())
+                .sum();
+    }
+    
+    @Benchmark
+    public Map<String, Long> valeurStockParGenre() {
+        return pharmacie.valeurStockParGenre();
+    }
+    
+    /**
+     * Meme calcul avec un Stream sur les objets, pour comparaison
+     */
+    @Benchmark
+    public Map<String, Long> valeurStockParGenreFlux() {
+        return pharmacie.getListeMedicaments().stream()
+                .collect(Collectors.groupingBy(Medicament::getGenre,
+                        Collectors.summingLong(m -> m.getPrix() * m.getQuantiteStock())));
+    }
+    
+    // ============================================
+    // CHARGEMENT (construction des index)
+    // ============================================
+    
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public Pharmacie chargerDonnees() {
+        Pharmacie p = new Pharmacie();
+        p.chargerDonnees(pharmacie.getListeMedicaments(), pharmacie.getListeClientsFideles(),
+                pharmacie.getListeAppareils());
+        return p;
+    }
+    
+    /**
+     * Verifie que la requete par nom exact trouve bien un medicament (donnees coherentes)
+     */
+    @TearDown(Level.Trial)
+    public void verifier() {
+        if (pharmacie.rechercherMedicamentsParNom(nomExact).isEmpty()) {
+            throw new IllegalStateException("Catalogue synthetique incoherent: " + nomExact + " introuvable");
+        }
+    }
+}
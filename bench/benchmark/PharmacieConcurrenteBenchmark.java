@@ -0,0 +1,139 @@
+package benchmark;
+
+import exception.StockInsuffisantException;
+import model.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import service.Pharmacie;
+import service.PharmacieConcurrente;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Benchmarks multi-threads de PharmacieConcurrente: plusieurs caisses vendent
+ * en parallele dans le meme catalogue. Les ventes sont mesurees en memoire
+ * (reservation du stock par CAS, bonus fidelite, montant du client) sans base de donnees.
+ *
+ * Debit par nombre de threads: comparer vendre1Caisse avec vendre et melange
+ * (un thread par coeur), ou lancer avec -t 1, -t 2, -t 4...
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class PharmacieConcurrenteBenchmark {
+    
+    @Param({"100000"})
+    private int taille;
+    
+    private PharmacieConcurrente pharmacie;
+    private Medicament[] medicaments;
+    private ClientFidele[] clients;
+    private String[] morceauxNoms;
+    
+    private static final AtomicLong GRAINES = new AtomicLong(1);
+    
+    /**
+     * Pharmacie dont les ventes restent en memoire (pas de transaction ni de journal)
+     */
+    private static class PharmacieSansBase extends Pharmacie {
+        @Override
+        protected boolean persisterVente(Vente vente, Panier panier) {
+            return true;
+        }
+    }
+    
+    /**
+     * Etat propre a chaque caisse (thread): son panier et son generateur aleatoire
+     */
+    @State(Scope.Thread)
+    public static class Caisse {
+        
+        private final Panier panier = new Panier();
+        private SplittableRandom random;
+        
+        @Setup(Level.Trial)
+        public void preparer() {
+            random = new SplittableRandom(GRAINES.getAndIncrement());
+        }
+    }
+    
+    @Setup(Level.Trial)
+    public void preparer() {
+        List<Medicament> listeMedicaments = CatalogueSynthetique.medicaments(taille, 42);
+        List<ClientFidele> listeClients = CatalogueSynthetique.clients(taille, 43);
+        List<AppareilMedical> appareils = CatalogueSynthetique.appareils(Math.max(100, taille / 100), 44);
+        
+        Pharmacie base = new PharmacieSansBase();
+        base.chargerDonnees(listeMedicaments, listeClients, appareils);
+        pharmacie = new PharmacieConcurrente(base);
+        
+        medicaments = listeMedicaments.toArray(new Medicament[0]);
+        clients = listeClients.toArray(new ClientFidele[0]);
+        morceauxNoms = new String[256];
+        for (int i = 0; i < morceauxNoms.length; i++) {
+            morceauxNoms[i] = medicaments[(i * 7919) % medicaments.length].getNom().substring(1, 5);
+        }
+    }
+    
+    // ============================================
+    // VENTES SEULES
+    // ============================================
+    
+    @Benchmark
+    @Threads(1)
+    public long vendre1Caisse(Caisse caisse) {
+        return vendre(caisse);
+    }
+    
+    @Benchmark
+    @Threads(Threads.MAX)
+    public long vendre(Caisse caisse) {
+        Medicament m = medicaments[caisse.random.nextInt(medicaments.length)];
+        ClientFidele client = clients[caisse.random.nextInt(clients.length)];
+        caisse.panier.vider();
+        caisse.panier.ajouter(m, 1 + caisse.random.nextInt(2));
+        try {
+            return pharmacie.validerPanier(caisse.panier, client);
+        } catch (StockInsuffisantException e) {
+            // Reapprovisionner pour que la mesure reste une mesure de ventes
+            m.remettreStock(1_000);
+            return 0;
+        }
+    }
+    
+    // ============================================
+    // MELANGE: 80% ventes, 15% recherches, 5% consultations
+    // ============================================
+    
+    @Benchmark
+    @Threads(Threads.MAX)
+    public void melange(Caisse caisse, Blackhole bh) {
+        int tirage = caisse.random.nextInt(100);
+        if (tirage < 80) {
+            bh.consume(vendre(caisse));
+        } else if (tirage < 95) {
+            bh.consume(pharmacie.rechercherMedicaments(morceauxNoms[caisse.random.nextInt(morceauxNoms.length)]));
+        } else {
+            bh.consume(pharmacie.getClient(clients[caisse.random.nextInt(clients.length)].getCin()));
+            bh.consume(pharmacie.moyennePrixMedicaments());
+        }
+    }
+    
+    /**
+     * Verifie qu'aucun stock n'est devenu negatif (CAS correct sous contention)
+     */
+    @TearDown(Level.Trial)
+    public void verifier() {
+        for (Medicament m : medicaments) {
+            if (m.getQuantiteStock() < 0) {
+                throw new IllegalStateException("Stock negatif pour " + m.getNom() + ": " + m.getQuantiteStock());
+            }
+        }
+    }
+}
@@ -11,6 +11,20 @@ EXCEPTION
 END;
 /
 
+BEGIN
+   EXECUTE IMMEDIATE 'DROP TABLE JOURNAL_SUPPRESSION CASCADE CONSTRAINTS';
+EXCEPTION
+   WHEN OTHERS THEN NULL;
+END;
+/
+
+BEGIN
+   EXECUTE IMMEDIATE 'DROP TABLE REPORT_STOCK CASCADE CONSTRAINTS';
+EXCEPTION
+   WHEN OTHERS THEN NULL;
+END;
+/
+
 BEGIN
    EXECUTE IMMEDIATE 'DROP TABLE MEDICAMENT CASCADE CONSTRAINTS';
 EXCEPTION
@@ -57,35 +71,41 @@ END;
 -- CREATION DES SEQUENCES
 -- ============================================
 
+-- Les sequences avancent par blocs de 50: chaque NEXTVAL reserve 50 identifiants
+-- que l'application distribue en memoire (allocation hi/lo, voir AllocateurSequence).
+-- Les identifiants non utilises d'un bloc sont perdus (trous acceptes).
+
 -- Sequence pour generer les codes uniques des medicaments
 CREATE SEQUENCE seq_medicament
     START WITH 1
-    INCREMENT BY 1
-    NOCACHE;
+    INCREMENT BY 50
+    CACHE 20;
 
 -- Sequence pour generer les codes uniques des appareils medicaux
 CREATE SEQUENCE seq_appareil
     START WITH 1
-    INCREMENT BY 1
-    NOCACHE;
+    INCREMENT BY 50
+    CACHE 20;
 
 -- Sequence pour generer les IDs des achats
 CREATE SEQUENCE seq_achat
     START WITH 1
-    INCREMENT BY 1
-    NOCACHE;
+    INCREMENT BY 50
+    CACHE 20;
 
 -- ============================================
 -- CREATION DES TABLES
 -- ============================================
+-- Montants en dinars au millime pres: NUMBER(12,3) (millimes en long cote Java, voir model.Montant)
 
 -- Table CLIENT_FIDELE
 CREATE TABLE CLIENT_FIDELE (
     cin NUMBER(8) PRIMARY KEY,
     nom VARCHAR2(100) NOT NULL,
     prenom VARCHAR2(100) NOT NULL,
-    credit NUMBER(10,2) DEFAULT 0,
-    montant_total_achats NUMBER(10,2) DEFAULT 0
+    credit NUMBER(12,3) DEFAULT 0,
+    montant_total_achats NUMBER(12,3) DEFAULT 0,
+    date_modification TIMESTAMP DEFAULT CAST(SYSTIMESTAMP AS TIMESTAMP) NOT NULL
 );
 
 -- Table MEDICAMENT (avec discrimination pour heritage)
@@ -94,7 +114,7 @@ CREATE TABLE MEDICAMENT (
     num_serie NUMBER NOT NULL,
     nom VARCHAR2(100) NOT NULL,
     genre VARCHAR2(100) NOT NULL,
-    prix NUMBER(10,2) NOT NULL,
+    prix NUMBER(12,3) NOT NULL,
     date_expiration DATE,
     type_medicament VARCHAR2(20) NOT NULL CHECK (type_medicament IN ('CHIMIQUE', 'HOMEOPATHIQUE')),
     -- Attributs specifiques MedicamentChimique
@@ -103,15 +123,19 @@ CREATE TABLE MEDICAMENT (
     -- Attributs specifiques MedicamentHomeopathique
     plante_utilisee VARCHAR2(200),
     -- Stock
-    quantite_stock NUMBER DEFAULT 0
+    quantite_stock NUMBER DEFAULT 0,
+    -- 1 si la remise d'expiration a deja ete appliquee (balayage idempotent)
+    remise_expiration NUMBER(1) DEFAULT 0 NOT NULL,
+    date_modification TIMESTAMP DEFAULT CAST(SYSTIMESTAMP AS TIMESTAMP) NOT NULL
 );
 
 -- Table APPAREIL_MEDICAL
 CREATE TABLE APPAREIL_MEDICAL (
     code NUMBER PRIMARY KEY,
     nom VARCHAR2(100) NOT NULL,
-    prix NUMBER(10,2) NOT NULL,
-    quantite_stock NUMBER DEFAULT 0
+    prix NUMBER(12,3) NOT NULL,
+    quantite_stock NUMBER DEFAULT 0,
+    date_modification TIMESTAMP DEFAULT CAST(SYSTIMESTAMP AS TIMESTAMP) NOT NULL
 );
 
 -- Table ACHAT (historique des achats)
@@ -121,22 +145,106 @@ CREATE TABLE ACHAT (
     type_vendable VARCHAR2(20) NOT NULL CHECK (type_vendable IN ('MEDICAMENT', 'APPAREIL')),
     code_vendable NUMBER NOT NULL,
     date_achat DATE DEFAULT SYSDATE,
-    prix_paye NUMBER(10,2) NOT NULL,
+    prix_paye NUMBER(12,3) NOT NULL,
     quantite NUMBER DEFAULT 1,
     CONSTRAINT fk_achat_client FOREIGN KEY (cin_client) REFERENCES CLIENT_FIDELE(cin)
 );
 
+-- Table JOURNAL_SUPPRESSION (lignes supprimees, pour le rafraichissement incremental)
+CREATE TABLE JOURNAL_SUPPRESSION (
+    nom_table VARCHAR2(30) NOT NULL,
+    cle NUMBER NOT NULL,
+    date_suppression TIMESTAMP DEFAULT CAST(SYSTIMESTAMP AS TIMESTAMP) NOT NULL
+);
+
+-- Table REPORT_STOCK (registre de stock: dernier envoi reporte par registre et par produit).
+-- Mise a jour dans la transaction du decrement: un envoi renvoye apres un arret est ignore.
+CREATE TABLE REPORT_STOCK (
+    id_instance NUMBER(19) NOT NULL,
+    nom_table VARCHAR2(30) NOT NULL,
+    code NUMBER NOT NULL,
+    dernier_envoi NUMBER(19) NOT NULL,
+    CONSTRAINT pk_report_stock PRIMARY KEY (id_instance, nom_table, code)
+);
+
+-- ============================================
+-- SUIVI DES MODIFICATIONS
+-- ============================================
+
+-- date_modification est mise a jour a chaque UPDATE: l'application ne recharge
+-- que les lignes modifiees depuis son dernier chargement (Pharmacie.rafraichir).
+-- Toutes les dates sont CAST(SYSTIMESTAMP AS TIMESTAMP): l'heure du serveur, sans
+-- fuseau, comme SuiviModificationsDAO.getHorodatage(). Le fuseau de la session
+-- (celui du poste) ne decale donc pas la comparaison.
+-- Limite: c'est l'heure de l'instruction, pas du commit. Une transaction ouverte plus
+-- longtemps que la marge de Pharmacie (MARGE_SYNCHRONISATION_MS, 60 s) peut valider des
+-- lignes datees d'avant le dernier chargement: elles ne sont relues qu'au prochain
+-- chargement complet.
+
+CREATE OR REPLACE TRIGGER trg_medicament_modif
+BEFORE UPDATE ON MEDICAMENT FOR EACH ROW
+BEGIN
+   :NEW.date_modification := CAST(SYSTIMESTAMP AS TIMESTAMP);
+END;
+/
+
+CREATE OR REPLACE TRIGGER trg_client_modif
+BEFORE UPDATE ON CLIENT_FIDELE FOR EACH ROW
+BEGIN
+   :NEW.date_modification := CAST(SYSTIMESTAMP AS TIMESTAMP);
+END;
+/
+
+CREATE OR REPLACE TRIGGER trg_appareil_modif
+BEFORE UPDATE ON APPAREIL_MEDICAL FOR EACH ROW
+BEGIN
+   :NEW.date_modification := CAST(SYSTIMESTAMP AS TIMESTAMP);
+END;
+/
+
+CREATE OR REPLACE TRIGGER trg_medicament_suppr
+AFTER DELETE ON MEDICAMENT FOR EACH ROW
+BEGIN
+   INSERT INTO JOURNAL_SUPPRESSION (nom_table, cle) VALUES ('MEDICAMENT', :OLD.code);
+END;
+/
+
+CREATE OR REPLACE TRIGGER trg_client_suppr
+AFTER DELETE ON CLIENT_FIDELE FOR EACH ROW
+BEGIN
+   INSERT INTO JOURNAL_SUPPRESSION (nom_table, cle) VALUES ('CLIENT_FIDELE', :OLD.cin);
+END;
+/
+
+CREATE OR REPLACE TRIGGER trg_appareil_suppr
+AFTER DELETE ON APPAREIL_MEDICAL FOR EACH ROW
+BEGIN
+   INSERT INTO JOURNAL_SUPPRESSION (nom_table, cle) VALUES ('APPAREIL_MEDICAL', :OLD.code);
+END;
+/
+
 -- ============================================
 -- INDEX POUR OPTIMISER LES RECHERCHES
 -- ============================================
 
-CREATE INDEX idx_medicament_nom ON MEDICAMENT(nom);
+-- (nom, cle): tri par nom et pagination par cle des tableaux de l'interface
+CREATE INDEX idx_medicament_nom ON MEDICAMENT(nom, code);
+-- Index sur UPPER(nom) pour les recherches UPPER(nom) LIKE 'ABC%'
+CREATE INDEX idx_medicament_nom_upper ON MEDICAMENT(UPPER(nom));
 CREATE INDEX idx_medicament_genre ON MEDICAMENT(genre);
 CREATE INDEX idx_medicament_type ON MEDICAMENT(type_medicament);
 CREATE INDEX idx_medicament_expiration ON MEDICAMENT(date_expiration);
-CREATE INDEX idx_client_nom ON CLIENT_FIDELE(nom);
+-- Medicaments pas encore remises, par date d'expiration (balayage des expirants)
+CREATE INDEX idx_medicament_remise_exp ON MEDICAMENT(remise_expiration, date_expiration);
+CREATE INDEX idx_client_nom ON CLIENT_FIDELE(nom, prenom, cin);
+CREATE INDEX idx_appareil_nom ON APPAREIL_MEDICAL(nom, code);
 CREATE INDEX idx_achat_client ON ACHAT(cin_client);
 CREATE INDEX idx_achat_date ON ACHAT(date_achat);
+-- Lignes modifiees ou supprimees depuis le dernier chargement
+CREATE INDEX idx_medicament_modif ON MEDICAMENT(date_modification);
+CREATE INDEX idx_client_modif ON CLIENT_FIDELE(date_modification);
+CREATE INDEX idx_appareil_modif ON APPAREIL_MEDICAL(date_modification);
+CREATE INDEX idx_suppression_date ON JOURNAL_SUPPRESSION(nom_table, date_suppression);
 
 -- ============================================
 -- INSERTION DES DONNEES DE TEST
@@ -0,0 +1,121 @@
+package dao;
+
+import model.Achat;
+import model.Montant;
+import util.DatabaseConnection;
+import exception.DatabaseException;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Classe DAO pour enregistrer l'historique des achats (table ACHAT).
+ */
+public class AchatDAO {
+    
+    // Identifiants reserves par blocs sur seq_achat
+    private final AllocateurSequence allocateurIds = AllocateurSequence.pour("seq_achat");
+    
+    /**
+     * Emprunte une connexion au pool pour la duree d'une operation.
+     * La connexion est rendue au pool par le try-with-resources.
+     */
+    private Connection getConnection() throws SQLException {
+        return DatabaseConnection.getInstance().getConnection();
+    }
+    
+    // ============================================
+    // CREATE - Ajouter des achats
+    // ============================================
+    
+    /**
+     * Insere plusieurs achats en un seul aller-retour (batch JDBC).
+     * Utilise la connexion fournie pour participer a la transaction de l'appelant.
+     * Les identifiants sont attribues en memoire par blocs (pas de NEXTVAL par ligne).
+     */
+    public void ajouterLot(Connection connection, List<Achat> achats) {
+        if (achats.isEmpty()) {
+            return;
+        }
+        String sql = """
+            INSERT INTO ACHAT (id_achat, cin_client, type_vendable, code_vendable, date_achat, prix_paye, quantite)
+            VALUES (?, ?, ?, ?, ?, ?, ?)
+            """;
+        
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            for (Achat achat : achats) {
+                if (achat.getIdAchat() == 0) {
+                    achat.setIdAchat(allocateurIds.suivant(connection));
+                }
+                pstmt.setLong(1, achat.getIdAchat());
+                pstmt.setLong(2, achat.getCinClient());
+                pstmt.setString(3, achat.getTypeVendable());
+                pstmt.setLong(4, achat.getCodeVendable());
+                pstmt.setTimestamp(5, Timestamp.valueOf(achat.getDateAchat()));
+                pstmt.setBigDecimal(6, Montant.enDecimal(achat.getPrixPaye()));
+                pstmt.setInt(7, achat.getQuantite());
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        } catch (SQLException e) {
+            throw new DatabaseException("Erreur lors de l'enregistrement des achats: " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Insere plusieurs achats dans une transaction dediee
+     */
+    public void ajouterLot(List<Achat> achats) {
+        try (Connection connection = getConnection()) {
+            connection.setAutoCommit(false);
+            ajouterLot(connection, achats);
+            connection.commit();
+        } catch (SQLException e) {
+            throw new DatabaseException("Erreur lors de l'enregistrement des achats: " + e.getMessage(), e);
+        }
+    }
+    
+    // ============================================
+    // READ - Historique des achats
+    // ============================================
+    
+    /**
+     * Recupere l'historique des achats d'un client, du plus recent au plus ancien
+     */
+    public List<Achat> getParClient(long cin) {
+        List<Achat> achats = new ArrayList<>();
+        String sql = "SELECT * FROM ACHAT WHERE cin_client = ? ORDER BY date_achat DESC, id_achat DESC";
+        
+        try (Connection connection = getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setLong(1, cin);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    achats.add(mapResultSetToAchat(rs));
+                }
+            }
+        } catch (SQLException e) {
+            throw new DatabaseException("Erreur lors de la recuperation de l'historique des achats", e);
+        }
+        return achats;
+    }
+    
+    // ============================================
+    // Methode utilitaire
+    // ============================================
+    
+    private Achat mapResultSetToAchat(ResultSet rs) throws SQLException {
+        Timestamp date = rs.getTimestamp("date_achat");
+        return new Achat(
+                rs.getLong("id_achat"),
+                rs.getLong("cin_client"),
+                rs.getString("type_vendable"),
+                rs.getLong("code_vendable"),
+                date != null ? date.toLocalDateTime() : null,
+                Montant.deDecimal(rs.getBigDecimal("prix_paye")),
+                rs.getInt("quantite")
+        );
+    }
+}
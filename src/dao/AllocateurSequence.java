@@ -0,0 +1,147 @@
+package dao;
+
+import exception.DatabaseException;
+
+import java.sql.*;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Allocateur d'identifiants hi/lo adosse a une sequence Oracle.
+ * Chaque NEXTVAL reserve un bloc de INCREMENT BY identifiants [hi, hi + increment[
+ * qui sont ensuite distribues en memoire, sans aller-retour vers la base.
+ * Les identifiants non utilises d'un bloc sont perdus (trous acceptes).
+ * Compatible avec les INSERT qui utilisent directement NEXTVAL: chaque appel
+ * reserve un bloc distinct.
+ * Le NEXTVAL passe par la connexion de l'appelant (jamais un second emprunt au pool pendant
+ * une transaction), sous un ReentrantLock qui ne bloque pas le thread porteur d'un thread virtuel.
+ */
+public class AllocateurSequence {
+    
+    // Un allocateur par sequence, partage par toutes les instances de DAO
+    private static final Map<String, AllocateurSequence> ALLOCATEURS = new ConcurrentHashMap<>();
+    
+    private final String nomSequence;
+    private final ReentrantLock verrou = new ReentrantLock();
+    private int increment;
+    private long prochain;
+    private long limite;
+    private long nombreReservations;
+    
+    private AllocateurSequence(String nomSequence) {
+        this.nomSequence = nomSequence;
+    }
+    
+    /**
+     * Retourne l'allocateur de la sequence donnee (cree au premier appel)
+     */
+    public static AllocateurSequence pour(String nomSequence) {
+        return ALLOCATEURS.computeIfAbsent(nomSequence.toUpperCase(), AllocateurSequence::new);
+    }
+    
+    // ============================================
+    // ALLOCATION
+    // ============================================
+    
+    /**
+     * Retourne le prochain identifiant disponible.
+     * Si le bloc est epuise, le suivant est reserve avec la connexion de l'appelant.
+     */
+    public long suivant(Connection connection) {
+        verrou.lock();
+        try {
+            if (prochain >= limite) {
+                reserverBloc(connection);
+            }
+            return prochain++;
+        } finally {
+            verrou.unlock();
+        }
+    }
+    
+    /**
+     * Retourne n identifiants disponibles (pour les insertions en lot)
+     */
+    public long[] suivants(Connection connection, int n) {
+        long[] ids = new long[n];
+        verrou.lock();
+        try {
+            for (int i = 0; i < n; i++) {
+                if (prochain >= limite) {
+                    reserverBloc(connection);
+                }
+                ids[i] = prochain++;
+            }
+        } finally {
+            verrou.unlock();
+        }
+        return ids;
+    }
+    
+    private void reserverBloc(Connection connection) {
+        try {
+            if (increment == 0) {
+                increment = lireIncrement(connection);
+            }
+            try (Statement stmt = connection.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT " + nomSequence + ".NEXTVAL FROM DUAL")) {
+                rs.next();
+                prochain = rs.getLong(1);
+                limite = prochain + increment;
+                nombreReservations++;
+            }
+        } catch (SQLException e) {
+            throw new DatabaseException("Erreur lors de la reservation d'identifiants (" + nomSequence + ")", e);
+        }
+    }
+    
+    /**
+     * Lit la taille de bloc dans le dictionnaire Oracle (INCREMENT BY de la sequence)
+     */
+    private int lireIncrement(Connection connection) throws SQLException {
+        String sql = "SELECT increment_by FROM USER_SEQUENCES WHERE sequence_name = ?";
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setString(1, nomSequence);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return Math.max(1, rs.getInt(1));
+                }
+            }
+        }
+        throw new DatabaseException("Sequence introuvable: " + nomSequence);
+    }
+    
+    // ============================================
+    // STATISTIQUES
+    // ============================================
+    
+    public long getNombreReservations() {
+        verrou.lock();
+        try {
+            return nombreReservations;
+        } finally {
+            verrou.unlock();
+        }
+    }
+    
+    public int getTailleBloc() {
+        verrou.lock();
+        try {
+            return increment;
+        } finally {
+            verrou.unlock();
+        }
+    }
+    
+    @Override
+    public String toString() {
+        verrou.lock();
+        try {
+            return String.format("AllocateurSequence[%s, bloc=%d, restants=%d, reservations=%d]",
+                    nomSequence, increment, Math.max(0, limite - prochain), nombreReservations);
+        } finally {
+            verrou.unlock();
+        }
+    }
+}
@@ -1,60 +1,96 @@
 package dao;
 
 import model.AppareilMedical;
+import model.Montant;
 import util.DatabaseConnection;
 import exception.DatabaseException;
 
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Classe DAO pour gerer les operations CRUD sur les appareils medicaux dans la base de donnees.
  */
 public class AppareilMedicalDAO {
     
-    private Connection connection;
-    
-    public AppareilMedicalDAO() {
-        try {
-            this.connection = DatabaseConnection.getInstance().getConnection();
-        } catch (SQLException e) {
-            throw new DatabaseException("Impossible de se connecter a la base de donnees", e);
-        }
+    /**
+     * Emprunte une connexion au pool pour la duree d'une operation.
+     * La connexion est rendue au pool par le try-with-resources.
+     */
+    private Connection getConnection() throws SQLException {
+        return DatabaseConnection.getInstance().getConnection();
     }
     
     // ============================================
     // CREATE - Ajouter un appareil
     // ============================================
     
+    private static final String SQL_INSERT = """
+            INSERT INTO APPAREIL_MEDICAL (code, nom, prix, quantite_stock)
+            VALUES (?, ?, ?, ?)
+            """;
+    
+    // Codes reserves par blocs sur seq_appareil
+    private final AllocateurSequence allocateurCodes = AllocateurSequence.pour("seq_appareil");
+    
     /**
-     * Ajoute un appareil medical dans la base de donnees
+     * Ajoute un appareil medical dans la base de donnees.
+     * Le code est pris dans un bloc reserve sur la sequence Oracle (allocation hi/lo).
      */
     public long ajouter(AppareilMedical appareil) {
-        String sql = """
-            INSERT INTO APPAREIL_MEDICAL (code, nom, prix, quantite_stock)
-            VALUES (seq_appareil.NEXTVAL, ?, ?, ?)
-            """;
-        
-        try (PreparedStatement pstmt = connection.prepareStatement(sql, new String[]{"CODE"})) {
-            pstmt.setString(1, appareil.getNom());
-            pstmt.setDouble(2, appareil.getPrix());
-            pstmt.setInt(3, appareil.getQuantiteStock());
-            
+        try (Connection connection = getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(SQL_INSERT)) {
+            long code = allocateurCodes.suivant(connection);
+            remplirInsertion(pstmt, code, appareil);
             pstmt.executeUpdate();
-            
-            // Recuperer le code genere
-            try (ResultSet rs = pstmt.getGeneratedKeys()) {
-                if (rs.next()) {
-                    long code = rs.getLong(1);
-                    appareil.setCode(code);
-                    return code;
+            appareil.setCode(code);
+            return code;
+        } catch (SQLException e) {
+            throw new DatabaseException("Erreur lors de l'ajout de l'appareil: " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Ajoute plusieurs appareils en une seule transaction (import en masse)
+     */
+    public void ajouterLot(List<AppareilMedical> appareils) {
+        if (appareils.isEmpty()) {
+            return;
+        }
+        long[] codes;
+        
+        try (Connection connection = getConnection()) {
+            connection.setAutoCommit(false);
+            codes = allocateurCodes.suivants(connection, appareils.size());
+            try (PreparedStatement pstmt = connection.prepareStatement(SQL_INSERT)) {
+                for (int i = 0; i < appareils.size(); i++) {
+                    remplirInsertion(pstmt, codes[i], appareils.get(i));
+                    pstmt.addBatch();
                 }
+                pstmt.executeBatch();
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
             }
         } catch (SQLException e) {
-            throw new DatabaseException("Erreur lors de l'ajout de l'appareil: " + e.getMessage(), e);
+            throw new DatabaseException("Erreur lors de l'import des appareils: " + e.getMessage(), e);
+        }
+        
+        for (int i = 0; i < appareils.size(); i++) {
+            appareils.get(i).setCode(codes[i]);
         }
-        return -1;
+    }
+    
+    private void remplirInsertion(PreparedStatement pstmt, long code, AppareilMedical appareil) throws SQLException {
+        pstmt.setLong(1, code);
+        pstmt.setString(2, appareil.getNom());
+        pstmt.setBigDecimal(3, Montant.enDecimal(appareil.getPrix()));
+        pstmt.setInt(4, appareil.getQuantiteStock());
     }
     
     // ============================================
@@ -65,17 +101,86 @@ public class AppareilMedicalDAO {
      * Recupere tous les appareils medicaux
      */
     public List<AppareilMedical> getAll() {
-        List<AppareilMedical> appareils = new ArrayList<>();
+        try (Stream<AppareilMedical> appareils = parcourirTout()) {
+            return appareils.collect(Collectors.toCollection(ArrayList::new));
+        }
+    }
+    
+    /**
+     * Parcourt tous les appareils medicaux en flux sur un curseur en avant seulement, sans les garder
+     * en memoire (exports, rapports, chargement du catalogue).
+     * La connexion reste empruntee jusqu'a la fermeture du flux (try-with-resources).
+     *
+     * @param tailleFetch lignes recuperees par aller-retour reseau
+     */
+    public Stream<AppareilMedical> parcourirTout(int tailleFetch) {
         String sql = "SELECT * FROM APPAREIL_MEDICAL ORDER BY nom";
+        return FluxLignes.ouvrir(sql, pstmt -> { }, tailleFetch, this::mapResultSetToAppareil,
+                "Erreur lors de la recuperation des appareils");
+    }
+    
+    /**
+     * parcourirTout() avec la taille de fetch par defaut (pharmacie.dao.tailleFetch)
+     */
+    public Stream<AppareilMedical> parcourirTout() {
+        return parcourirTout(FluxLignes.TAILLE_FETCH_DEFAUT);
+    }
+    
+    /**
+     * Page suivante des appareils tries par nom, code (pagination par cle): la lecture reprend
+     * juste apres la derniere ligne affichee par l'index (nom, code), quelle que soit
+     * la position dans la table, au lieu de sauter les lignes precedentes.
+     *
+     * @param dernier derniere ligne de la page precedente (null pour la premiere page)
+     */
+    public List<AppareilMedical> getPageApres(AppareilMedical dernier, int taille) {
+        String sql = dernier == null
+                ? "SELECT * FROM APPAREIL_MEDICAL ORDER BY nom, code FETCH FIRST ? ROWS ONLY"
+                : "SELECT * FROM APPAREIL_MEDICAL WHERE nom >= ? AND (nom > ? OR code > ?) " +
+                  "ORDER BY nom, code FETCH FIRST ? ROWS ONLY";
+        List<AppareilMedical> appareils = new ArrayList<>(taille);
         
-        try (Statement stmt = connection.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+        try (Connection connection = getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            int index = 1;
+            if (dernier != null) {
+                pstmt.setString(index++, dernier.getNom());
+                pstmt.setString(index++, dernier.getNom());
+                pstmt.setLong(index++, dernier.getCode());
+            }
+            pstmt.setInt(index, taille);
+            pstmt.setFetchSize(taille);
             
-            while (rs.next()) {
-                appareils.add(mapResultSetToAppareil(rs));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    appareils.add(mapResultSetToAppareil(rs));
+                }
             }
         } catch (SQLException e) {
-            throw new DatabaseException("Erreur lors de la recuperation des appareils", e);
+            throw new DatabaseException("Erreur lors de la lecture d'une page d'appareils", e);
+        }
+        return appareils;
+    }
+    
+    /**
+     * Recupere les appareils ajoutes ou modifies apres la date donnee
+     * (colonne date_modification, pour le rafraichissement incremental)
+     */
+    public List<AppareilMedical> getModifiesDepuis(Timestamp depuis) {
+        List<AppareilMedical> appareils = new ArrayList<>();
+        String sql = "SELECT * FROM APPAREIL_MEDICAL WHERE date_modification > ?";
+        
+        try (Connection connection = getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setTimestamp(1, depuis);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    appareils.add(mapResultSetToAppareil(rs));
+                }
+            }
+        } catch (SQLException e) {
+            throw new DatabaseException("Erreur lors de la recuperation des appareils modifies", e);
         }
         return appareils;
     }
@@ -86,7 +191,8 @@ public class AppareilMedicalDAO {
     public AppareilMedical getByCode(long code) {
         String sql = "SELECT * FROM APPAREIL_MEDICAL WHERE code = ?";
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection connection = getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setLong(1, code);
             
             try (ResultSet rs = pstmt.executeQuery()) {
@@ -107,7 +213,8 @@ public class AppareilMedicalDAO {
         List<AppareilMedical> appareils = new ArrayList<>();
         String sql = "SELECT * FROM APPAREIL_MEDICAL WHERE UPPER(nom) LIKE UPPER(?) ORDER BY nom";
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection connection = getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setString(1, "%" + nom + "%");
             
             try (ResultSet rs = pstmt.executeQuery()) {
@@ -135,9 +242,10 @@ public class AppareilMedicalDAO {
             WHERE code = ?
             """;
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection connection = getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setString(1, appareil.getNom());
-            pstmt.setDouble(2, appareil.getPrix());
+            pstmt.setBigDecimal(2, Montant.enDecimal(appareil.getPrix()));
             pstmt.setInt(3, appareil.getQuantiteStock());
             pstmt.setLong(4, appareil.getCode());
             
@@ -153,7 +261,8 @@ public class AppareilMedicalDAO {
     public boolean updateStock(long code, int quantite) {
         String sql = "UPDATE APPAREIL_MEDICAL SET quantite_stock = ? WHERE code = ?";
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection connection = getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setInt(1, quantite);
             pstmt.setLong(2, code);
             return pstmt.executeUpdate() > 0;
@@ -168,7 +277,8 @@ public class AppareilMedicalDAO {
     public boolean decrementerStock(long code, int quantite) {
         String sql = "UPDATE APPAREIL_MEDICAL SET quantite_stock = quantite_stock - ? WHERE code = ? AND quantite_stock >= ?";
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection connection = getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setInt(1, quantite);
             pstmt.setLong(2, code);
             pstmt.setInt(3, quantite);
@@ -178,6 +288,60 @@ public class AppareilMedicalDAO {
         }
     }
     
+    private static final String SQL_DECREMENTS = BlocsStock.decrementsConditionnels("APPAREIL_MEDICAL");
+    
+    /**
+     * Decremente le stock de plusieurs appareils en un aller-retour par lot de BlocsStock.TAILLE_BLOC:
+     * un bloc PL/SQL d'UPDATE conditionnels (quantite_stock >= quantite demandee).
+     * Utilise la connexion fournie pour participer a la transaction de l'appelant.
+     * Retourne, dans l'ordre de la map, le nouveau stock en base, ou -1 si le stock
+     * etait insuffisant (ligne non modifiee). Aucune lecture prealable ni verrou de lecture.
+     */
+    public int[] decrementerStocks(Connection connection, Map<Long, Integer> quantitesParCode) {
+        if (quantitesParCode.isEmpty()) {
+            return new int[0];
+        }
+        try {
+            return BlocsStock.executer(connection, SQL_DECREMENTS, quantitesParCode);
+        } catch (SQLException e) {
+            throw new DatabaseException("Erreur lors de la decrementation des stocks", e);
+        }
+    }
+    
+    private static final String SQL_REPORTS = BlocsStock.reports("APPAREIL_MEDICAL");
+    
+    /**
+     * Reporte en base des ventes deja validees par le registre de stock (RegistreStock):
+     * decrements sans condition, un aller-retour par lot de BlocsStock.TAILLE_BLOC, en une transaction.
+     * Le numero de chaque envoi est enregistre dans REPORT_STOCK dans la meme transaction:
+     * un envoi deja applique (renvoye apres un arret) n'est pas applique une seconde fois.
+     * Retourne, dans l'ordre de la map, le nouveau stock en base (negatif si d'autres caisses
+     * ont vendu le meme stock), BlocsStock.DEJA_REPORTE ou BlocsStock.PRODUIT_ABSENT.
+     *
+     * @param instance identifiant du registre de stock
+     * @param numerosParCode numero d'envoi de chaque code
+     */
+    public int[] reporterDecrements(long instance, Map<Long, Integer> quantitesParCode,
+                                    Map<Long, Long> numerosParCode) {
+        if (quantitesParCode.isEmpty()) {
+            return new int[0];
+        }
+        try (Connection connection = getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                int[] stocks = BlocsStock.executer(connection, SQL_REPORTS, quantitesParCode,
+                        numerosParCode, instance);
+                connection.commit();
+                return stocks;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new DatabaseException("Erreur lors du report des ventes du registre de stock", e);
+        }
+    }
+    
     // ============================================
     // DELETE - Supprimer un appareil
     // ============================================
@@ -188,7 +352,8 @@ public class AppareilMedicalDAO {
     public boolean supprimer(long code) {
         String sql = "DELETE FROM APPAREIL_MEDICAL WHERE code = ?";
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection connection = getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setLong(1, code);
             return pstmt.executeUpdate() > 0;
         } catch (SQLException e) {
@@ -204,7 +369,7 @@ public class AppareilMedicalDAO {
         return new AppareilMedical(
                 rs.getLong("code"),
                 rs.getString("nom"),
-                rs.getDouble("prix"),
+                Montant.deDecimal(rs.getBigDecimal("prix")),
                 rs.getInt("quantite_stock")
         );
     }
@@ -215,7 +380,8 @@ public class AppareilMedicalDAO {
     public int count() {
         String sql = "SELECT COUNT(*) FROM APPAREIL_MEDICAL";
         
-        try (Statement stmt = connection.createStatement();
+        try (Connection connection = getConnection();
+             Statement stmt = connection.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
             if (rs.next()) {
                 return rs.getInt(1);
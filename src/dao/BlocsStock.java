@@ -0,0 +1,168 @@
+package dao;
+
+import java.sql.*;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Blocs PL/SQL de mise a jour des stocks, par lots de TAILLE_BLOC produits.
+ *
+ * Le texte d'un bloc ne depend pas du nombre de produits (cases inutilisees a NULL):
+ * Oracle l'analyse une fois et le cache de requetes du pool le reutilise pour tous
+ * les paniers. Chaque resultat est fixe d'apres SQL%ROWCOUNT: la variable d'un
+ * RETURNING INTO n'est pas definie quand l'UPDATE ne modifie aucune ligne.
+ */
+public final class BlocsStock {
+    
+    /**
+     * Resultat d'un report: le produit n'existe plus en base
+     */
+    public static final int PRODUIT_ABSENT = Integer.MIN_VALUE;
+    
+    /**
+     * Resultat d'un report: cet envoi etait deja applique (renvoye apres un arret)
+     */
+    public static final int DEJA_REPORTE = Integer.MIN_VALUE + 1;
+    
+    // Produits par execution du bloc
+    static final int TAILLE_BLOC = 16;
+    
+    private BlocsStock() {
+    }
+    
+    /**
+     * Decrements conditionnels (quantite_stock >= quantite demandee):
+     * nouveau stock, ou -1 si le stock etait insuffisant (ligne non modifiee)
+     */
+    static String decrementsConditionnels(String table) {
+        return bloc("""
+                            UPDATE %s SET quantite_stock = quantite_stock - quantites(i)
+                             WHERE code = codes(i) AND quantite_stock >= quantites(i)
+                             RETURNING quantite_stock INTO stock;
+                            IF SQL%%ROWCOUNT = 0 THEN
+                                stock := -1;
+                            END IF;
+                """.formatted(table), false);
+    }
+    
+    /**
+     * Report idempotent des ventes d'un registre de stock (decrements sans condition).
+     * Le numero d'envoi est enregistre dans REPORT_STOCK dans la meme transaction: un envoi
+     * dont le numero est deja enregistre a ete applique avant un arret et n'est pas reapplique
+     * (DEJA_REPORTE; la ligne est seulement touchee pour etre relue au rafraichissement).
+     * Sinon: nouveau stock, eventuellement negatif, ou PRODUIT_ABSENT.
+     */
+    static String reports(String table) {
+        return bloc("""
+                            MERGE INTO REPORT_STOCK r
+                            USING DUAL ON (r.id_instance = instance_registre AND r.nom_table = '%1$s'
+                                           AND r.code = codes(i))
+                            WHEN MATCHED THEN UPDATE SET r.dernier_envoi = numeros(i)
+                                 WHERE r.dernier_envoi < numeros(i)
+                            WHEN NOT MATCHED THEN INSERT (id_instance, nom_table, code, dernier_envoi)
+                                 VALUES (instance_registre, '%1$s', codes(i), numeros(i));
+                            IF SQL%%ROWCOUNT = 0 THEN
+                                UPDATE %1$s SET quantite_stock = quantite_stock WHERE code = codes(i);
+                                stock := %2$d;
+                            ELSE
+                                UPDATE %1$s SET quantite_stock = quantite_stock - quantites(i)
+                                 WHERE code = codes(i)
+                                 RETURNING quantite_stock INTO stock;
+                                IF SQL%%ROWCOUNT = 0 THEN
+                                    stock := %3$d;
+                                END IF;
+                            END IF;
+                """.formatted(table, DEJA_REPORTE, PRODUIT_ABSENT), true);
+    }
+    
+    /**
+     * Le bloc: affectation des parametres aux tableaux codes/quantites (et numeros pour un
+     * report), une boucle qui execute 'corps' pour chaque case remplie (resultat dans 'stock'),
+     * puis les resultats
+     */
+    private static String bloc(String corps, boolean report) {
+        StringBuilder sql = new StringBuilder("""
+                DECLARE
+                    TYPE t_nombres IS TABLE OF NUMBER INDEX BY PLS_INTEGER;
+                    codes t_nombres;
+                    quantites t_nombres;
+                    numeros t_nombres;
+                    stocks t_nombres;
+                    stock NUMBER;
+                """);
+        if (report) {
+            sql.append("    instance_registre NUMBER := ?;\n");
+        }
+        sql.append("BEGIN\n");
+        for (int k = 1; k <= TAILLE_BLOC; k++) {
+            sql.append("    codes(").append(k).append(") := ?; quantites(").append(k).append(") := ?;");
+            if (report) {
+                sql.append(" numeros(").append(k).append(") := ?;");
+            }
+            sql.append('\n');
+        }
+        sql.append("    FOR i IN 1 .. ").append(TAILLE_BLOC).append(" LOOP\n")
+           .append("        stock := NULL;\n")
+           .append("        IF codes(i) IS NOT NULL THEN\n")
+           .append(corps)
+           .append("        END IF;\n")
+           .append("        stocks(i) := stock;\n")
+           .append("    END LOOP;\n");
+        for (int k = 1; k <= TAILLE_BLOC; k++) {
+            sql.append("    ? := stocks(").append(k).append(");\n");
+        }
+        return sql.append("END;").toString();
+    }
+    
+    /**
+     * Execute un bloc de decrementsConditionnels() sur la connexion fournie, TAILLE_BLOC
+     * produits a la fois. Retourne, dans l'ordre de la map, le resultat de chaque produit.
+     */
+    static int[] executer(Connection connection, String sql, Map<Long, Integer> quantitesParCode)
+            throws SQLException {
+        return executer(connection, sql, quantitesParCode, null, 0);
+    }
+    
+    /**
+     * Execute un bloc de reports() pour les envois de ce registre (numero d'envoi par code)
+     */
+    static int[] executer(Connection connection, String sql, Map<Long, Integer> quantitesParCode,
+                          Map<Long, Long> numerosParCode, long instance) throws SQLException {
+        int[] resultats = new int[quantitesParCode.size()];
+        Iterator<Map.Entry<Long, Integer>> it = quantitesParCode.entrySet().iterator();
+        boolean report = numerosParCode != null;
+        int debutCases = report ? 2 : 1;
+        int parCase = report ? 3 : 2;
+        int debutResultats = debutCases + parCase * TAILLE_BLOC;
+        
+        try (CallableStatement cstmt = connection.prepareCall(sql)) {
+            for (int debut = 0; debut < resultats.length; debut += TAILLE_BLOC) {
+                int n = Math.min(TAILLE_BLOC, resultats.length - debut);
+                if (report) {
+                    cstmt.setLong(1, instance);
+                }
+                for (int k = 0; k < TAILLE_BLOC; k++) {
+                    int parametre = debutCases + parCase * k;
+                    if (k < n) {
+                        Map.Entry<Long, Integer> e = it.next();
+                        cstmt.setLong(parametre, e.getKey());
+                        cstmt.setInt(parametre + 1, e.getValue());
+                        if (report) {
+                            cstmt.setLong(parametre + 2, numerosParCode.get(e.getKey()));
+                        }
+                    } else {
+                        for (int p = 0; p < parCase; p++) {
+                            cstmt.setNull(parametre + p, Types.NUMERIC);
+                        }
+                    }
+                    cstmt.registerOutParameter(debutResultats + k, Types.INTEGER);
+                }
+                cstmt.execute();
+                for (int k = 0; k < n; k++) {
+                    resultats[debut + k] = cstmt.getInt(debutResultats + k);
+                }
+            }
+        }
+        return resultats;
+    }
+}
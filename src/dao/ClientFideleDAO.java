@@ -1,26 +1,34 @@
 package dao;
 
 import model.ClientFidele;
+import model.Montant;
 import util.DatabaseConnection;
 import exception.DatabaseException;
 
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Classe DAO pour gerer les operations CRUD sur les clients fideles dans la base de donnees.
  */
 public class ClientFideleDAO {
     
-    private Connection connection;
+    // Colonnes modifiables, combinables (masque de mettreAJourChamps)
+    public static final int CHAMP_NOM = 1;
+    public static final int CHAMP_PRENOM = 2;
+    public static final int CHAMP_CREDIT = 4;
+    public static final int CHAMP_MONTANT_ACHATS = 8;
     
-    public ClientFideleDAO() {
-        try {
-            this.connection = DatabaseConnection.getInstance().getConnection();
-        } catch (SQLException e) {
-            throw new DatabaseException("Impossible de se connecter a la base de donnees", e);
-        }
+    /**
+     * Emprunte une connexion au pool pour la duree d'une operation.
+     * La connexion est rendue au pool par le try-with-resources.
+     */
+    private Connection getConnection() throws SQLException {
+        return DatabaseConnection.getInstance().getConnection();
     }
     
     // ============================================
@@ -36,12 +44,13 @@ public class ClientFideleDAO {
             VALUES (?, ?, ?, ?, ?)
             """;
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection connection = getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setLong(1, client.getCin());
             pstmt.setString(2, client.getNom());
             pstmt.setString(3, client.getPrenom());
-            pstmt.setDouble(4, client.getCredit());
-            pstmt.setDouble(5, client.getMontantTotalAchats());
+            pstmt.setBigDecimal(4, Montant.enDecimal(client.getCredit()));
+            pstmt.setBigDecimal(5, Montant.enDecimal(client.getMontantTotalAchats()));
             
             return pstmt.executeUpdate() > 0;
         } catch (SQLException e) {
@@ -60,17 +69,88 @@ public class ClientFideleDAO {
      * Recupere tous les clients fideles
      */
     public List<ClientFidele> getAll() {
-        List<ClientFidele> clients = new ArrayList<>();
+        try (Stream<ClientFidele> clients = parcourirTout()) {
+            return clients.collect(Collectors.toCollection(ArrayList::new));
+        }
+    }
+    
+    /**
+     * Parcourt tous les clients fideles en flux sur un curseur en avant seulement, sans les garder
+     * en memoire (exports, rapports, chargement du catalogue).
+     * La connexion reste empruntee jusqu'a la fermeture du flux (try-with-resources).
+     *
+     * @param tailleFetch lignes recuperees par aller-retour reseau
+     */
+    public Stream<ClientFidele> parcourirTout(int tailleFetch) {
         String sql = "SELECT * FROM CLIENT_FIDELE ORDER BY nom, prenom";
+        return FluxLignes.ouvrir(sql, pstmt -> { }, tailleFetch, this::mapResultSetToClient,
+                "Erreur lors de la recuperation des clients");
+    }
+    
+    /**
+     * parcourirTout() avec la taille de fetch par defaut (pharmacie.dao.tailleFetch)
+     */
+    public Stream<ClientFidele> parcourirTout() {
+        return parcourirTout(FluxLignes.TAILLE_FETCH_DEFAUT);
+    }
+    
+    /**
+     * Page suivante des clients tries par nom, prenom, cin (pagination par cle): la lecture reprend
+     * juste apres la derniere ligne affichee par l'index (nom, prenom, cin), quelle que soit
+     * la position dans la table, au lieu de sauter les lignes precedentes.
+     *
+     * @param dernier derniere ligne de la page precedente (null pour la premiere page)
+     */
+    public List<ClientFidele> getPageApres(ClientFidele dernier, int taille) {
+        String sql = dernier == null
+                ? "SELECT * FROM CLIENT_FIDELE ORDER BY nom, prenom, cin FETCH FIRST ? ROWS ONLY"
+                : "SELECT * FROM CLIENT_FIDELE WHERE nom >= ? AND (nom > ? OR prenom > ? OR (prenom = ? AND cin > ?)) " +
+                  "ORDER BY nom, prenom, cin FETCH FIRST ? ROWS ONLY";
+        List<ClientFidele> clients = new ArrayList<>(taille);
         
-        try (Statement stmt = connection.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+        try (Connection connection = getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            int index = 1;
+            if (dernier != null) {
+                pstmt.setString(index++, dernier.getNom());
+                pstmt.setString(index++, dernier.getNom());
+                pstmt.setString(index++, dernier.getPrenom());
+                pstmt.setString(index++, dernier.getPrenom());
+                pstmt.setLong(index++, dernier.getCin());
+            }
+            pstmt.setInt(index, taille);
+            pstmt.setFetchSize(taille);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    clients.add(mapResultSetToClient(rs));
+                }
+            }
+        } catch (SQLException e) {
+            throw new DatabaseException("Erreur lors de la lecture d'une page de clients", e);
+        }
+        return clients;
+    }
+    
+    /**
+     * Recupere les clients ajoutes ou modifies apres la date donnee
+     * (colonne date_modification, pour le rafraichissement incremental)
+     */
+    public List<ClientFidele> getModifiesDepuis(Timestamp depuis) {
+        List<ClientFidele> clients = new ArrayList<>();
+        String sql = "SELECT * FROM CLIENT_FIDELE WHERE date_modification > ?";
+        
+        try (Connection connection = getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setTimestamp(1, depuis);
             
-            while (rs.next()) {
-                clients.add(mapResultSetToClient(rs));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    clients.add(mapResultSetToClient(rs));
+                }
             }
         } catch (SQLException e) {
-            throw new DatabaseException("Erreur lors de la recuperation des clients", e);
+            throw new DatabaseException("Erreur lors de la recuperation des clients modifies", e);
         }
         return clients;
     }
@@ -81,7 +161,8 @@ public class ClientFideleDAO {
     public ClientFidele getByCin(long cin) {
         String sql = "SELECT * FROM CLIENT_FIDELE WHERE cin = ?";
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection connection = getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setLong(1, cin);
             
             try (ResultSet rs = pstmt.executeQuery()) {
@@ -102,7 +183,8 @@ public class ClientFideleDAO {
         List<ClientFidele> clients = new ArrayList<>();
         String sql = "SELECT * FROM CLIENT_FIDELE WHERE UPPER(nom) LIKE UPPER(?) ORDER BY nom";
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection connection = getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setString(1, "%" + nom + "%");
             
             try (ResultSet rs = pstmt.executeQuery()) {
@@ -130,11 +212,12 @@ public class ClientFideleDAO {
             WHERE cin = ?
             """;
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection connection = getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setString(1, client.getNom());
             pstmt.setString(2, client.getPrenom());
-            pstmt.setDouble(3, client.getCredit());
-            pstmt.setDouble(4, client.getMontantTotalAchats());
+            pstmt.setBigDecimal(3, Montant.enDecimal(client.getCredit()));
+            pstmt.setBigDecimal(4, Montant.enDecimal(client.getMontantTotalAchats()));
             pstmt.setLong(5, client.getCin());
             
             return pstmt.executeUpdate() > 0;
@@ -143,15 +226,103 @@ public class ClientFideleDAO {
         }
     }
     
+    /**
+     * Met a jour seulement les colonnes du masque 'champs' (CHAMP_NOM | CHAMP_CREDIT...) de
+     * plusieurs clients, en un batch JDBC dans une transaction dediee.
+     * Retourne le nombre de clients trouves (les autres ont ete supprimes entre-temps).
+     */
+    public int mettreAJourChamps(int champs, List<ClientFidele> clients) {
+        if (clients.isEmpty() || champs == 0) {
+            return 0;
+        }
+        StringBuilder sql = new StringBuilder("UPDATE CLIENT_FIDELE SET ");
+        String separateur = "";
+        if ((champs & CHAMP_NOM) != 0) {
+            sql.append(separateur).append("nom = ?");
+            separateur = ", ";
+        }
+        if ((champs & CHAMP_PRENOM) != 0) {
+            sql.append(separateur).append("prenom = ?");
+            separateur = ", ";
+        }
+        if ((champs & CHAMP_CREDIT) != 0) {
+            sql.append(separateur).append("credit = ?");
+            separateur = ", ";
+        }
+        if ((champs & CHAMP_MONTANT_ACHATS) != 0) {
+            sql.append(separateur).append("montant_total_achats = ?");
+        }
+        sql.append(" WHERE cin = ?");
+        
+        try (Connection connection = getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement pstmt = connection.prepareStatement(sql.toString())) {
+                for (ClientFidele client : clients) {
+                    int index = 1;
+                    if ((champs & CHAMP_NOM) != 0) {
+                        pstmt.setString(index++, client.getNom());
+                    }
+                    if ((champs & CHAMP_PRENOM) != 0) {
+                        pstmt.setString(index++, client.getPrenom());
+                    }
+                    if ((champs & CHAMP_CREDIT) != 0) {
+                        pstmt.setBigDecimal(index++, Montant.enDecimal(client.getCredit()));
+                    }
+                    if ((champs & CHAMP_MONTANT_ACHATS) != 0) {
+                        pstmt.setBigDecimal(index++, Montant.enDecimal(client.getMontantTotalAchats()));
+                    }
+                    pstmt.setLong(index, client.getCin());
+                    pstmt.addBatch();
+                }
+                int trouves = 0;
+                for (int n : pstmt.executeBatch()) {
+                    // SUCCESS_NO_INFO: ligne modifiee sans compte retourne
+                    if (n > 0 || n == Statement.SUCCESS_NO_INFO) {
+                        trouves++;
+                    }
+                }
+                connection.commit();
+                return trouves;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new DatabaseException("Erreur lors de la mise a jour des clients: " + e.getMessage(), e);
+        }
+    }
+    
     /**
      * Met a jour le montant total des achats d'un client
      */
-    public boolean updateMontantAchats(long cin, double nouveauMontant) {
+    public boolean updateMontantAchats(long cin, long nouveauMontant) {
         String sql = "UPDATE CLIENT_FIDELE SET montant_total_achats = ? WHERE cin = ?";
         
+        try (Connection connection = getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setBigDecimal(1, Montant.enDecimal(nouveauMontant));
+            pstmt.setLong(2, cin);
+            return pstmt.executeUpdate() > 0;
+        } catch (SQLException e) {
+            throw new DatabaseException("Erreur lors de la mise a jour du montant", e);
+        }
+    }
+    
+    /**
+     * Remplace le montant total des achats d'un client seulement s'il vaut encore
+     * 'ancienMontant' (verrou optimiste: une autre caisse ou instance a pu vendre
+     * a ce client depuis la lecture). Utilise la transaction de l'appelant.
+     * Retourne false si le montant a change entre-temps (rien n'est modifie).
+     */
+    public boolean remplacerMontantAchats(Connection connection, long cin, long ancienMontant,
+                                          long nouveauMontant) {
+        String sql = "UPDATE CLIENT_FIDELE SET montant_total_achats = ? " +
+                     "WHERE cin = ? AND NVL(montant_total_achats, 0) = ?";
+        
         try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setDouble(1, nouveauMontant);
+            pstmt.setBigDecimal(1, Montant.enDecimal(nouveauMontant));
             pstmt.setLong(2, cin);
+            pstmt.setBigDecimal(3, Montant.enDecimal(ancienMontant));
             return pstmt.executeUpdate() > 0;
         } catch (SQLException e) {
             throw new DatabaseException("Erreur lors de la mise a jour du montant", e);
@@ -161,11 +332,12 @@ public class ClientFideleDAO {
     /**
      * Ajoute un montant aux achats d'un client
      */
-    public boolean ajouterMontantAchats(long cin, double montant) {
+    public boolean ajouterMontantAchats(long cin, long montant) {
         String sql = "UPDATE CLIENT_FIDELE SET montant_total_achats = montant_total_achats + ? WHERE cin = ?";
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setDouble(1, montant);
+        try (Connection connection = getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setBigDecimal(1, Montant.enDecimal(montant));
             pstmt.setLong(2, cin);
             return pstmt.executeUpdate() > 0;
         } catch (SQLException e) {
@@ -173,6 +345,36 @@ public class ClientFideleDAO {
         }
     }
     
+    /**
+     * Ajoute a plusieurs clients un montant a leurs achats (CIN -> montant, negatif apres
+     * un bonus fidelite), en un batch JDBC dans une transaction dediee.
+     * L'ajout se cumule avec les ventes validees entre-temps par d'autres instances.
+     */
+    public void ajouterMontantAchatsLot(Map<Long, Long> ajoutsParCin) {
+        if (ajoutsParCin.isEmpty()) {
+            return;
+        }
+        String sql = "UPDATE CLIENT_FIDELE SET montant_total_achats = NVL(montant_total_achats, 0) + ? WHERE cin = ?";
+        
+        try (Connection connection = getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+                for (Map.Entry<Long, Long> e : ajoutsParCin.entrySet()) {
+                    pstmt.setBigDecimal(1, Montant.enDecimal(e.getValue()));
+                    pstmt.setLong(2, e.getKey());
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new DatabaseException("Erreur lors de l'ajout aux montants des achats: " + e.getMessage(), e);
+        }
+    }
+    
     /**
      * Reinitialise le montant total des achats (apres reduction)
      */
@@ -190,7 +392,8 @@ public class ClientFideleDAO {
     public boolean supprimer(long cin) {
         String sql = "DELETE FROM CLIENT_FIDELE WHERE cin = ?";
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection connection = getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setLong(1, cin);
             return pstmt.executeUpdate() > 0;
         } catch (SQLException e) {
@@ -207,8 +410,8 @@ public class ClientFideleDAO {
                 rs.getLong("cin"),
                 rs.getString("nom"),
                 rs.getString("prenom"),
-                rs.getDouble("credit"),
-                rs.getDouble("montant_total_achats")
+                Montant.deDecimal(rs.getBigDecimal("credit")),
+                Montant.deDecimal(rs.getBigDecimal("montant_total_achats"))
         );
     }
     
@@ -218,7 +421,8 @@ public class ClientFideleDAO {
     public int count() {
         String sql = "SELECT COUNT(*) FROM CLIENT_FIDELE";
         
-        try (Statement stmt = connection.createStatement();
+        try (Connection connection = getConnection();
+             Statement stmt = connection.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
             if (rs.next()) {
                 return rs.getInt(1);
@@ -230,9 +434,20 @@ public class ClientFideleDAO {
     }
     
     /**
-     * Verifie si un client existe
+     * Verifie si un client existe (sans lire ses colonnes)
      */
     public boolean existe(long cin) {
-        return getByCin(cin) != null;
+        String sql = "SELECT 1 FROM CLIENT_FIDELE WHERE cin = ?";
+        
+        try (Connection connection = getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setLong(1, cin);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next();
+            }
+        } catch (SQLException e) {
+            throw new DatabaseException("Erreur lors de la verification du client", e);
+        }
     }
 }
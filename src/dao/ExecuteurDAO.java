@@ -0,0 +1,187 @@
+package dao;
+
+import util.DatabaseConnection;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Execution des operations DAO sur des threads virtuels.
+ *
+ * Chaque operation soumise recoit son propre thread virtuel: des milliers de requetes
+ * simultanees ne consomment pas de threads systeme. Un semaphore limite le nombre
+ * d'operations qui accedent a la base en meme temps a la taille maximale du pool
+ * de connexions; les autres attendent leur tour sans bloquer de thread systeme.
+ *
+ * Statistiques: temps d'attente du semaphore (file) et temps passe en base, separes.
+ */
+public class ExecuteurDAO {
+    
+    private static ExecuteurDAO instance;
+    
+    private final ExecutorService executeur;
+    private final Semaphore permis;
+    private final int concurrenceMax;
+    
+    // Statistiques
+    private final AtomicInteger enAttente = new AtomicInteger();
+    private final AtomicInteger enCours = new AtomicInteger();
+    private final AtomicLong nombreOperations = new AtomicLong();
+    private final AtomicLong nombreEchecs = new AtomicLong();
+    private final AtomicLong tempsAttenteTotalNanos = new AtomicLong();
+    private final AtomicLong tempsAttenteMaxNanos = new AtomicLong();
+    private final AtomicLong tempsBaseTotalNanos = new AtomicLong();
+    private final AtomicLong tempsBaseMaxNanos = new AtomicLong();
+    
+    /**
+     * @param concurrenceMax nombre maximal d'operations en base simultanees
+     */
+    public ExecuteurDAO(int concurrenceMax) {
+        this.concurrenceMax = concurrenceMax;
+        this.permis = new Semaphore(concurrenceMax, true);
+        this.executeur = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("dao-", 0).factory());
+    }
+    
+    /**
+     * Executeur partage, limite a la taille maximale du pool de connexions
+     */
+    public static synchronized ExecuteurDAO getInstance() {
+        if (instance == null) {
+            instance = new ExecuteurDAO(DatabaseConnection.getInstance().getPool().getTailleMax());
+        }
+        return instance;
+    }
+    
+    // ============================================
+    // SOUMISSION
+    // ============================================
+    
+    /**
+     * Operation sur la base (un ou plusieurs appels DAO)
+     */
+    @FunctionalInterface
+    public interface Operation<T> {
+        T executer() throws Exception;
+    }
+    
+    /**
+     * Execute l'operation sur un thread virtuel des qu'un acces a la base est disponible.
+     * Une exception controlee de l'operation est transmise dans une CompletionException.
+     */
+    public <T> CompletableFuture<T> soumettre(Operation<T> operation) {
+        long soumission = System.nanoTime();
+        enAttente.incrementAndGet();
+        return CompletableFuture.supplyAsync(() -> executer(operation, soumission), executeur);
+    }
+    
+    /**
+     * Variante sans resultat de soumettre()
+     */
+    public CompletableFuture<Void> soumettre(Runnable operation) {
+        return soumettre(() -> {
+            operation.run();
+            return null;
+        }).thenApply(r -> null);
+    }
+    
+    private <T> T executer(Operation<T> operation, long soumission) {
+        try {
+            permis.acquire();
+        } catch (InterruptedException e) {
+            enAttente.decrementAndGet();
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
+        }
+        long debut = System.nanoTime();
+        enAttente.decrementAndGet();
+        enCours.incrementAndGet();
+        enregistrer(tempsAttenteTotalNanos, tempsAttenteMaxNanos, debut - soumission);
+        try {
+            return operation.executer();
+        } catch (RuntimeException e) {
+            nombreEchecs.incrementAndGet();
+            throw e;
+        } catch (Exception e) {
+            nombreEchecs.incrementAndGet();
+            throw new CompletionException(e);
+        } finally {
+            enregistrer(tempsBaseTotalNanos, tempsBaseMaxNanos, System.nanoTime() - debut);
+            nombreOperations.incrementAndGet();
+            enCours.decrementAndGet();
+            permis.release();
+        }
+    }
+    
+    private static void enregistrer(AtomicLong total, AtomicLong max, long nanos) {
+        total.addAndGet(nanos);
+        max.accumulateAndGet(nanos, Math::max);
+    }
+    
+    /**
+     * Refuse les nouvelles operations; celles deja soumises se terminent
+     */
+    public void fermer() {
+        executeur.shutdown();
+    }
+    
+    // ============================================
+    // STATISTIQUES
+    // ============================================
+    
+    public int getConcurrenceMax() {
+        return concurrenceMax;
+    }
+    
+    /**
+     * Operations soumises qui attendent un acces a la base
+     */
+    public int getNombreEnAttente() {
+        return enAttente.get();
+    }
+    
+    /**
+     * Operations en cours d'execution en base
+     */
+    public int getNombreEnCours() {
+        return enCours.get();
+    }
+    
+    public long getNombreOperations() {
+        return nombreOperations.get();
+    }
+    
+    public long getNombreEchecs() {
+        return nombreEchecs.get();
+    }
+    
+    public double getTempsAttenteMoyenMs() {
+        long n = nombreOperations.get();
+        return n == 0 ? 0.0 : tempsAttenteTotalNanos.get() / (n * 1_000_000.0);
+    }
+    
+    public double getTempsAttenteMaxMs() {
+        return tempsAttenteMaxNanos.get() / 1_000_000.0;
+    }
+    
+    public double getTempsBaseMoyenMs() {
+        long n = nombreOperations.get();
+        return n == 0 ? 0.0 : tempsBaseTotalNanos.get() / (n * 1_000_000.0);
+    }
+    
+    public double getTempsBaseMaxMs() {
+        return tempsBaseMaxNanos.get() / 1_000_000.0;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("ExecuteurDAO[max=%d, enCours=%d, enAttente=%d, operations=%d, echecs=%d, " +
+                        "attenteMoy=%.2f ms, attenteMax=%.2f ms, baseMoy=%.2f ms, baseMax=%.2f ms]",
+                concurrenceMax, getNombreEnCours(), getNombreEnAttente(), getNombreOperations(), getNombreEchecs(),
+                getTempsAttenteMoyenMs(), getTempsAttenteMaxMs(), getTempsBaseMoyenMs(), getTempsBaseMaxMs());
+    }
+}
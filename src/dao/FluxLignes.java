@@ -0,0 +1,116 @@
+package dao;
+
+import exception.DatabaseException;
+import util.DatabaseConnection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Lecture d'une requete en flux (Stream) sur un curseur en avant seulement.
+ *
+ * Les lignes sont converties une par une pendant le parcours: la memoire utilisee ne depend
+ * pas du nombre de lignes, et le driver en recupere tailleFetch par aller-retour reseau
+ * (10 par defaut avec Oracle). La connexion reste empruntee au pool jusqu'a la fermeture
+ * du flux: l'appelant doit le fermer (try-with-resources).
+ */
+final class FluxLignes {
+    
+    // Lignes recuperees par aller-retour (modifiable avec -Dpharmacie.dao.tailleFetch=valeur)
+    static final int TAILLE_FETCH_DEFAUT = Integer.getInteger("pharmacie.dao.tailleFetch", 500);
+    
+    private FluxLignes() {
+    }
+    
+    /**
+     * Conversion d'une ligne du ResultSet en objet
+     */
+    @FunctionalInterface
+    interface LecteurLigne<T> {
+        T lire(ResultSet rs) throws SQLException;
+    }
+    
+    /**
+     * Remplit les parametres de la requete avant son execution
+     */
+    @FunctionalInterface
+    interface Parametres {
+        void remplir(PreparedStatement pstmt) throws SQLException;
+    }
+    
+    /**
+     * Execute la requete et retourne ses lignes en flux.
+     * Fermer le flux ferme le ResultSet, la requete et rend la connexion au pool.
+     *
+     * @param messageErreur message de la DatabaseException levee en cas d'erreur SQL
+     */
+    static <T> Stream<T> ouvrir(String sql, Parametres parametres, int tailleFetch,
+                                LecteurLigne<T> lecteur, String messageErreur) {
+        if (tailleFetch < 1) {
+            throw new IllegalArgumentException("Taille de fetch invalide: " + tailleFetch);
+        }
+        Connection connection = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs;
+        try {
+            connection = DatabaseConnection.getInstance().getConnection();
+            pstmt = connection.prepareStatement(sql);
+            pstmt.setFetchSize(tailleFetch);
+            parametres.remplir(pstmt);
+            rs = pstmt.executeQuery();
+        } catch (SQLException e) {
+            fermer(pstmt, connection);
+            throw new DatabaseException(messageErreur + ": " + e.getMessage(), e);
+        }
+        
+        Connection connexionOuverte = connection;
+        PreparedStatement requeteOuverte = pstmt;
+        Spliterator<T> lignes = new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                try {
+                    if (!rs.next()) {
+                        return false;
+                    }
+                    action.accept(lecteur.lire(rs));
+                    return true;
+                } catch (SQLException e) {
+                    throw new DatabaseException(messageErreur + ": " + e.getMessage(), e);
+                }
+            }
+        };
+        return StreamSupport.stream(lignes, false).onClose(() -> {
+            try {
+                rs.close();
+            } catch (SQLException e) {
+                System.err.println("Erreur lors de la fermeture d'un curseur: " + e.getMessage());
+            }
+            fermer(requeteOuverte, connexionOuverte);
+        });
+    }
+    
+    private static void fermer(PreparedStatement pstmt, Connection connection) {
+        try {
+            if (pstmt != null) {
+                pstmt.close();
+            }
+        } catch (SQLException e) {
+            System.err.println("Erreur lors de la fermeture d'une requete: " + e.getMessage());
+        }
+        try {
+            if (connection != null) {
+                connection.close();
+            }
+        } catch (SQLException e) {
+            System.err.println("Erreur lors de la fermeture d'une connexion: " + e.getMessage());
+        }
+    }
+}
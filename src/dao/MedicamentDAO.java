@@ -3,85 +3,125 @@ package dao;
 import model.Medicament;
 import model.MedicamentChimique;
 import model.MedicamentHomeopathique;
+import model.Montant;
 import util.DatabaseConnection;
+import util.Dictionnaire;
 import exception.DatabaseException;
 
+import java.math.BigDecimal;
 import java.sql.*;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Classe DAO pour gerer les operations CRUD sur les medicaments dans la base de donnees.
  */
 public class MedicamentDAO {
     
-    private Connection connection;
-    
-    public MedicamentDAO() {
-        try {
-            this.connection = DatabaseConnection.getInstance().getConnection();
-        } catch (SQLException e) {
-            throw new DatabaseException("Impossible de se connecter a la base de donnees", e);
-        }
+    /**
+     * Emprunte une connexion au pool pour la duree d'une operation.
+     * La connexion est rendue au pool par le try-with-resources.
+     */
+    private Connection getConnection() throws SQLException {
+        return DatabaseConnection.getInstance().getConnection();
     }
     
     // ============================================
     // CREATE - Ajouter un medicament
     // ============================================
     
+    private static final String SQL_INSERT_CHIMIQUE = """
+            INSERT INTO MEDICAMENT (code, num_serie, nom, genre, prix, date_expiration, 
+                type_medicament, constituant_chimique, age_minimum, quantite_stock)
+            VALUES (?, ?, ?, ?, ?, ?, 'CHIMIQUE', ?, ?, ?)
+            """;
+    
+    private static final String SQL_INSERT_HOMEOPATHIQUE = """
+            INSERT INTO MEDICAMENT (code, num_serie, nom, genre, prix, date_expiration, 
+                type_medicament, plante_utilisee, quantite_stock)
+            VALUES (?, ?, ?, ?, ?, ?, 'HOMEOPATHIQUE', ?, ?)
+            """;
+    
+    // Codes reserves par blocs sur seq_medicament
+    private final AllocateurSequence allocateurCodes = AllocateurSequence.pour("seq_medicament");
+    
     /**
      * Ajoute un medicament dans la base de donnees.
-     * Le code est genere automatiquement par la sequence Oracle.
+     * Le code est pris dans un bloc reserve sur la sequence Oracle (allocation hi/lo).
      */
     public long ajouter(Medicament medicament) {
-        String sql;
-        
-        if (medicament instanceof MedicamentChimique) {
-            sql = """
-                INSERT INTO MEDICAMENT (code, num_serie, nom, genre, prix, date_expiration, 
-                    type_medicament, constituant_chimique, age_minimum, quantite_stock)
-                VALUES (seq_medicament.NEXTVAL, ?, ?, ?, ?, ?, 'CHIMIQUE', ?, ?, ?)
-                """;
-        } else {
-            sql = """
-                INSERT INTO MEDICAMENT (code, num_serie, nom, genre, prix, date_expiration, 
-                    type_medicament, plante_utilisee, quantite_stock)
-                VALUES (seq_medicament.NEXTVAL, ?, ?, ?, ?, ?, 'HOMEOPATHIQUE', ?, ?)
-                """;
+        String sql = medicament instanceof MedicamentChimique ? SQL_INSERT_CHIMIQUE : SQL_INSERT_HOMEOPATHIQUE;
+        try (Connection connection = getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            long code = allocateurCodes.suivant(connection);
+            remplirInsertion(pstmt, code, medicament);
+            pstmt.executeUpdate();
+            medicament.setCode(code);
+            return code;
+        } catch (SQLException e) {
+            throw new DatabaseException("Erreur lors de l'ajout du medicament: " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Ajoute plusieurs medicaments en une seule transaction (import en masse).
+     * Les codes sont attribues en memoire et les insertions envoyees par batch JDBC.
+     */
+    public void ajouterLot(List<Medicament> medicaments) {
+        if (medicaments.isEmpty()) {
+            return;
         }
+        long[] codes;
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql, new String[]{"CODE"})) {
-            int index = 1;
-            pstmt.setLong(index++, medicament.getNumSerie());
-            pstmt.setString(index++, medicament.getNom());
-            pstmt.setString(index++, medicament.getGenre());
-            pstmt.setDouble(index++, medicament.getPrix());
-            pstmt.setDate(index++, medicament.getDateExpiration() != null ? 
-                    Date.valueOf(medicament.getDateExpiration()) : null);
-            
-            if (medicament instanceof MedicamentChimique mc) {
-                pstmt.setString(index++, mc.getConstituantChimique());
-                pstmt.setInt(index++, mc.getAgeMinimum());
-            } else if (medicament instanceof MedicamentHomeopathique mh) {
-                pstmt.setString(index++, mh.getPlanteUtilisee());
-            }
-            pstmt.setInt(index, medicament.getQuantiteStock());
-            
-            pstmt.executeUpdate();
-            
-            // Recuperer le code genere
-            try (ResultSet rs = pstmt.getGeneratedKeys()) {
-                if (rs.next()) {
-                    long code = rs.getLong(1);
-                    medicament.setCode(code);
-                    return code;
+        try (Connection connection = getConnection()) {
+            connection.setAutoCommit(false);
+            codes = allocateurCodes.suivants(connection, medicaments.size());
+            try (PreparedStatement insertChimique = connection.prepareStatement(SQL_INSERT_CHIMIQUE);
+                 PreparedStatement insertHomeo = connection.prepareStatement(SQL_INSERT_HOMEOPATHIQUE)) {
+                for (int i = 0; i < medicaments.size(); i++) {
+                    Medicament m = medicaments.get(i);
+                    PreparedStatement pstmt = m instanceof MedicamentChimique ? insertChimique : insertHomeo;
+                    remplirInsertion(pstmt, codes[i], m);
+                    pstmt.addBatch();
                 }
+                insertChimique.executeBatch();
+                insertHomeo.executeBatch();
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
             }
         } catch (SQLException e) {
-            throw new DatabaseException("Erreur lors de l'ajout du medicament: " + e.getMessage(), e);
+            throw new DatabaseException("Erreur lors de l'import des medicaments: " + e.getMessage(), e);
+        }
+        
+        for (int i = 0; i < medicaments.size(); i++) {
+            medicaments.get(i).setCode(codes[i]);
+        }
+    }
+    
+    private void remplirInsertion(PreparedStatement pstmt, long code, Medicament medicament) throws SQLException {
+        int index = 1;
+        pstmt.setLong(index++, code);
+        pstmt.setLong(index++, medicament.getNumSerie());
+        pstmt.setString(index++, medicament.getNom());
+        pstmt.setString(index++, medicament.getGenre());
+        pstmt.setBigDecimal(index++, Montant.enDecimal(medicament.getPrix()));
+        pstmt.setDate(index++, medicament.getDateExpiration() != null ? 
+                Date.valueOf(medicament.getDateExpiration()) : null);
+        
+        if (medicament instanceof MedicamentChimique mc) {
+            pstmt.setString(index++, mc.getConstituantChimique());
+            pstmt.setInt(index++, mc.getAgeMinimum());
+        } else if (medicament instanceof MedicamentHomeopathique mh) {
+            pstmt.setString(index++, mh.getPlanteUtilisee());
         }
-        return -1;
+        pstmt.setInt(index, medicament.getQuantiteStock());
     }
     
     // ============================================
@@ -92,17 +132,86 @@ public class MedicamentDAO {
      * Recupere tous les medicaments de la base de donnees
      */
     public List<Medicament> getAll() {
-        List<Medicament> medicaments = new ArrayList<>();
+        try (Stream<Medicament> medicaments = parcourirTout()) {
+            return medicaments.collect(Collectors.toCollection(ArrayList::new));
+        }
+    }
+    
+    /**
+     * Parcourt tous les medicaments de la base de donnees en flux sur un curseur en avant seulement, sans les garder
+     * en memoire (exports, rapports, chargement du catalogue).
+     * La connexion reste empruntee jusqu'a la fermeture du flux (try-with-resources).
+     *
+     * @param tailleFetch lignes recuperees par aller-retour reseau
+     */
+    public Stream<Medicament> parcourirTout(int tailleFetch) {
         String sql = "SELECT * FROM MEDICAMENT ORDER BY nom";
+        return FluxLignes.ouvrir(sql, pstmt -> { }, tailleFetch, this::mapResultSetToMedicament,
+                "Erreur lors de la recuperation des medicaments");
+    }
+    
+    /**
+     * parcourirTout() avec la taille de fetch par defaut (pharmacie.dao.tailleFetch)
+     */
+    public Stream<Medicament> parcourirTout() {
+        return parcourirTout(FluxLignes.TAILLE_FETCH_DEFAUT);
+    }
+    
+    /**
+     * Page suivante des medicaments tries par nom, code (pagination par cle): la lecture reprend
+     * juste apres la derniere ligne affichee par l'index (nom, code), quelle que soit
+     * la position dans la table, au lieu de sauter les lignes precedentes.
+     *
+     * @param dernier derniere ligne de la page precedente (null pour la premiere page)
+     */
+    public List<Medicament> getPageApres(Medicament dernier, int taille) {
+        String sql = dernier == null
+                ? "SELECT * FROM MEDICAMENT ORDER BY nom, code FETCH FIRST ? ROWS ONLY"
+                : "SELECT * FROM MEDICAMENT WHERE nom >= ? AND (nom > ? OR code > ?) " +
+                  "ORDER BY nom, code FETCH FIRST ? ROWS ONLY";
+        List<Medicament> medicaments = new ArrayList<>(taille);
         
-        try (Statement stmt = connection.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+        try (Connection connection = getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            int index = 1;
+            if (dernier != null) {
+                pstmt.setString(index++, dernier.getNom());
+                pstmt.setString(index++, dernier.getNom());
+                pstmt.setLong(index++, dernier.getCode());
+            }
+            pstmt.setInt(index, taille);
+            pstmt.setFetchSize(taille);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    medicaments.add(mapResultSetToMedicament(rs));
+                }
+            }
+        } catch (SQLException e) {
+            throw new DatabaseException("Erreur lors de la lecture d'une page de medicaments", e);
+        }
+        return medicaments;
+    }
+    
+    /**
+     * Recupere les medicaments ajoutes ou modifies apres la date donnee
+     * (colonne date_modification, pour le rafraichissement incremental)
+     */
+    public List<Medicament> getModifiesDepuis(Timestamp depuis) {
+        List<Medicament> medicaments = new ArrayList<>();
+        String sql = "SELECT * FROM MEDICAMENT WHERE date_modification > ?";
+        
+        try (Connection connection = getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setTimestamp(1, depuis);
             
-            while (rs.next()) {
-                medicaments.add(mapResultSetToMedicament(rs));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    medicaments.add(mapResultSetToMedicament(rs));
+                }
             }
         } catch (SQLException e) {
-            throw new DatabaseException("Erreur lors de la recuperation des medicaments", e);
+            throw new DatabaseException("Erreur lors de la recuperation des medicaments modifies", e);
         }
         return medicaments;
     }
@@ -113,7 +222,8 @@ public class MedicamentDAO {
     public Medicament getByCode(long code) {
         String sql = "SELECT * FROM MEDICAMENT WHERE code = ?";
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection connection = getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setLong(1, code);
             
             try (ResultSet rs = pstmt.executeQuery()) {
@@ -134,7 +244,8 @@ public class MedicamentDAO {
         List<Medicament> medicaments = new ArrayList<>();
         String sql = "SELECT * FROM MEDICAMENT WHERE UPPER(nom) LIKE UPPER(?) ORDER BY nom";
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection connection = getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setString(1, "%" + nom + "%");
             
             try (ResultSet rs = pstmt.executeQuery()) {
@@ -155,7 +266,8 @@ public class MedicamentDAO {
         List<Medicament> medicaments = new ArrayList<>();
         String sql = "SELECT * FROM MEDICAMENT WHERE type_medicament = ? ORDER BY nom";
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection connection = getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setString(1, categorie.toUpperCase());
             
             try (ResultSet rs = pstmt.executeQuery()) {
@@ -176,7 +288,8 @@ public class MedicamentDAO {
         List<Medicament> medicaments = new ArrayList<>();
         String sql = "SELECT * FROM MEDICAMENT WHERE UPPER(nom) LIKE UPPER(?) ORDER BY nom";
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection connection = getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setString(1, lettres + "%");
             
             try (ResultSet rs = pstmt.executeQuery()) {
@@ -197,7 +310,8 @@ public class MedicamentDAO {
         List<Medicament> medicaments = new ArrayList<>();
         String sql = "SELECT * FROM MEDICAMENT WHERE date_expiration <= ADD_MONTHS(SYSDATE, ?) ORDER BY date_expiration";
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection connection = getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setInt(1, mois);
             
             try (ResultSet rs = pstmt.executeQuery()) {
@@ -237,12 +351,13 @@ public class MedicamentDAO {
                 """;
         }
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection connection = getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             int index = 1;
             pstmt.setLong(index++, medicament.getNumSerie());
             pstmt.setString(index++, medicament.getNom());
             pstmt.setString(index++, medicament.getGenre());
-            pstmt.setDouble(index++, medicament.getPrix());
+            pstmt.setBigDecimal(index++, Montant.enDecimal(medicament.getPrix()));
             pstmt.setDate(index++, medicament.getDateExpiration() != null ? 
                     Date.valueOf(medicament.getDateExpiration()) : null);
             
@@ -262,13 +377,15 @@ public class MedicamentDAO {
     }
     
     /**
-     * Applique une remise sur les medicaments qui expirent bientot
+     * Applique une remise (en %) sur les medicaments qui expirent bientot.
+     * Le prix remise est arrondi au millime, comme Montant.remise().
      */
-    public int appliquerRemiseMedicamentsExpirants(int mois, double pourcentageRemise) {
-        String sql = "UPDATE MEDICAMENT SET prix = prix * ? WHERE date_expiration <= ADD_MONTHS(SYSDATE, ?)";
+    public int appliquerRemiseMedicamentsExpirants(int mois, int pourcentageRemise) {
+        String sql = "UPDATE MEDICAMENT SET prix = ROUND(prix * ?, 3) WHERE date_expiration <= ADD_MONTHS(SYSDATE, ?)";
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setDouble(1, 1 - pourcentageRemise / 100);
+        try (Connection connection = getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setBigDecimal(1, BigDecimal.valueOf(100 - pourcentageRemise, 2));
             pstmt.setInt(2, mois);
             return pstmt.executeUpdate();
         } catch (SQLException e) {
@@ -276,13 +393,84 @@ public class MedicamentDAO {
         }
     }
     
+    /**
+     * Retourne les medicaments qui expirent au plus tard a la date limite
+     * et dont la remise d'expiration n'a pas encore ete appliquee
+     */
+    public List<Medicament> getMedicamentsARemiser(LocalDate limite) {
+        List<Medicament> medicaments = new ArrayList<>();
+        String sql = """
+            SELECT * FROM MEDICAMENT
+            WHERE remise_expiration = 0 AND date_expiration <= ?
+            ORDER BY date_expiration
+            """;
+        
+        try (Connection connection = getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setDate(1, Date.valueOf(limite));
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    medicaments.add(mapResultSetToMedicament(rs));
+                }
+            }
+        } catch (SQLException e) {
+            throw new DatabaseException("Erreur lors de la recherche des medicaments a remiser", e);
+        }
+        return medicaments;
+    }
+    
+    /**
+     * Enregistre les prix remises (en millimes) des medicaments expirants en une seule transaction (batch JDBC).
+     * La mise a jour est conditionnelle (remise_expiration = 0): une remise deja appliquee,
+     * par exemple par une autre caisse, n'est jamais appliquee une seconde fois.
+     * Retourne, dans l'ordre de la map, le nombre de lignes modifiees (0 si deja remise).
+     * Si le pilote repond SUCCESS_NO_INFO, le lot est annule et rejoue ligne par ligne
+     * pour connaitre les remises effectivement appliquees.
+     */
+    public int[] appliquerRemisesExpiration(Map<Long, Long> prixParCode) {
+        if (prixParCode.isEmpty()) {
+            return new int[0];
+        }
+        String sql = "UPDATE MEDICAMENT SET prix = ?, remise_expiration = 1 WHERE code = ? AND remise_expiration = 0";
+        
+        try (Connection connection = getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+                for (Map.Entry<Long, Long> e : prixParCode.entrySet()) {
+                    pstmt.setBigDecimal(1, Montant.enDecimal(e.getValue()));
+                    pstmt.setLong(2, e.getKey());
+                    pstmt.addBatch();
+                }
+                int[] resultats = pstmt.executeBatch();
+                if (Arrays.stream(resultats).anyMatch(n -> n == Statement.SUCCESS_NO_INFO)) {
+                    connection.rollback();
+                    int i = 0;
+                    for (Map.Entry<Long, Long> e : prixParCode.entrySet()) {
+                        pstmt.setBigDecimal(1, Montant.enDecimal(e.getValue()));
+                        pstmt.setLong(2, e.getKey());
+                        resultats[i++] = pstmt.executeUpdate();
+                    }
+                }
+                connection.commit();
+                return resultats;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new DatabaseException("Erreur lors de l'application des remises d'expiration", e);
+        }
+    }
+    
     /**
      * Met a jour le stock d'un medicament
      */
     public boolean updateStock(long code, int quantite) {
         String sql = "UPDATE MEDICAMENT SET quantite_stock = ? WHERE code = ?";
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection connection = getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setInt(1, quantite);
             pstmt.setLong(2, code);
             return pstmt.executeUpdate() > 0;
@@ -297,7 +485,8 @@ public class MedicamentDAO {
     public boolean decrementerStock(long code, int quantite) {
         String sql = "UPDATE MEDICAMENT SET quantite_stock = quantite_stock - ? WHERE code = ? AND quantite_stock >= ?";
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection connection = getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setInt(1, quantite);
             pstmt.setLong(2, code);
             pstmt.setInt(3, quantite);
@@ -307,6 +496,60 @@ public class MedicamentDAO {
         }
     }
     
+    private static final String SQL_DECREMENTS = BlocsStock.decrementsConditionnels("MEDICAMENT");
+    
+    /**
+     * Decremente le stock de plusieurs medicaments en un aller-retour par lot de BlocsStock.TAILLE_BLOC:
+     * un bloc PL/SQL d'UPDATE conditionnels (quantite_stock >= quantite demandee).
+     * Utilise la connexion fournie pour participer a la transaction de l'appelant.
+     * Retourne, dans l'ordre de la map, le nouveau stock en base, ou -1 si le stock
+     * etait insuffisant (ligne non modifiee). Aucune lecture prealable ni verrou de lecture.
+     */
+    public int[] decrementerStocks(Connection connection, Map<Long, Integer> quantitesParCode) {
+        if (quantitesParCode.isEmpty()) {
+            return new int[0];
+        }
+        try {
+            return BlocsStock.executer(connection, SQL_DECREMENTS, quantitesParCode);
+        } catch (SQLException e) {
+            throw new DatabaseException("Erreur lors de la decrementation des stocks", e);
+        }
+    }
+    
+    private static final String SQL_REPORTS = BlocsStock.reports("MEDICAMENT");
+    
+    /**
+     * Reporte en base des ventes deja validees par le registre de stock (RegistreStock):
+     * decrements sans condition, un aller-retour par lot de BlocsStock.TAILLE_BLOC, en une transaction.
+     * Le numero de chaque envoi est enregistre dans REPORT_STOCK dans la meme transaction:
+     * un envoi deja applique (renvoye apres un arret) n'est pas applique une seconde fois.
+     * Retourne, dans l'ordre de la map, le nouveau stock en base (negatif si d'autres caisses
+     * ont vendu le meme stock), BlocsStock.DEJA_REPORTE ou BlocsStock.PRODUIT_ABSENT.
+     *
+     * @param instance identifiant du registre de stock
+     * @param numerosParCode numero d'envoi de chaque code
+     */
+    public int[] reporterDecrements(long instance, Map<Long, Integer> quantitesParCode,
+                                    Map<Long, Long> numerosParCode) {
+        if (quantitesParCode.isEmpty()) {
+            return new int[0];
+        }
+        try (Connection connection = getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                int[] stocks = BlocsStock.executer(connection, SQL_REPORTS, quantitesParCode,
+                        numerosParCode, instance);
+                connection.commit();
+                return stocks;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new DatabaseException("Erreur lors du report des ventes du registre de stock", e);
+        }
+    }
+    
     // ============================================
     // DELETE - Supprimer un medicament
     // ============================================
@@ -317,7 +560,8 @@ public class MedicamentDAO {
     public boolean supprimer(long code) {
         String sql = "DELETE FROM MEDICAMENT WHERE code = ?";
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection connection = getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setLong(1, code);
             return pstmt.executeUpdate() > 0;
         } catch (SQLException e) {
@@ -331,7 +575,8 @@ public class MedicamentDAO {
     public boolean supprimerParNom(String nom) {
         String sql = "DELETE FROM MEDICAMENT WHERE UPPER(nom) = UPPER(?)";
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection connection = getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
             pstmt.setString(1, nom);
             return pstmt.executeUpdate() > 0;
         } catch (SQLException e) {
@@ -349,8 +594,9 @@ public class MedicamentDAO {
         long code = rs.getLong("code");
         long numSerie = rs.getLong("num_serie");
         String nom = rs.getString("nom");
-        String genre = rs.getString("genre");
-        double prix = rs.getDouble("prix");
+        // Valeurs repetees sur des milliers de lignes: une seule instance partagee par valeur
+        String genre = Dictionnaire.GENRES.canonique(rs.getString("genre"));
+        long prix = Montant.deDecimal(rs.getBigDecimal("prix"));
         Date dateExp = rs.getDate("date_expiration");
         LocalDate dateExpiration = dateExp != null ? dateExp.toLocalDate() : null;
         int quantiteStock = rs.getInt("quantite_stock");
@@ -358,15 +604,16 @@ public class MedicamentDAO {
         Medicament medicament;
         
         if ("CHIMIQUE".equals(type)) {
-            String constituant = rs.getString("constituant_chimique");
+            String constituant = Dictionnaire.CONSTITUANTS.canonique(rs.getString("constituant_chimique"));
             int ageMin = rs.getInt("age_minimum");
             medicament = new MedicamentChimique(code, numSerie, nom, genre, prix, dateExpiration, constituant, ageMin);
         } else {
-            String plante = rs.getString("plante_utilisee");
+            String plante = Dictionnaire.PLANTES.canonique(rs.getString("plante_utilisee"));
             medicament = new MedicamentHomeopathique(code, numSerie, nom, genre, prix, dateExpiration, plante);
         }
         
         medicament.setQuantiteStock(quantiteStock);
+        medicament.setRemiseExpiration(rs.getInt("remise_expiration") == 1);
         return medicament;
     }
     
@@ -376,7 +623,8 @@ public class MedicamentDAO {
     public int count() {
         String sql = "SELECT COUNT(*) FROM MEDICAMENT";
         
-        try (Statement stmt = connection.createStatement();
+        try (Connection connection = getConnection();
+             Statement stmt = connection.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
             if (rs.next()) {
                 return rs.getInt(1);
@@ -0,0 +1,58 @@
+package dao;
+
+import util.DatabaseConnection;
+import exception.DatabaseException;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Classe DAO pour le suivi des modifications de la base de donnees:
+ * horloge de la base et journal des lignes supprimees (table JOURNAL_SUPPRESSION,
+ * remplie par des triggers). Utilisee par Pharmacie.rafraichir().
+ */
+public class SuiviModificationsDAO {
+    
+    private Connection getConnection() throws SQLException {
+        return DatabaseConnection.getInstance().getConnection();
+    }
+    
+    /**
+     * Retourne l'heure courante de la base (et non celle du poste), sans fuseau horaire
+     * comme les colonnes date_modification et date_suppression auxquelles elle est comparee
+     */
+    public Timestamp getHorodatage() {
+        try (Connection connection = getConnection();
+             Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT CAST(SYSTIMESTAMP AS TIMESTAMP) FROM DUAL")) {
+            rs.next();
+            return rs.getTimestamp(1);
+        } catch (SQLException e) {
+            throw new DatabaseException("Erreur lors de la lecture de l'heure de la base", e);
+        }
+    }
+    
+    /**
+     * Retourne les cles (code ou CIN) des lignes de la table supprimees apres la date donnee
+     */
+    public List<Long> getClesSupprimees(String nomTable, Timestamp depuis) {
+        List<Long> cles = new ArrayList<>();
+        String sql = "SELECT cle FROM JOURNAL_SUPPRESSION WHERE nom_table = ? AND date_suppression > ?";
+        
+        try (Connection connection = getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setString(1, nomTable);
+            pstmt.setTimestamp(2, depuis);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    cles.add(rs.getLong(1));
+                }
+            }
+        } catch (SQLException e) {
+            throw new DatabaseException("Erreur lors de la lecture du journal des suppressions", e);
+        }
+        return cles;
+    }
+}
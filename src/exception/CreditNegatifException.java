@@ -1,12 +1,14 @@
 package exception;
 
+import model.Montant;
+
 /**
  * Exception lancee lorsque le credit d'un client est negatif.
  * Basee sur le TP6.
  */
 public class CreditNegatifException extends Exception {
     
-    private double credit;
+    private long credit; // en millimes
     
     public CreditNegatifException() {
         super("Le credit ne peut pas etre negatif!");
@@ -16,12 +18,12 @@ public class CreditNegatifException extends Exception {
         super(message);
     }
     
-    public CreditNegatifException(double credit) {
-        super(String.format("Credit negatif detecte: %.2f DT", credit));
+    public CreditNegatifException(long credit) {
+        super(String.format("Credit negatif detecte: %s DT", Montant.formater(credit)));
         this.credit = credit;
     }
     
-    public double getCredit() {
+    public long getCredit() {
         return credit;
     }
 }
@@ -0,0 +1,141 @@
+package model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Classe representant une ligne de l'historique des achats (table ACHAT).
+ * Un achat concerne un produit vendable (medicament ou appareil) achete
+ * par un client fidele, avec la quantite et le prix total paye.
+ */
+public class Achat {
+    
+    public static final String TYPE_MEDICAMENT = "MEDICAMENT";
+    public static final String TYPE_APPAREIL = "APPAREIL";
+    
+    private long idAchat;
+    private long cinClient;
+    private String typeVendable;
+    private long codeVendable;
+    private LocalDateTime dateAchat;
+    private long prixPaye; // en millimes
+    private int quantite;
+    
+    // ============================================
+    // CONSTRUCTEURS
+    // ============================================
+    
+    public Achat() {
+    }
+    
+    /**
+     * Constructeur pour un nouvel achat (l'identifiant est attribue a l'insertion)
+     */
+    public Achat(long cinClient, String typeVendable, long codeVendable, long prixPaye, int quantite) {
+        this.cinClient = cinClient;
+        this.typeVendable = typeVendable;
+        this.codeVendable = codeVendable;
+        this.dateAchat = LocalDateTime.now();
+        this.prixPaye = prixPaye;
+        this.quantite = quantite;
+    }
+    
+    /**
+     * Constructeur complet pour chargement depuis la base de donnees
+     */
+    public Achat(long idAchat, long cinClient, String typeVendable, long codeVendable,
+                 LocalDateTime dateAchat, long prixPaye, int quantite) {
+        this.idAchat = idAchat;
+        this.cinClient = cinClient;
+        this.typeVendable = typeVendable;
+        this.codeVendable = codeVendable;
+        this.dateAchat = dateAchat;
+        this.prixPaye = prixPaye;
+        this.quantite = quantite;
+    }
+    
+    /**
+     * Retourne le type de vendable attendu par la table ACHAT
+     */
+    public static String typeDe(Vendable vendable) {
+        if (vendable instanceof Medicament) {
+            return TYPE_MEDICAMENT;
+        }
+        if (vendable instanceof AppareilMedical) {
+            return TYPE_APPAREIL;
+        }
+        throw new IllegalArgumentException("Type de produit non supporte: " + vendable);
+    }
+    
+    // ============================================
+    // METHODE toString()
+    // ============================================
+    
+    @Override
+    public String toString() {
+        return String.format("Achat[id=%d, cin=%d, %s %d, quantite=%d, prix=%s DT, date=%s]",
+                idAchat, cinClient, typeVendable, codeVendable, quantite, Montant.formater(prixPaye), dateAchat);
+    }
+    
+    // ============================================
+    // GETTERS ET SETTERS
+    // ============================================
+    
+    public long getIdAchat() {
+        return idAchat;
+    }
+    
+    public void setIdAchat(long idAchat) {
+        this.idAchat = idAchat;
+    }
+    
+    public long getCinClient() {
+        return cinClient;
+    }
+    
+    public void setCinClient(long cinClient) {
+        this.cinClient = cinClient;
+    }
+    
+    public String getTypeVendable() {
+        return typeVendable;
+    }
+    
+    public void setTypeVendable(String typeVendable) {
+        this.typeVendable = typeVendable;
+    }
+    
+    public long getCodeVendable() {
+        return codeVendable;
+    }
+    
+    public void setCodeVendable(long codeVendable) {
+        this.codeVendable = codeVendable;
+    }
+    
+    public LocalDateTime getDateAchat() {
+        return dateAchat;
+    }
+    
+    public void setDateAchat(LocalDateTime dateAchat) {
+        this.dateAchat = dateAchat;
+    }
+    
+    /**
+     * Prix paye en millimes
+     */
+    public long getPrixPaye() {
+        return prixPaye;
+    }
+    
+    public void setPrixPaye(long prixPaye) {
+        this.prixPaye = prixPaye;
+    }
+    
+    public int getQuantite() {
+        return quantite;
+    }
+    
+    public void setQuantite(int quantite) {
+        this.quantite = quantite;
+    }
+}
@@ -1,5 +1,8 @@
 package model;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
 /**
  * Classe representant un appareil medical.
  * Implemente l'interface Vendable.
@@ -10,10 +13,20 @@ public class AppareilMedical implements Vendable {
     
     private static long compteurCode = 0;
     
+    private static final VarHandle STOCK;
+    static {
+        try {
+            STOCK = MethodHandles.lookup().findVarHandle(AppareilMedical.class, "quantiteStock", int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+    
     private long code;
     private String nom;
-    private double prix;
-    private int quantiteStock;
+    private long prix; // en millimes (voir Montant)
+    // Modifie par CAS (retirerStock) pour que plusieurs caisses puissent vendre en parallele
+    private volatile int quantiteStock;
     
     // ============================================
     // CONSTRUCTEURS
@@ -23,7 +36,7 @@ public class AppareilMedical implements Vendable {
         this.code = ++compteurCode;
     }
     
-    public AppareilMedical(String nom, double prix) {
+    public AppareilMedical(String nom, long prix) {
         this.code = ++compteurCode;
         this.nom = nom;
         this.prix = prix;
@@ -32,7 +45,7 @@ public class AppareilMedical implements Vendable {
     /**
      * Constructeur complet pour chargement depuis la base de donnees
      */
-    public AppareilMedical(long code, String nom, double prix, int quantiteStock) {
+    public AppareilMedical(long code, String nom, long prix, int quantiteStock) {
         this.code = code;
         this.nom = nom;
         this.prix = prix;
@@ -53,7 +66,7 @@ public class AppareilMedical implements Vendable {
     }
     
     @Override
-    public double getPrixVendable() {
+    public long getPrixVendable() {
         return this.prix;
     }
     
@@ -62,9 +75,9 @@ public class AppareilMedical implements Vendable {
      * La methode retourne le montant d'une tranche.
      */
     @Override
-    public double getTranche(boolean clientFidele) {
+    public long getTranche(boolean clientFidele) {
         if (clientFidele) {
-            return this.prix / 3.0; // Facilite en 3 tranches
+            return Montant.proportion(this.prix, 1, 3); // Facilite en 3 tranches
         }
         return this.prix; // Prix plein pour non-fidele
     }
@@ -75,8 +88,8 @@ public class AppareilMedical implements Vendable {
     
     @Override
     public String toString() {
-        return String.format("AppareilMedical[code=%d, nom=%s, prix=%.2f DT, stock=%d]",
-                code, nom, prix, quantiteStock);
+        return String.format("AppareilMedical[code=%d, nom=%s, prix=%s DT, stock=%d]",
+                code, nom, Montant.formater(prix), quantiteStock);
     }
     
     // ============================================
@@ -99,11 +112,14 @@ public class AppareilMedical implements Vendable {
         this.nom = nom;
     }
     
-    public double getPrix() {
+    /**
+     * Prix en millimes
+     */
+    public long getPrix() {
         return prix;
     }
     
-    public void setPrix(double prix) {
+    public void setPrix(long prix) {
         this.prix = prix;
     }
     
@@ -114,4 +130,21 @@ public class AppareilMedical implements Vendable {
     public void setQuantiteStock(int quantiteStock) {
         this.quantiteStock = quantiteStock;
     }
+    
+    @Override
+    public boolean retirerStock(int quantite) {
+        int stock;
+        do {
+            stock = quantiteStock;
+            if (stock < quantite) {
+                return false;
+            }
+        } while (!STOCK.compareAndSet(this, stock, stock - quantite));
+        return true;
+    }
+    
+    @Override
+    public void remettreStock(int quantite) {
+        STOCK.getAndAdd(this, quantite);
+    }
 }
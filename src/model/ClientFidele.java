@@ -10,8 +10,12 @@ public class ClientFidele {
     private long cin;
     private String nom;
     private String prenom;
-    private double credit;
-    private double montantTotalAchats;
+    // Montants en millimes (voir Montant)
+    private long credit;
+    private long montantTotalAchats;
+    
+    // Seuil du bonus fidelite: 100 DT d'achats
+    public static final long SEUIL_REDUCTION = 100 * Montant.MILLIMES_PAR_DINAR;
     
     // ============================================
     // CONSTRUCTEURS
@@ -31,7 +35,7 @@ public class ClientFidele {
     /**
      * Constructeur complet pour chargement depuis la base de donnees
      */
-    public ClientFidele(long cin, String nom, String prenom, double credit, double montantTotalAchats) {
+    public ClientFidele(long cin, String nom, String prenom, long credit, long montantTotalAchats) {
         this.cin = cin;
         this.nom = nom;
         this.prenom = prenom;
@@ -48,7 +52,7 @@ public class ClientFidele {
      * Si le montant total depasse 100 DT, le client aura une reduction de 15%
      * sur le prochain achat et son montant sera reinitialise.
      */
-    public void ajouterAchat(double montant) {
+    public void ajouterAchat(long montant) {
         this.montantTotalAchats += montant;
     }
     
@@ -57,7 +61,7 @@ public class ClientFidele {
      * (montant total achats >= 100 DT)
      */
     public boolean aReduction() {
-        return this.montantTotalAchats >= 100;
+        return this.montantTotalAchats >= SEUIL_REDUCTION;
     }
     
     /**
@@ -70,14 +74,14 @@ public class ClientFidele {
     /**
      * Ajoute du credit au compte du client
      */
-    public void ajouterCredit(double montant) {
+    public void ajouterCredit(long montant) {
         this.credit += montant;
     }
     
     /**
      * Deduit du credit du compte du client
      */
-    public void deduireCredit(double montant) {
+    public void deduireCredit(long montant) {
         this.credit -= montant;
     }
     
@@ -87,8 +91,8 @@ public class ClientFidele {
     
     @Override
     public String toString() {
-        return String.format("ClientFidele[cin=%d, nom=%s, prenom=%s, credit=%.2f DT, totalAchats=%.2f DT]",
-                cin, nom, prenom, credit, montantTotalAchats);
+        return String.format("ClientFidele[cin=%d, nom=%s, prenom=%s, credit=%s DT, totalAchats=%s DT]",
+                cin, nom, prenom, Montant.formater(credit), Montant.formater(montantTotalAchats));
     }
     
     /**
@@ -126,19 +130,25 @@ public class ClientFidele {
         this.prenom = prenom;
     }
     
-    public double getCredit() {
+    /**
+     * Credit en millimes
+     */
+    public long getCredit() {
         return credit;
     }
     
-    public void setCredit(double credit) {
+    public void setCredit(long credit) {
         this.credit = credit;
     }
     
-    public double getMontantTotalAchats() {
+    /**
+     * Total des achats en millimes
+     */
+    public long getMontantTotalAchats() {
         return montantTotalAchats;
     }
     
-    public void setMontantTotalAchats(double montantTotalAchats) {
+    public void setMontantTotalAchats(long montantTotalAchats) {
         this.montantTotalAchats = montantTotalAchats;
     }
 }
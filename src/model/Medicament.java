@@ -1,5 +1,7 @@
 package model;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.time.LocalDate;
 
 /**
@@ -12,14 +14,25 @@ public abstract class Medicament implements Vendable, Comparable<Medicament> {
     // Compteur statique pour generer des codes uniques
     private static long compteurCode = 0;
     
+    private static final VarHandle STOCK;
+    static {
+        try {
+            STOCK = MethodHandles.lookup().findVarHandle(Medicament.class, "quantiteStock", int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+    
     // Attributs
     private long code;
     private long numSerie;
     private String nom;
     private String genre;
-    private double prix;
+    private long prix; // en millimes (voir Montant)
     private LocalDate dateExpiration;
-    private int quantiteStock;
+    // Modifie par CAS (retirerStock) pour que plusieurs caisses puissent vendre en parallele
+    private volatile int quantiteStock;
+    private boolean remiseExpiration;
     
     // ============================================
     // CONSTRUCTEURS
@@ -44,7 +57,7 @@ public abstract class Medicament implements Vendable, Comparable<Medicament> {
     /**
      * Constructeur avec nom, genre et prix
      */
-    public Medicament(String nom, String genre, double prix) {
+    public Medicament(String nom, String genre, long prix) {
         this.code = ++compteurCode;
         this.nom = nom;
         this.genre = genre;
@@ -54,7 +67,7 @@ public abstract class Medicament implements Vendable, Comparable<Medicament> {
     /**
      * Constructeur complet
      */
-    public Medicament(long code, long numSerie, String nom, String genre, double prix, LocalDate dateExpiration) {
+    public Medicament(long code, long numSerie, String nom, String genre, long prix, LocalDate dateExpiration) {
         this.code = code;
         this.numSerie = numSerie;
         this.nom = nom;
@@ -92,7 +105,7 @@ public abstract class Medicament implements Vendable, Comparable<Medicament> {
      * Methode d'instance
      */
     public int comparePrix(Medicament m) {
-        return Double.compare(this.prix, m.getPrix());
+        return Long.compare(this.prix, m.getPrix());
     }
     
     /**
@@ -100,7 +113,7 @@ public abstract class Medicament implements Vendable, Comparable<Medicament> {
      * Methode statique
      */
     public static int comparePrix(Medicament m1, Medicament m2) {
-        return Double.compare(m1.getPrix(), m2.getPrix());
+        return Long.compare(m1.getPrix(), m2.getPrix());
     }
     
     /**
@@ -135,7 +148,7 @@ public abstract class Medicament implements Vendable, Comparable<Medicament> {
     }
     
     @Override
-    public double getPrixVendable() {
+    public long getPrixVendable() {
         return this.prix;
     }
     
@@ -147,8 +160,8 @@ public abstract class Medicament implements Vendable, Comparable<Medicament> {
     
     @Override
     public String toString() {
-        return String.format("Medicament[code=%d, nom=%s, genre=%s, prix=%.2f DT, expiration=%s]",
-                code, nom, genre, prix, dateExpiration);
+        return String.format("Medicament[code=%d, nom=%s, genre=%s, prix=%s DT, expiration=%s]",
+                code, nom, genre, Montant.formater(prix), dateExpiration);
     }
     
     // ============================================
@@ -187,11 +200,14 @@ public abstract class Medicament implements Vendable, Comparable<Medicament> {
         this.genre = genre;
     }
     
-    public double getPrix() {
+    /**
+     * Prix en millimes
+     */
+    public long getPrix() {
         return prix;
     }
     
-    public void setPrix(double prix) {
+    public void setPrix(long prix) {
         this.prix = prix;
     }
     
@@ -211,6 +227,23 @@ public abstract class Medicament implements Vendable, Comparable<Medicament> {
         this.quantiteStock = quantiteStock;
     }
     
+    @Override
+    public boolean retirerStock(int quantite) {
+        int stock;
+        do {
+            stock = quantiteStock;
+            if (stock < quantite) {
+                return false;
+            }
+        } while (!STOCK.compareAndSet(this, stock, stock - quantite));
+        return true;
+    }
+    
+    @Override
+    public void remettreStock(int quantite) {
+        STOCK.getAndAdd(this, quantite);
+    }
+    
     /**
      * Verifie si le medicament expire dans un certain nombre de mois
      */
@@ -220,10 +253,31 @@ public abstract class Medicament implements Vendable, Comparable<Medicament> {
         return dateExpiration.isBefore(dateLimite) || dateExpiration.isEqual(dateLimite);
     }
     
+    public boolean isRemiseExpiration() {
+        return remiseExpiration;
+    }
+    
+    public void setRemiseExpiration(boolean remiseExpiration) {
+        this.remiseExpiration = remiseExpiration;
+    }
+    
     /**
-     * Applique une remise sur le prix
+     * Applique une remise (en %) sur le prix, arrondie au millime
      */
-    public void appliquerRemise(double pourcentage) {
-        this.prix = this.prix * (1 - pourcentage / 100);
+    public void appliquerRemise(int pourcentage) {
+        this.prix = Montant.remise(this.prix, pourcentage);
+    }
+    
+    /**
+     * Applique la remise d'expiration une seule fois.
+     * Retourne false si elle avait deja ete appliquee.
+     */
+    public boolean appliquerRemiseExpiration(int pourcentage) {
+        if (remiseExpiration) {
+            return false;
+        }
+        appliquerRemise(pourcentage);
+        remiseExpiration = true;
+        return true;
     }
 }
@@ -25,11 +25,11 @@ public class MedicamentChimique extends Medicament {
         super(nom, genre);
     }
     
-    public MedicamentChimique(String nom, String genre, double prix) {
+    public MedicamentChimique(String nom, String genre, long prix) {
         super(nom, genre, prix);
     }
     
-    public MedicamentChimique(String nom, String genre, double prix, String constituantChimique, int ageMinimum) {
+    public MedicamentChimique(String nom, String genre, long prix, String constituantChimique, int ageMinimum) {
         super(nom, genre, prix);
         this.constituantChimique = constituantChimique;
         this.ageMinimum = ageMinimum;
@@ -38,7 +38,7 @@ public class MedicamentChimique extends Medicament {
     /**
      * Constructeur complet pour chargement depuis la base de donnees
      */
-    public MedicamentChimique(long code, long numSerie, String nom, String genre, double prix, 
+    public MedicamentChimique(long code, long numSerie, String nom, String genre, long prix, 
                               LocalDate dateExpiration, String constituantChimique, int ageMinimum) {
         super(code, numSerie, nom, genre, prix, dateExpiration);
         this.constituantChimique = constituantChimique;
@@ -53,10 +53,10 @@ public class MedicamentChimique extends Medicament {
     public String getDescription() {
         return String.format("Medicament Chimique: %s\n" +
                            "  Genre: %s\n" +
-                           "  Prix: %.2f DT\n" +
+                           "  Prix: %s DT\n" +
                            "  Constituant: %s\n" +
                            "  Age minimum: %d ans",
-                getNom(), getGenre(), getPrix(), constituantChimique, ageMinimum);
+                getNom(), getGenre(), Montant.formater(getPrix()), constituantChimique, ageMinimum);
     }
     
     @Override
@@ -68,9 +68,9 @@ public class MedicamentChimique extends Medicament {
      * Pour un client fidele, retourne le prix reduit de 20%
      */
     @Override
-    public double getTranche(boolean clientFidele) {
+    public long getTranche(boolean clientFidele) {
         if (clientFidele) {
-            return getPrix() * 0.80; // Reduction de 20%
+            return Montant.remise(getPrix(), 20); // Reduction de 20%
         }
         return getPrix();
     }
@@ -81,9 +81,9 @@ public class MedicamentChimique extends Medicament {
     
     @Override
     public String toString() {
-        return String.format("MedicamentChimique[code=%d, nom=%s, genre=%s, prix=%.2f DT, " +
+        return String.format("MedicamentChimique[code=%d, nom=%s, genre=%s, prix=%s DT, " +
                            "constituant=%s, ageMin=%d, expiration=%s]",
-                getCode(), getNom(), getGenre(), getPrix(), 
+                getCode(), getNom(), getGenre(), Montant.formater(getPrix()), 
                 constituantChimique, ageMinimum, getDateExpiration());
     }
     
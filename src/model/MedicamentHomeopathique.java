@@ -23,11 +23,11 @@ public class MedicamentHomeopathique extends Medicament {
         super(nom, genre);
     }
     
-    public MedicamentHomeopathique(String nom, String genre, double prix) {
+    public MedicamentHomeopathique(String nom, String genre, long prix) {
         super(nom, genre, prix);
     }
     
-    public MedicamentHomeopathique(String nom, String genre, double prix, String planteUtilisee) {
+    public MedicamentHomeopathique(String nom, String genre, long prix, String planteUtilisee) {
         super(nom, genre, prix);
         this.planteUtilisee = planteUtilisee;
     }
@@ -35,7 +35,7 @@ public class MedicamentHomeopathique extends Medicament {
     /**
      * Constructeur complet pour chargement depuis la base de donnees
      */
-    public MedicamentHomeopathique(long code, long numSerie, String nom, String genre, double prix,
+    public MedicamentHomeopathique(long code, long numSerie, String nom, String genre, long prix,
                                    LocalDate dateExpiration, String planteUtilisee) {
         super(code, numSerie, nom, genre, prix, dateExpiration);
         this.planteUtilisee = planteUtilisee;
@@ -49,9 +49,9 @@ public class MedicamentHomeopathique extends Medicament {
     public String getDescription() {
         return String.format("Medicament Homeopathique: %s\n" +
                            "  Genre: %s\n" +
-                           "  Prix: %.2f DT\n" +
+                           "  Prix: %s DT\n" +
                            "  Plante utilisee: %s",
-                getNom(), getGenre(), getPrix(), planteUtilisee);
+                getNom(), getGenre(), Montant.formater(getPrix()), planteUtilisee);
     }
     
     @Override
@@ -63,9 +63,9 @@ public class MedicamentHomeopathique extends Medicament {
      * Pour un client fidele, retourne le prix reduit de 10%
      */
     @Override
-    public double getTranche(boolean clientFidele) {
+    public long getTranche(boolean clientFidele) {
         if (clientFidele) {
-            return getPrix() * 0.90; // Reduction de 10%
+            return Montant.remise(getPrix(), 10); // Reduction de 10%
         }
         return getPrix();
     }
@@ -76,9 +76,9 @@ public class MedicamentHomeopathique extends Medicament {
     
     @Override
     public String toString() {
-        return String.format("MedicamentHomeopathique[code=%d, nom=%s, genre=%s, prix=%.2f DT, " +
+        return String.format("MedicamentHomeopathique[code=%d, nom=%s, genre=%s, prix=%s DT, " +
                            "plante=%s, expiration=%s]",
-                getCode(), getNom(), getGenre(), getPrix(), planteUtilisee, getDateExpiration());
+                getCode(), getNom(), getGenre(), Montant.formater(getPrix()), planteUtilisee, getDateExpiration());
     }
     
     // ============================================
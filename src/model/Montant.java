@@ -0,0 +1,111 @@
+package model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Montants en virgule fixe: un montant est un long exprime en millimes (1 DT = 1000 millimes).
+ *
+ * Les prix, credits et totaux d'achats sont des long plutot que des double: les sommes sont
+ * exactes (pas de derive d'arrondi sur les seuils de fidelite ni sur les agregats du catalogue)
+ * et les calculs de prix n'allouent aucun objet. Les taux (remises, tranches) sont appliques
+ * par fraction entiere avec un arrondi au millime le plus proche (demi vers le haut).
+ * En base, les montants sont des NUMBER(12,3) lus et ecrits en BigDecimal.
+ */
+public final class Montant {
+    
+    public static final long MILLIMES_PAR_DINAR = 1_000;
+    
+    // Nombre de decimales d'un montant en dinars (colonnes NUMBER(12,3))
+    public static final int ECHELLE = 3;
+    
+    private Montant() {
+    }
+    
+    // ============================================
+    // CONVERSIONS
+    // ============================================
+    
+    /**
+     * Montant en millimes d'une valeur en dinars (arrondi au millime le plus proche)
+     */
+    public static long deDinars(double dinars) {
+        return Math.round(dinars * MILLIMES_PAR_DINAR);
+    }
+    
+    /**
+     * Valeur en dinars, pour l'affichage et les moyennes
+     */
+    public static double enDinars(long millimes) {
+        return (double) millimes / MILLIMES_PAR_DINAR;
+    }
+    
+    /**
+     * Montant lu en base (null = 0)
+     */
+    public static long deDecimal(BigDecimal dinars) {
+        if (dinars == null) {
+            return 0;
+        }
+        return dinars.setScale(ECHELLE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+    
+    /**
+     * Montant a ecrire en base (setBigDecimal)
+     */
+    public static BigDecimal enDecimal(long millimes) {
+        return BigDecimal.valueOf(millimes, ECHELLE);
+    }
+    
+    /**
+     * Lit un montant saisi en dinars ("12.5", "12,500")
+     *
+     * @throws NumberFormatException si le texte n'est pas un nombre
+     */
+    public static long lire(String dinars) {
+        return deDecimal(new BigDecimal(dinars.trim().replace(',', '.')));
+    }
+    
+    /**
+     * Montant en dinars avec ses trois decimales ("12.500")
+     */
+    public static String formater(long millimes) {
+        String signe = millimes < 0 ? "-" : "";
+        long absolu = Math.abs(millimes);
+        return String.format("%s%d.%03d", signe, absolu / MILLIMES_PAR_DINAR, absolu % MILLIMES_PAR_DINAR);
+    }
+    
+    // ============================================
+    // OPERATIONS
+    // ============================================
+    
+    /**
+     * Prix d'une ligne: montant unitaire x quantite
+     */
+    public static long multiplier(long millimes, int quantite) {
+        return Math.multiplyExact(millimes, (long) quantite);
+    }
+    
+    /**
+     * montant x numerateur / denominateur, arrondi au millime le plus proche
+     */
+    public static long proportion(long millimes, long numerateur, long denominateur) {
+        return diviserArrondi(Math.multiplyExact(millimes, numerateur), denominateur);
+    }
+    
+    /**
+     * Montant apres une remise de 'pourcentage' %
+     */
+    public static long remise(long millimes, int pourcentage) {
+        return proportion(millimes, 100 - pourcentage, 100);
+    }
+    
+    private static long diviserArrondi(long dividende, long diviseur) {
+        long quotient = dividende / diviseur;
+        long reste = dividende % diviseur;
+        if (Math.abs(reste) * 2 >= Math.abs(diviseur)) {
+            quotient += (dividende < 0) == (diviseur < 0) ? 1 : -1;
+        }
+        return quotient;
+    }
+}
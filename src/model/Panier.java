@@ -0,0 +1,117 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Classe representant le panier d'un client lors d'une vente.
+ * Contient des lignes (produit vendable + quantite) validees en une seule fois
+ * par Pharmacie.validerPanier().
+ */
+public class Panier {
+    
+    private final List<Ligne> lignes;
+    
+    public Panier() {
+        this.lignes = new ArrayList<>();
+    }
+    
+    // ============================================
+    // METHODES
+    // ============================================
+    
+    /**
+     * Ajoute une quantite d'un produit au panier.
+     * Si le produit est deja present, la quantite de sa ligne est augmentee.
+     */
+    public void ajouter(Vendable vendable, int quantite) {
+        if (quantite <= 0) {
+            throw new IllegalArgumentException("La quantite doit etre positive");
+        }
+        for (Ligne ligne : lignes) {
+            if (ligne.vendable == vendable) {
+                ligne.quantite += quantite;
+                return;
+            }
+        }
+        lignes.add(new Ligne(vendable, quantite));
+    }
+    
+    /**
+     * Retire completement un produit du panier
+     */
+    public boolean retirer(Vendable vendable) {
+        return lignes.removeIf(ligne -> ligne.vendable == vendable);
+    }
+    
+    /**
+     * Vide le panier
+     */
+    public void vider() {
+        lignes.clear();
+    }
+    
+    public boolean estVide() {
+        return lignes.isEmpty();
+    }
+    
+    /**
+     * Retourne le nombre total d'articles (somme des quantites)
+     */
+    public int nombreArticles() {
+        return lignes.stream().mapToInt(Ligne::getQuantite).sum();
+    }
+    
+    /**
+     * Total estime du panier pour un client fidele (hors bonus fidelite de 15%), en millimes
+     */
+    public long totalEstime() {
+        long total = 0;
+        for (Ligne l : lignes) {
+            total += Montant.multiplier(l.getVendable().getTranche(true), l.getQuantite());
+        }
+        return total;
+    }
+    
+    public List<Ligne> getLignes() {
+        return Collections.unmodifiableList(lignes);
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("Panier[lignes=%d, articles=%d, total=%s DT]",
+                lignes.size(), nombreArticles(), Montant.formater(totalEstime()));
+    }
+    
+    // ============================================
+    // LIGNE DU PANIER
+    // ============================================
+    
+    /**
+     * Une ligne du panier: un produit et sa quantite
+     */
+    public static class Ligne {
+        
+        private final Vendable vendable;
+        private int quantite;
+        
+        public Ligne(Vendable vendable, int quantite) {
+            this.vendable = vendable;
+            this.quantite = quantite;
+        }
+        
+        public Vendable getVendable() {
+            return vendable;
+        }
+        
+        public int getQuantite() {
+            return quantite;
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("%s x%d", vendable.getNomVendable(), quantite);
+        }
+    }
+}
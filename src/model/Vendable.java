@@ -12,9 +12,9 @@ public interface Vendable {
     String getNomVendable();
     
     /**
-     * Retourne le prix du produit vendable
+     * Retourne le prix du produit vendable, en millimes (voir Montant)
      */
-    double getPrixVendable();
+    long getPrixVendable();
     
     /**
      * Retourne le prix selon le type de client et le type de produit:
@@ -23,7 +23,25 @@ public interface Vendable {
      * - Appareil medical: prix divise en 3 tranches (facilite de paiement)
      * 
      * @param clientFidele true si le client est fidele
-     * @return le prix ou la tranche a payer
+     * @return le prix ou la tranche a payer, en millimes
      */
-    double getTranche(boolean clientFidele);
+    long getTranche(boolean clientFidele);
+    
+    /**
+     * Retourne la quantite en stock
+     */
+    int getQuantiteStock();
+    
+    /**
+     * Retire atomiquement 'quantite' unites du stock si elles sont disponibles.
+     * Deux caisses qui vendent la derniere boite en meme temps: une seule reussit.
+     * 
+     * @return false si le stock est insuffisant (le stock n'est pas modifie)
+     */
+    boolean retirerStock(int quantite);
+    
+    /**
+     * Remet atomiquement 'quantite' unites en stock (vente annulee, reapprovisionnement)
+     */
+    void remettreStock(int quantite);
 }
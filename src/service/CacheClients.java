@@ -0,0 +1,230 @@
+package service;
+
+import dao.ClientFideleDAO;
+import model.ClientFidele;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache LRU borne des clients lus en base par CIN (getByCin, existe), en lecture traversante.
+ *
+ * Les clients absents de l'index (pas encore charges) sont lus une fois puis servis depuis
+ * la memoire: un client qui revient n'entraine plus de requete. Les CIN inconnus sont
+ * aussi retenus (cache negatif). Chaque entree expire apres 'dureeVieMs' (modifications
+ * faites par d'autres instances), et Pharmacie invalide le CIN qu'elle ajoute, supprime
+ * ou recharge. Au-dela de 'capacite' entrees, la moins recemment utilisee est retiree.
+ * Le client retourne est l'instance gardee en cache: une vente qui le modifie met le cache
+ * a jour. Les valeurs pas encore ecrites par l'ecriture differee sont appliquees au chargement.
+ */
+public class CacheClients {
+    
+    private final ClientFideleDAO clientDAO;
+    private final EcritureDiffereeClients ecritureClients;
+    private final int capacite;
+    private final long dureeVieMs;
+    
+    // Ordre d'acces (LRU), protege par le moniteur de l'objet
+    private final LinkedHashMap<Long, Entree> entrees;
+    
+    // Incrementee a chaque invalidation: une lecture commencee avant n'est pas mise en cache
+    private long generation;
+    
+    // Statistiques
+    private final AtomicLong nombreSucces = new AtomicLong();
+    private final AtomicLong nombreSuccesNegatifs = new AtomicLong();
+    private final AtomicLong nombreEchecs = new AtomicLong();
+    private final AtomicLong nombreExpirations = new AtomicLong();
+    private final AtomicLong nombreEvictions = new AtomicLong();
+    
+    /**
+     * Client lu (null si seule l'existence est connue) ou CIN inconnu (present = false)
+     */
+    private static final class Entree {
+        private final ClientFidele client;
+        private final boolean present;
+        private final long expiration;
+        
+        private Entree(ClientFidele client, boolean present, long expiration) {
+            this.client = client;
+            this.present = present;
+            this.expiration = expiration;
+        }
+    }
+    
+    // ============================================
+    // CONSTRUCTEUR
+    // ============================================
+    
+    /**
+     * @param ecritureClients ecriture differee dont les valeurs en attente sont appliquees (ou null)
+     * @param capacite nombre maximal de CIN gardes (0 desactive le cache)
+     * @param dureeVieMs duree de validite d'une entree
+     */
+    public CacheClients(ClientFideleDAO clientDAO, EcritureDiffereeClients ecritureClients,
+                        int capacite, long dureeVieMs) {
+        this.clientDAO = clientDAO;
+        this.ecritureClients = ecritureClients;
+        this.capacite = capacite;
+        this.dureeVieMs = dureeVieMs;
+        this.entrees = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entree> plusAncienne) {
+                if (size() > CacheClients.this.capacite) {
+                    nombreEvictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+    
+    // ============================================
+    // LECTURE
+    // ============================================
+    
+    /**
+     * Client de ce CIN, lu en base au premier appel puis garde en cache (null si inconnu)
+     */
+    public ClientFidele getByCin(long cin) {
+        long generationLecture;
+        synchronized (this) {
+            Entree e = entreeValide(cin);
+            if (e != null && (e.client != null || !e.present)) {
+                compterSucces(e);
+                return e.client;
+            }
+            generationLecture = generation;
+        }
+        nombreEchecs.incrementAndGet();
+        
+        ClientFidele lu = clientDAO.getByCin(cin);
+        if (lu != null && ecritureClients != null) {
+            ecritureClients.appliquerEnAttente(lu);
+        }
+        synchronized (this) {
+            if (generationLecture == generation) {
+                // Lu en parallele par un autre thread: garder une seule instance
+                Entree e = entreeValide(cin);
+                if (e != null && e.client != null) {
+                    return e.client;
+                }
+                entrees.put(cin, new Entree(lu, lu != null, expiration()));
+            }
+        }
+        return lu;
+    }
+    
+    /**
+     * Indique si un client de ce CIN existe (requete SELECT 1 si le CIN n'est pas en cache)
+     */
+    public boolean existe(long cin) {
+        long generationLecture;
+        synchronized (this) {
+            Entree e = entreeValide(cin);
+            if (e != null) {
+                compterSucces(e);
+                return e.present;
+            }
+            generationLecture = generation;
+        }
+        nombreEchecs.incrementAndGet();
+        
+        boolean present = clientDAO.existe(cin);
+        synchronized (this) {
+            if (generationLecture == generation && !entrees.containsKey(cin)) {
+                entrees.put(cin, new Entree(null, present, expiration()));
+            }
+        }
+        return present;
+    }
+    
+    private Entree entreeValide(long cin) {
+        Entree e = entrees.get(cin);
+        if (e != null && System.currentTimeMillis() >= e.expiration) {
+            entrees.remove(cin);
+            nombreExpirations.incrementAndGet();
+            return null;
+        }
+        return e;
+    }
+    
+    private void compterSucces(Entree e) {
+        nombreSucces.incrementAndGet();
+        if (!e.present) {
+            nombreSuccesNegatifs.incrementAndGet();
+        }
+    }
+    
+    private long expiration() {
+        return System.currentTimeMillis() + dureeVieMs;
+    }
+    
+    // ============================================
+    // INVALIDATION
+    // ============================================
+    
+    /**
+     * Oublie ce CIN (client ajoute, modifie, supprime ou recharge)
+     */
+    public synchronized void invalider(long cin) {
+        entrees.remove(cin);
+        generation++;
+    }
+    
+    /**
+     * Oublie tous les clients (rechargement complet)
+     */
+    public synchronized void vider() {
+        entrees.clear();
+        generation++;
+    }
+    
+    // ============================================
+    // STATISTIQUES
+    // ============================================
+    
+    public synchronized int getTaille() {
+        return entrees.size();
+    }
+    
+    public long getNombreSucces() {
+        return nombreSucces.get();
+    }
+    
+    /**
+     * Succes sur un CIN inconnu (compris dans getNombreSucces)
+     */
+    public long getNombreSuccesNegatifs() {
+        return nombreSuccesNegatifs.get();
+    }
+    
+    public long getNombreEchecs() {
+        return nombreEchecs.get();
+    }
+    
+    public long getNombreExpirations() {
+        return nombreExpirations.get();
+    }
+    
+    public long getNombreEvictions() {
+        return nombreEvictions.get();
+    }
+    
+    /**
+     * Part des lectures servies sans requete (0 a 1)
+     */
+    public double getTauxSucces() {
+        long succes = getNombreSucces();
+        long total = succes + getNombreEchecs();
+        return total == 0 ? 0 : (double) succes / total;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("CacheClients[taille=%d/%d, tauxSucces=%.1f%%, succes=%d (negatifs=%d), echecs=%d, expirations=%d, evictions=%d]",
+                getTaille(), capacite, getTauxSucces() * 100, getNombreSucces(), getNombreSuccesNegatifs(),
+                getNombreEchecs(), getNombreExpirations(), getNombreEvictions());
+    }
+}
@@ -0,0 +1,184 @@
+package service;
+
+import dao.ExecuteurDAO;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Chargement (ou rafraichissement) asynchrone de la pharmacie.
+ *
+ * Les requetes s'executent sur un thread virtuel (ExecuteurDAO); chaque table est parcourue
+ * sur un curseur et transmise au thread de l'interface au fil de la lecture, par lots de
+ * TAILLE_LOT lignes, pour que la fenetre reste fluide et que les tables se remplissent
+ * pendant le chargement sans qu'une table entiere soit d'abord copiee en memoire.
+ * Les ecouteurs recoivent la progression apres chaque lot, sur le thread de l'interface.
+ */
+public class ChargeurDonnees {
+    
+    public static final String ETAPE_MEDICAMENTS = "Medicaments";
+    public static final String ETAPE_CLIENTS = "Clients";
+    public static final String ETAPE_APPAREILS = "Appareils";
+    public static final String ETAPE_TERMINE = "Termine";
+    
+    private static final int TAILLE_LOT = 2_000;
+    
+    private final Pharmacie pharmacie;
+    private final Executor executeurInterface;
+    private final List<EcouteurChargement> ecouteurs = new CopyOnWriteArrayList<>();
+    
+    private CompletableFuture<Void> chargementEnCours;
+    
+    /**
+     * @param executeurInterface thread qui possede l'etat de la pharmacie (Platform::runLater)
+     */
+    public ChargeurDonnees(Pharmacie pharmacie, Executor executeurInterface) {
+        this.pharmacie = pharmacie;
+        this.executeurInterface = executeurInterface;
+    }
+    
+    public void ajouterEcouteur(EcouteurChargement ecouteur) {
+        ecouteurs.add(ecouteur);
+    }
+    
+    public void retirerEcouteur(EcouteurChargement ecouteur) {
+        ecouteurs.remove(ecouteur);
+    }
+    
+    /**
+     * Lance un rafraichissement (chargement complet la premiere fois).
+     * Si un chargement est deja en cours, retourne celui-ci.
+     * Le resultat se termine sur le thread de l'interface.
+     */
+    public synchronized CompletableFuture<Void> charger() {
+        if (chargementEnCours != null && !chargementEnCours.isDone()) {
+            return chargementEnCours;
+        }
+        CompletableFuture<Void> termine = new CompletableFuture<>();
+        chargementEnCours = termine;
+        
+        // Une seule operation DAO pour tout le chargement: un seul acces concurrent a la base
+        ExecuteurDAO.getInstance().soumettre(() -> {
+            Pharmacie.Changements changements = pharmacie.ouvrirChangements();
+            int[] lignes = {0};
+            try {
+                executeurInterface.execute(() -> pharmacie.commencerChangements(changements));
+                publier(ETAPE_MEDICAMENTS, pharmacie.parcourirMedicaments(changements),
+                        lot -> pharmacie.integrerMedicaments(changements, lot), lignes);
+                publier(ETAPE_CLIENTS, pharmacie.parcourirClients(changements), pharmacie::integrerClients, lignes);
+                publier(ETAPE_APPAREILS, pharmacie.parcourirAppareils(changements),
+                        lot -> pharmacie.integrerAppareils(changements, lot), lignes);
+                pharmacie.lireSuppressions(changements);
+            } finally {
+                pharmacie.terminerLecture(changements);
+            }
+            
+            int total = lignes[0];
+            executeurInterface.execute(() -> {
+                pharmacie.terminerChangements(changements);
+                notifier(new Progression(ETAPE_TERMINE, total, true));
+                termine.complete(null);
+            });
+        }).exceptionally(e -> {
+            executeurInterface.execute(() -> termine.completeExceptionally(e));
+            return null;
+        });
+        return termine;
+    }
+    
+    public synchronized boolean isEnCours() {
+        return chargementEnCours != null && !chargementEnCours.isDone();
+    }
+    
+    /**
+     * Confie une table au thread de l'interface, lot par lot, pendant sa lecture.
+     * L'ordre des lots est conserve par l'executeur de l'interface.
+     */
+    private <T> void publier(String etape, Stream<T> lues, Consumer<List<T>> integrer, int[] lignes) {
+        try (lues) {
+            Iterator<T> it = lues.iterator();
+            List<T> lot = new ArrayList<>(TAILLE_LOT);
+            while (it.hasNext()) {
+                lot.add(it.next());
+                if (lot.size() == TAILLE_LOT) {
+                    envoyer(etape, lot, integrer, lignes, false);
+                    lot = new ArrayList<>(TAILLE_LOT);
+                }
+            }
+            envoyer(etape, lot, integrer, lignes, true);
+        }
+    }
+    
+    private <T> void envoyer(String etape, List<T> lot, Consumer<List<T>> integrer, int[] lignes, boolean dernier) {
+        lignes[0] += lot.size();
+        Progression progression = new Progression(etape, lignes[0], dernier);
+        executeurInterface.execute(() -> {
+            if (!lot.isEmpty()) {
+                integrer.accept(lot);
+            }
+            notifier(progression);
+        });
+    }
+    
+    private void notifier(Progression progression) {
+        for (EcouteurChargement ecouteur : ecouteurs) {
+            ecouteur.progression(progression);
+        }
+    }
+    
+    // ============================================
+    // ECOUTEUR ET PROGRESSION
+    // ============================================
+    
+    /**
+     * Recoit la progression du chargement, sur le thread de l'interface
+     */
+    @FunctionalInterface
+    public interface EcouteurChargement {
+        void progression(Progression progression);
+    }
+    
+    /**
+     * Etape en cours, nombre de lignes deja integrees et fin de l'etape
+     */
+    public static class Progression {
+        
+        private final String etape;
+        private final int lignesChargees;
+        private final boolean etapeTerminee;
+        
+        Progression(String etape, int lignesChargees, boolean etapeTerminee) {
+            this.etape = etape;
+            this.lignesChargees = lignesChargees;
+            this.etapeTerminee = etapeTerminee;
+        }
+        
+        public String getEtape() {
+            return etape;
+        }
+        
+        public int getLignesChargees() {
+            return lignesChargees;
+        }
+        
+        public boolean isEtapeTerminee() {
+            return etapeTerminee;
+        }
+        
+        public boolean isTermine() {
+            return ETAPE_TERMINE.equals(etape);
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("Progression[%s, lignes=%d%s]", etape, lignesChargees,
+                    etapeTerminee ? ", terminee" : "");
+        }
+    }
+}
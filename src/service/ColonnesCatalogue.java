@@ -0,0 +1,412 @@
+package service;
+
+import model.Medicament;
+import util.Dictionnaire;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Copie en colonnes (tableaux primitifs) des medicaments du catalogue, pour les
+ * analyses en lecture seule: codes, prix en millimes, stock, expiration en jours
+ * depuis l'epoque, genre et type encodes par dictionnaire, initiale du nom.
+ *
+ * Les colonnes sont maintenues a chaque ajout, suppression ou modification (une ligne
+ * par medicament, dans l'ordre d'ajout, les lignes supprimees etant compactees plus tard).
+ * instantane() en publie une copie immuable, reutilisee tant que le catalogue ne change
+ * pas: un parcours lit quelques tableaux contigus au lieu de suivre un pointeur par
+ * medicament, sans allouer. Le stock change a chaque vente sans passer par l'index:
+ * stocksModifies() marque seulement la colonne, relue a la prochaine publication.
+ */
+public class ColonnesCatalogue {
+    
+    // Expiration des medicaments sans date: apres toutes les dates
+    static final int SANS_EXPIRATION = Integer.MAX_VALUE;
+    
+    private static final int CAPACITE_INITIALE = 1024;
+    
+    // Lignes (ajout, suppression = null) et colonnes maintenues
+    private Medicament[] medicaments = new Medicament[CAPACITE_INITIALE];
+    private long[] codes = new long[CAPACITE_INITIALE];
+    private long[] prix = new long[CAPACITE_INITIALE];
+    private int[] expirations = new int[CAPACITE_INITIALE];
+    private int[] genres = new int[CAPACITE_INITIALE];
+    private int[] types = new int[CAPACITE_INITIALE];
+    private char[] initiales = new char[CAPACITE_INITIALE];
+    private int lignes;
+    private int supprimees;
+    
+    // Ligne de chaque medicament
+    private final Map<Medicament, Integer> lignesParMedicament = new IdentityHashMap<>();
+    
+    // Dictionnaires (cle normalisee -> identifiant), libelle du premier medicament vu
+    private final Map<String, Integer> idsGenres = new HashMap<>();
+    private final List<String> libellesGenres = new ArrayList<>();
+    private final Map<String, Integer> idsTypes = new HashMap<>();
+    private final List<String> libellesTypes = new ArrayList<>();
+    
+    // Derniere copie publiee, et ce qui a change depuis
+    private Instantane dernier;
+    private boolean modifie = true;
+    private volatile boolean stocksModifies;
+    
+    // ============================================
+    // MISE A JOUR
+    // ============================================
+    
+    public void ajouter(Medicament m) {
+        if (lignesParMedicament.containsKey(m)) {
+            mettreAJour(m);
+            return;
+        }
+        if (lignes == medicaments.length) {
+            agrandir();
+        }
+        lignesParMedicament.put(m, lignes);
+        ecrire(lignes, m);
+        lignes++;
+        modifie = true;
+    }
+    
+    public void retirer(Medicament m) {
+        Integer ligne = lignesParMedicament.remove(m);
+        if (ligne == null) {
+            return;
+        }
+        medicaments[ligne] = null;
+        supprimees++;
+        modifie = true;
+        if (supprimees > lignes / 2) {
+            compacter();
+        }
+    }
+    
+    /**
+     * Reecrit la ligne d'un medicament modifie (prix, genre, expiration...) sans changer sa place
+     */
+    public void mettreAJour(Medicament m) {
+        Integer ligne = lignesParMedicament.get(m);
+        if (ligne == null) {
+            ajouter(m);
+            return;
+        }
+        ecrire(ligne, m);
+        modifie = true;
+    }
+    
+    /**
+     * Le stock d'un ou plusieurs medicaments a change (vente): relu a la prochaine publication.
+     * Peut etre appele par plusieurs caisses en parallele.
+     */
+    public void stocksModifies() {
+        stocksModifies = true;
+    }
+    
+    public void vider() {
+        Arrays.fill(medicaments, 0, lignes, null);
+        lignes = 0;
+        supprimees = 0;
+        lignesParMedicament.clear();
+        idsGenres.clear();
+        libellesGenres.clear();
+        idsTypes.clear();
+        libellesTypes.clear();
+        dernier = null;
+        modifie = true;
+    }
+    
+    // ============================================
+    // PUBLICATION
+    // ============================================
+    
+    /**
+     * Copie immuable des colonnes. Si seul le stock a change depuis la derniere copie,
+     * les autres colonnes sont partagees et seul le stock est relu.
+     */
+    public synchronized Instantane instantane() {
+        if (!modifie && dernier != null) {
+            if (stocksModifies) {
+                stocksModifies = false;
+                dernier = dernier.avecStocks(lireStocks(dernier.medicaments));
+            }
+            return dernier;
+        }
+        stocksModifies = false;
+        int n = lignes - supprimees;
+        Medicament[] m = new Medicament[n];
+        long[] c = new long[n];
+        long[] p = new long[n];
+        int[] e = new int[n];
+        int[] g = new int[n];
+        int[] t = new int[n];
+        char[] i = new char[n];
+        int j = 0;
+        for (int ligne = 0; ligne < lignes; ligne++) {
+            if (medicaments[ligne] == null) {
+                continue;
+            }
+            m[j] = medicaments[ligne];
+            c[j] = codes[ligne];
+            p[j] = prix[ligne];
+            e[j] = expirations[ligne];
+            g[j] = genres[ligne];
+            t[j] = types[ligne];
+            i[j] = initiales[ligne];
+            j++;
+        }
+        dernier = new Instantane(m, c, p, lireStocks(m), e, g, t, i,
+                libellesGenres.toArray(new String[0]), new HashMap<>(idsTypes));
+        modifie = false;
+        return dernier;
+    }
+    
+    private static int[] lireStocks(Medicament[] medicaments) {
+        int[] stocks = new int[medicaments.length];
+        for (int i = 0; i < medicaments.length; i++) {
+            stocks[i] = medicaments[i].getQuantiteStock();
+        }
+        return stocks;
+    }
+    
+    // ============================================
+    // Methodes utilitaires
+    // ============================================
+    
+    private void ecrire(int ligne, Medicament m) {
+        medicaments[ligne] = m;
+        codes[ligne] = m.getCode();
+        prix[ligne] = m.getPrix();
+        LocalDate expiration = m.getDateExpiration();
+        expirations[ligne] = expiration == null ? SANS_EXPIRATION : (int) expiration.toEpochDay();
+        genres[ligne] = identifiant(idsGenres, libellesGenres, Dictionnaire.GENRES.cle(m.getGenre()), m.getGenre());
+        types[ligne] = identifiant(idsTypes, libellesTypes, Dictionnaire.TYPES.cle(m.getTypeMedicament()),
+                m.getTypeMedicament());
+        String nom = m.getNom();
+        initiales[ligne] = nom == null || nom.isEmpty() ? 0 : Character.toLowerCase(nom.charAt(0));
+    }
+    
+    private static int identifiant(Map<String, Integer> ids, List<String> libelles, String cle, String libelle) {
+        Integer id = ids.get(cle);
+        if (id == null) {
+            id = libelles.size();
+            ids.put(cle, id);
+            libelles.add(libelle);
+        }
+        return id;
+    }
+    
+    private void agrandir() {
+        int capacite = medicaments.length * 2;
+        medicaments = Arrays.copyOf(medicaments, capacite);
+        codes = Arrays.copyOf(codes, capacite);
+        prix = Arrays.copyOf(prix, capacite);
+        expirations = Arrays.copyOf(expirations, capacite);
+        genres = Arrays.copyOf(genres, capacite);
+        types = Arrays.copyOf(types, capacite);
+        initiales = Arrays.copyOf(initiales, capacite);
+    }
+    
+    /**
+     * Supprime les lignes vides en gardant l'ordre des autres
+     */
+    private void compacter() {
+        int j = 0;
+        for (int ligne = 0; ligne < lignes; ligne++) {
+            Medicament m = medicaments[ligne];
+            if (m == null) {
+                continue;
+            }
+            if (j != ligne) {
+                medicaments[j] = m;
+                codes[j] = codes[ligne];
+                prix[j] = prix[ligne];
+                expirations[j] = expirations[ligne];
+                genres[j] = genres[ligne];
+                types[j] = types[ligne];
+                initiales[j] = initiales[ligne];
+                lignesParMedicament.put(m, j);
+            }
+            j++;
+        }
+        Arrays.fill(medicaments, j, lignes, null);
+        lignes = j;
+        supprimees = 0;
+    }
+    
+    // ============================================
+    // COPIE IMMUABLE
+    // ============================================
+    
+    /**
+     * Colonnes du catalogue a un instant donne. Les medicaments retournes sont les objets
+     * du catalogue, dans l'ordre de la liste des medicaments.
+     */
+    public static final class Instantane {
+        
+        private final Medicament[] medicaments;
+        private final long[] codes;
+        private final long[] prix;
+        private final int[] stocks;
+        private final int[] expirations;
+        private final int[] genres;
+        private final int[] types;
+        private final char[] initiales;
+        private final String[] libellesGenres;
+        private final Map<String, Integer> idsTypes;
+        
+        private Instantane(Medicament[] medicaments, long[] codes, long[] prix, int[] stocks,
+                           int[] expirations, int[] genres, int[] types, char[] initiales,
+                           String[] libellesGenres, Map<String, Integer> idsTypes) {
+            this.medicaments = medicaments;
+            this.codes = codes;
+            this.prix = prix;
+            this.stocks = stocks;
+            this.expirations = expirations;
+            this.genres = genres;
+            this.types = types;
+            this.initiales = initiales;
+            this.libellesGenres = libellesGenres;
+            this.idsTypes = idsTypes;
+        }
+        
+        private Instantane avecStocks(int[] nouveauxStocks) {
+            return new Instantane(medicaments, codes, prix, nouveauxStocks, expirations, genres, types,
+                    initiales, libellesGenres, idsTypes);
+        }
+        
+        public int taille() {
+            return medicaments.length;
+        }
+        
+        public long getCode(int ligne) {
+            return codes[ligne];
+        }
+        
+        public long getPrix(int ligne) {
+            return prix[ligne];
+        }
+        
+        public int getStock(int ligne) {
+            return stocks[ligne];
+        }
+        
+        public Medicament getMedicament(int ligne) {
+            return medicaments[ligne];
+        }
+        
+        /**
+         * Nombre de medicaments dont le nom commence par cette lettre (sans tenir compte
+         * de la casse) et dont le prix depasse prixMin (en millimes)
+         */
+        public long compterParInitialeEtPrixSuperieur(char initiale, long prixMin) {
+            char lettre = Character.toLowerCase(initiale);
+            long nombre = 0;
+            for (int i = 0; i < initiales.length; i++) {
+                if (initiales[i] == lettre && prix[i] > prixMin) {
+                    nombre++;
+                }
+            }
+            return nombre;
+        }
+        
+        /**
+         * Medicaments d'un type (CHIMIQUE, HOMEOPATHIQUE), dans l'ordre du catalogue
+         */
+        public <T extends Medicament> List<T> filtrerParType(String type, Class<T> classe) {
+            Integer id = idsTypes.get(IndexCatalogue.cle(type));
+            if (id == null) {
+                return new ArrayList<>();
+            }
+            List<T> resultats = new ArrayList<>();
+            for (int i = 0; i < types.length; i++) {
+                if (types[i] == id) {
+                    resultats.add(classe.cast(medicaments[i]));
+                }
+            }
+            return resultats;
+        }
+        
+        /**
+         * Medicaments tries par prix croissant (a prix egal, dans l'ordre du catalogue).
+         * Prix et numero de ligne sont ranges dans un meme long: le tri porte sur un
+         * tableau primitif, sans comparateur.
+         */
+        public List<Medicament> trierParPrix() {
+            int n = prix.length;
+            int bitsLigne = 32 - Integer.numberOfLeadingZeros(Math.max(n - 1, 1));
+            long prixMax = 0;
+            boolean positifs = true;
+            for (long p : prix) {
+                prixMax = Math.max(prixMax, p);
+                positifs &= p >= 0;
+            }
+            List<Medicament> resultats = new ArrayList<>(n);
+            if (!positifs || prixMax >= 1L << (63 - bitsLigne)) {
+                // Prix hors de la plage du tri compact: tri des lignes avec un comparateur
+                Integer[] ordre = new Integer[n];
+                for (int i = 0; i < n; i++) {
+                    ordre[i] = i;
+                }
+                Arrays.sort(ordre, Comparator.comparingLong(i -> prix[i]));
+                for (Integer i : ordre) {
+                    resultats.add(medicaments[i]);
+                }
+                return resultats;
+            }
+            long[] cles = new long[n];
+            for (int i = 0; i < n; i++) {
+                cles[i] = prix[i] << bitsLigne | i;
+            }
+            Arrays.sort(cles);
+            long masque = (1L << bitsLigne) - 1;
+            for (long cle : cles) {
+                resultats.add(medicaments[(int) (cle & masque)]);
+            }
+            return resultats;
+        }
+        
+        /**
+         * Valeur du stock (prix x quantite) en millimes
+         */
+        public long valeurStock() {
+            long valeur = 0;
+            for (int i = 0; i < prix.length; i++) {
+                valeur += prix[i] * stocks[i];
+            }
+            return valeur;
+        }
+        
+        /**
+         * Valeur du stock des medicaments qui expirent au plus tard a cette date (incluse), en millimes
+         */
+        public long valeurStockExpirantAvant(LocalDate limite) {
+            long jour = limite.toEpochDay();
+            long valeur = 0;
+            for (int i = 0; i < prix.length; i++) {
+                if (expirations[i] <= jour) {
+                    valeur += prix[i] * stocks[i];
+                }
+            }
+            return valeur;
+        }
+        
+        /**
+         * Valeur du stock par genre, en millimes
+         */
+        public Map<String, Long> valeurStockParGenre() {
+            long[] valeurs = new long[libellesGenres.length];
+            boolean[] presents = new boolean[libellesGenres.length];
+            for (int i = 0; i < prix.length; i++) {
+                valeurs[genres[i]] += prix[i] * stocks[i];
+                presents[genres[i]] = true;
+            }
+            Map<String, Long> resultats = new HashMap<>();
+            for (int g = 0; g < valeurs.length; g++) {
+                if (presents[g]) {
+                    resultats.put(libellesGenres[g], valeurs[g]);
+                }
+            }
+            return resultats;
+        }
+    }
+}
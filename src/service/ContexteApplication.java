@@ -0,0 +1,78 @@
+package service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Contexte de l'application: une seule Pharmacie (catalogue, index, statistiques)
+ * pour toute la session, partagee par l'accueil et toutes les vues.
+ *
+ * Le premier appel a synchroniser() charge toute la base; les suivants (retour a
+ * l'accueil, rafraichissement d'une vue) ne relisent que les lignes modifiees.
+ * synchroniserAsync() fait la meme chose sans bloquer le thread de l'interface.
+ */
+public final class ContexteApplication {
+    
+    private static final ContexteApplication INSTANCE = new ContexteApplication();
+    
+    private final Pharmacie pharmacie;
+    private boolean servicesDemarres;
+    private ChargeurDonnees chargeur;
+    
+    private ContexteApplication() {
+        this.pharmacie = new Pharmacie();
+    }
+    
+    public static ContexteApplication getInstance() {
+        return INSTANCE;
+    }
+    
+    public Pharmacie getPharmacie() {
+        return pharmacie;
+    }
+    
+    /**
+     * Met la pharmacie a jour avec la base (chargement complet la premiere fois)
+     */
+    public void synchroniser() {
+        pharmacie.rafraichir();
+    }
+    
+    /**
+     * Met la pharmacie a jour en arriere-plan. L'ecouteur (facultatif) recoit la progression
+     * sur le thread de l'interface jusqu'a la fin de ce chargement.
+     * Necessite demarrerServices().
+     */
+    public synchronized CompletableFuture<Void> synchroniserAsync(ChargeurDonnees.EcouteurChargement ecouteur) {
+        if (chargeur == null) {
+            throw new IllegalStateException("demarrerServices() doit etre appele avant synchroniserAsync()");
+        }
+        if (ecouteur == null) {
+            return chargeur.charger();
+        }
+        chargeur.ajouterEcouteur(ecouteur);
+        CompletableFuture<Void> chargement = chargeur.charger();
+        chargement.whenComplete((r, e) -> chargeur.retirerEcouteur(ecouteur));
+        return chargement;
+    }
+    
+    public synchronized boolean isChargementEnCours() {
+        return chargeur != null && chargeur.isEnCours();
+    }
+    
+    /**
+     * Demarre les traitements de fond (chargements asynchrones, remises sur les medicaments
+     * expirants) une seule fois par session, quel que soit le nombre de retours a l'accueil.
+     * @param executeurInterface thread de l'interface (Platform::runLater)
+     */
+    public synchronized void demarrerServices(Executor executeurInterface) {
+        if (servicesDemarres) {
+            return;
+        }
+        servicesDemarres = true;
+        chargeur = new ChargeurDonnees(pharmacie, executeurInterface);
+        pharmacie.getPlanificateurExpiration().ajouterEcouteur(resultat ->
+                resultat.getAlertes().forEach(alerte -> System.out.println("[Expiration] " + alerte)));
+        pharmacie.demarrerPlanificateurExpiration(executeurInterface);
+    }
+}
@@ -0,0 +1,374 @@
+package service;
+
+import dao.ClientFideleDAO;
+import model.ClientFidele;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ecriture differee des clients fideles: les colonnes modifiees sont regroupees par CIN
+ * et ecrites periodiquement en base, par batchs JDBC.
+ *
+ * Un client qui achete plusieurs fois pendant un intervalle n'est ecrit qu'une fois, et seules
+ * ses colonnes modifiees sont envoyees. Le total des achats est ecrit comme un ajout
+ * (montant_total_achats + somme des ventes de l'intervalle): les ventes d'autres instances au
+ * meme client s'y additionnent au lieu d'etre ecrasees. Les autres colonnes prennent leur
+ * derniere valeur (un batch par combinaison de colonnes).
+ * Comme le thread du JournalVentes, le thread d'ecriture demarre a la premiere modification,
+ * s'arrete apres une periode sans modification et ecrit tout a l'arret de l'application.
+ * vider() ecrit immediatement (fermeture de la caisse).
+ * Un lot en echec (base indisponible) est garde et reessaye a l'intervalle suivant; les
+ * valeurs modifiees entre-temps restent prioritaires.
+ */
+public class EcritureDiffereeClients {
+    
+    // Au-dela de ce nombre d'intervalles sans modification, le thread d'ecriture s'arrete
+    private static final int INTERVALLES_INACTIFS_AVANT_ARRET = 30;
+    
+    private final ClientFideleDAO clientDAO;
+    private final long intervalleMs;
+    
+    // CIN -> colonnes modifiees et leurs dernieres valeurs
+    private final Map<Long, Modification> enAttente = new ConcurrentHashMap<>();
+    // Modifications retirees de enAttente par l'ecriture en cours, pas encore en base
+    private final Map<Long, Modification> enCours = new ConcurrentHashMap<>();
+    
+    // Une ecriture a la fois (ordre des valeurs d'un meme client); distinct du moniteur de l'objet
+    private final Object verrouEcriture = new Object();
+    
+    private Thread ecrivain;
+    private boolean actif;
+    private boolean crochetArret;
+    
+    // Statistiques
+    private final AtomicLong nombreModifications = new AtomicLong();
+    private final AtomicLong nombreEcritures = new AtomicLong();
+    private final AtomicLong nombreLots = new AtomicLong();
+    private final AtomicLong nombreEchecs = new AtomicLong();
+    
+    /**
+     * Colonnes modifiees d'un client (masque ClientFideleDAO.CHAMP_...) et leurs valeurs
+     */
+    private static final class Modification {
+        private int champs;
+        // Derniere valeur de chaque colonne modifiee (total des achats: vue locale, pour les lectures)
+        private final ClientFidele valeurs;
+        // Somme des ventes pas encore ajoutee au total en base
+        private long ajoutMontant;
+        
+        private Modification(long cin) {
+            this.valeurs = new ClientFidele(cin, null, null, 0, 0);
+        }
+        
+        /**
+         * Copie les colonnes 'champs' de la source (les valeurs de la source l'emportent)
+         */
+        private synchronized void copier(ClientFidele source, int champs) {
+            if ((champs & ClientFideleDAO.CHAMP_NOM) != 0) {
+                valeurs.setNom(source.getNom());
+            }
+            if ((champs & ClientFideleDAO.CHAMP_PRENOM) != 0) {
+                valeurs.setPrenom(source.getPrenom());
+            }
+            if ((champs & ClientFideleDAO.CHAMP_CREDIT) != 0) {
+                valeurs.setCredit(source.getCredit());
+            }
+            if ((champs & ClientFideleDAO.CHAMP_MONTANT_ACHATS) != 0) {
+                valeurs.setMontantTotalAchats(source.getMontantTotalAchats());
+            }
+            this.champs |= champs;
+        }
+        
+        private synchronized void ajouterMontant(long ancienMontant, long nouveauMontant) {
+            valeurs.setMontantTotalAchats(nouveauMontant);
+            ajoutMontant += nouveauMontant - ancienMontant;
+            champs |= ClientFideleDAO.CHAMP_MONTANT_ACHATS;
+        }
+        
+        /**
+         * Reprend une modification plus recente (ses valeurs l'emportent, ses ajouts s'additionnent)
+         */
+        private synchronized void fusionner(Modification recente) {
+            synchronized (recente) {
+                copier(recente.valeurs, recente.champs);
+                ajoutMontant += recente.ajoutMontant;
+            }
+        }
+    }
+    
+    // ============================================
+    // CONSTRUCTEUR
+    // ============================================
+    
+    /**
+     * @param intervalleMs delai maximal avant l'ecriture d'une modification
+     */
+    public EcritureDiffereeClients(ClientFideleDAO clientDAO, long intervalleMs) {
+        this.clientDAO = clientDAO;
+        this.intervalleMs = intervalleMs;
+    }
+    
+    // ============================================
+    // MODIFICATIONS
+    // ============================================
+    
+    /**
+     * Note les colonnes 'champs' du client (valeurs actuelles) a ecrire en base.
+     * Le total des achats passe par modifierMontantAchats() (ecrit comme un ajout).
+     */
+    public void modifier(ClientFidele client, int champs) {
+        if ((champs & ClientFideleDAO.CHAMP_MONTANT_ACHATS) != 0) {
+            throw new IllegalArgumentException("Le total des achats passe par modifierMontantAchats()");
+        }
+        enAttente.compute(client.getCin(), (cin, m) -> {
+            if (m == null) {
+                m = new Modification(cin);
+            }
+            m.copier(client, champs);
+            return m;
+        });
+        nombreModifications.incrementAndGet();
+        demarrerSiNecessaire();
+    }
+    
+    /**
+     * Note une vente validee: le total des achats du client passe de 'ancienMontant'
+     * a 'nouveauMontant' (la difference sera ajoutee au total en base)
+     */
+    public void modifierMontantAchats(long cin, long ancienMontant, long nouveauMontant) {
+        enAttente.compute(cin, (k, m) -> {
+            if (m == null) {
+                m = new Modification(cin);
+            }
+            m.ajouterMontant(ancienMontant, nouveauMontant);
+            return m;
+        });
+        nombreModifications.incrementAndGet();
+        demarrerSiNecessaire();
+    }
+    
+    /**
+     * Remplace dans un client lu en base les colonnes pas encore ecrites
+     * (les valeurs differees sont plus recentes que la base)
+     */
+    public void appliquerEnAttente(ClientFidele lu) {
+        // Les modifications en attente sont plus recentes que celles en cours d'ecriture
+        appliquer(enCours.get(lu.getCin()), lu);
+        appliquer(enAttente.get(lu.getCin()), lu);
+    }
+    
+    private static void appliquer(Modification m, ClientFidele lu) {
+        if (m == null) {
+            return;
+        }
+        synchronized (m) {
+            if ((m.champs & ClientFideleDAO.CHAMP_NOM) != 0) {
+                lu.setNom(m.valeurs.getNom());
+            }
+            if ((m.champs & ClientFideleDAO.CHAMP_PRENOM) != 0) {
+                lu.setPrenom(m.valeurs.getPrenom());
+            }
+            if ((m.champs & ClientFideleDAO.CHAMP_CREDIT) != 0) {
+                lu.setCredit(m.valeurs.getCredit());
+            }
+            if ((m.champs & ClientFideleDAO.CHAMP_MONTANT_ACHATS) != 0) {
+                lu.setMontantTotalAchats(m.valeurs.getMontantTotalAchats());
+            }
+        }
+    }
+    
+    // ============================================
+    // ECRITURE
+    // ============================================
+    
+    /**
+     * Ecrit immediatement toutes les modifications en attente (fermeture de la caisse,
+     * arret de l'application)
+     *
+     * @throws exception.DatabaseException si un batch echoue (ses modifications restent en attente)
+     */
+    public void vider() {
+        synchronized (verrouEcriture) {
+            List<Modification> retirees = new ArrayList<>();
+            for (Long cin : enAttente.keySet()) {
+                Modification m = enAttente.remove(cin);
+                if (m != null) {
+                    enCours.put(cin, m);
+                    retirees.add(m);
+                }
+            }
+            try {
+                ecrire(retirees);
+            } finally {
+                for (Modification m : retirees) {
+                    enCours.remove(m.valeurs.getCin(), m);
+                }
+            }
+            nombreEcritures.addAndGet(retirees.size());
+        }
+    }
+    
+    private void ecrire(List<Modification> retirees) {
+        // Totaux des achats: un batch d'ajouts
+        Map<Long, Long> ajouts = new LinkedHashMap<>();
+        for (Modification m : retirees) {
+            synchronized (m) {
+                if (m.ajoutMontant != 0) {
+                    ajouts.put(m.valeurs.getCin(), m.ajoutMontant);
+                }
+            }
+        }
+        if (!ajouts.isEmpty()) {
+            try {
+                clientDAO.ajouterMontantAchatsLot(ajouts);
+            } catch (RuntimeException e) {
+                retirees.forEach(this::remettre);
+                throw e;
+            }
+            // Ajoutes en base: ne plus les renvoyer si la suite echoue
+            for (Modification m : retirees) {
+                synchronized (m) {
+                    m.ajoutMontant = 0;
+                }
+            }
+            nombreLots.incrementAndGet();
+        }
+        
+        // Autres colonnes: un batch par combinaison
+        Map<Integer, List<Modification>> parChamps = new LinkedHashMap<>();
+        for (Modification m : retirees) {
+            synchronized (m) {
+                int champs = m.champs & ~ClientFideleDAO.CHAMP_MONTANT_ACHATS;
+                if (champs != 0) {
+                    parChamps.computeIfAbsent(champs, k -> new ArrayList<>()).add(m);
+                }
+            }
+        }
+        List<Integer> combinaisons = new ArrayList<>(parChamps.keySet());
+        for (int i = 0; i < combinaisons.size(); i++) {
+            List<Modification> lot = parChamps.get(combinaisons.get(i));
+            List<ClientFidele> clients = new ArrayList<>(lot.size());
+            for (Modification m : lot) {
+                clients.add(m.valeurs);
+            }
+            try {
+                clientDAO.mettreAJourChamps(combinaisons.get(i), clients);
+            } catch (RuntimeException e) {
+                for (Integer restante : combinaisons.subList(i, combinaisons.size())) {
+                    parChamps.get(restante).forEach(this::remettre);
+                }
+                throw e;
+            }
+            nombreLots.incrementAndGet();
+        }
+    }
+    
+    /**
+     * Remet une modification non ecrite; les modifications faites depuis gardent leurs valeurs
+     * et leurs ajouts s'additionnent
+     */
+    private void remettre(Modification ancienne) {
+        enAttente.compute(ancienne.valeurs.getCin(), (cin, recente) -> {
+            if (recente != null) {
+                ancienne.fusionner(recente);
+            }
+            return ancienne;
+        });
+    }
+    
+    // ============================================
+    // THREAD D'ECRITURE
+    // ============================================
+    
+    private synchronized void demarrerSiNecessaire() {
+        if (!crochetArret) {
+            // Ecrire les modifications encore en attente a l'arret de l'application
+            crochetArret = true;
+            Runtime.getRuntime().addShutdownHook(new Thread(this::vider, "ecriture-clients-arret"));
+        }
+        if (!actif) {
+            actif = true;
+            ecrivain = new Thread(this::boucleEcriture, "ecriture-clients");
+            ecrivain.setDaemon(true);
+            ecrivain.start();
+        }
+    }
+    
+    private synchronized boolean arreterSiInactif() {
+        if (enAttente.isEmpty()) {
+            actif = false;
+            return true;
+        }
+        return false;
+    }
+    
+    private void boucleEcriture() {
+        int intervallesInactifs = 0;
+        
+        while (true) {
+            try {
+                Thread.sleep(intervalleMs);
+                long avant = nombreModifications.get();
+                if (!enAttente.isEmpty()) {
+                    try {
+                        vider();
+                    } catch (RuntimeException e) {
+                        // Base indisponible: les modifications restent en attente
+                        nombreEchecs.incrementAndGet();
+                        System.err.println("Erreur d'ecriture des clients (" + enAttente.size()
+                                + " en attente): " + e.getMessage());
+                    }
+                }
+                if (nombreModifications.get() != avant || !enAttente.isEmpty()) {
+                    intervallesInactifs = 0;
+                } else if (++intervallesInactifs >= INTERVALLES_INACTIFS_AVANT_ARRET && arreterSiInactif()) {
+                    return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                synchronized (this) {
+                    actif = false;
+                }
+                return;
+            }
+        }
+    }
+    
+    // ============================================
+    // STATISTIQUES
+    // ============================================
+    
+    public int getNombreEnAttente() {
+        return enAttente.size();
+    }
+    
+    public long getNombreModifications() {
+        return nombreModifications.get();
+    }
+    
+    /**
+     * Lignes ecrites en base (une par client et par ecriture, quel que soit le nombre de modifications)
+     */
+    public long getNombreEcritures() {
+        return nombreEcritures.get();
+    }
+    
+    public long getNombreLots() {
+        return nombreLots.get();
+    }
+    
+    public long getNombreEchecs() {
+        return nombreEchecs.get();
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("EcritureDiffereeClients[enAttente=%d, modifications=%d, ecritures=%d, lots=%d, echecs=%d]",
+                getNombreEnAttente(), getNombreModifications(), getNombreEcritures(), getNombreLots(), getNombreEchecs());
+    }
+}
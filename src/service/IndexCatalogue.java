@@ -0,0 +1,389 @@
+package service;
+
+import model.AppareilMedical;
+import model.ClientFidele;
+import model.Medicament;
+import model.MedicamentChimique;
+import model.MedicamentHomeopathique;
+import util.Dictionnaire;
+import util.Normalisation;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Index en memoire du catalogue de la pharmacie.
+ * Index par cle primaire (code, CIN) et index secondaires (nom, type, genre)
+ * pour des recherches en temps constant au lieu de parcourir les listes,
+ * index tries par nom pour la recherche par premieres lettres et index de
+ * trigrammes pour les recherches "contient", et index trie par date d'expiration.
+ *
+ * Les cles secondaires d'un medicament sont memorisees a l'indexation:
+ * apres une modification (nom, genre...), reindexerMedicament() le retire
+ * des anciennes entrees et l'ajoute aux nouvelles.
+ */
+public class IndexCatalogue {
+    
+    // Index primaires
+    private final Map<Long, Medicament> medicamentsParCode = new HashMap<>();
+    private final Map<Long, ClientFidele> clientsParCin = new HashMap<>();
+    private final Map<Long, AppareilMedical> appareilsParCode = new HashMap<>();
+    
+    // Index secondaires (cle normalisee -> medicaments)
+    private final Map<String, List<Medicament>> medicamentsParNom = new HashMap<>();
+    private final Map<String, List<Medicament>> medicamentsParType = new HashMap<>();
+    private final Map<String, List<Medicament>> medicamentsParGenre = new HashMap<>();
+    
+    // Index par date d'expiration (un groupe par jour), trie pour les requetes par plage
+    private final TreeMap<LocalDate, List<Medicament>> medicamentsParExpiration = new TreeMap<>();
+    
+    // Index par prefixe des noms
+    private final IndexPrefixe<Medicament> prefixesMedicaments = new IndexPrefixe<>();
+    private final IndexPrefixe<AppareilMedical> prefixesAppareils = new IndexPrefixe<>();
+    
+    // Index de trigrammes: medicaments (nom, genre, constituant/plante) et clients (nom, prenom)
+    private final IndexTrigrammes<Medicament> trigrammesMedicaments = new IndexTrigrammes<>(
+            m -> new String[] {m.getNom(), m.getGenre(), composant(m)});
+    private final IndexTrigrammes<ClientFidele> trigrammesClients = new IndexTrigrammes<>(
+            c -> new String[] {c.getNom(), c.getPrenom()});
+    
+    // Statistiques des prix (nombre, somme, min/max) par type et par genre
+    private final StatistiquesCatalogue statistiques = new StatistiquesCatalogue();
+    
+    // Colonnes des medicaments (tableaux primitifs) pour les analyses
+    private final ColonnesCatalogue colonnes = new ColonnesCatalogue();
+    
+    // Cles sous lesquelles chaque medicament est indexe
+    private final Map<Medicament, ClesMedicament> clesMedicaments = new IdentityHashMap<>();
+    
+    // ============================================
+    // CONSTRUCTION
+    // ============================================
+    
+    /**
+     * Reconstruit tous les index a partir des listes chargees
+     */
+    public void reconstruire(List<Medicament> medicaments, List<ClientFidele> clients,
+                             List<AppareilMedical> appareils) {
+        vider();
+        medicaments.forEach(this::ajouterMedicament);
+        clients.forEach(this::ajouterClient);
+        appareils.forEach(this::ajouterAppareil);
+    }
+    
+    public void vider() {
+        medicamentsParCode.clear();
+        clientsParCin.clear();
+        appareilsParCode.clear();
+        medicamentsParNom.clear();
+        medicamentsParType.clear();
+        medicamentsParGenre.clear();
+        medicamentsParExpiration.clear();
+        prefixesMedicaments.vider();
+        prefixesAppareils.vider();
+        trigrammesMedicaments.vider();
+        trigrammesClients.vider();
+        statistiques.vider();
+        colonnes.vider();
+        clesMedicaments.clear();
+    }
+    
+    // ============================================
+    // MEDICAMENTS
+    // ============================================
+    
+    public void ajouterMedicament(Medicament m) {
+        indexerMedicament(m);
+        colonnes.ajouter(m);
+    }
+    
+    /**
+     * Retire un medicament de tous les index (avec les cles memorisees a l'indexation)
+     */
+    public void retirerMedicament(Medicament m) {
+        desindexerMedicament(m);
+        colonnes.retirer(m);
+    }
+    
+    /**
+     * Met a jour les index apres modification d'un medicament deja indexe
+     * (sa ligne dans les colonnes garde sa place)
+     */
+    public void reindexerMedicament(Medicament m) {
+        desindexerMedicament(m);
+        indexerMedicament(m);
+        colonnes.mettreAJour(m);
+    }
+    
+    /**
+     * Met a jour les statistiques apres un changement de prix (remise par exemple),
+     * sans reindexer les noms
+     */
+    public void prixModifie(Medicament m) {
+        statistiques.mettreAJour(m);
+        colonnes.mettreAJour(m);
+    }
+    
+    /**
+     * A appeler apres une vente: le stock des colonnes sera relu a la prochaine copie
+     */
+    public void stocksModifies() {
+        colonnes.stocksModifies();
+    }
+    
+    public StatistiquesCatalogue getStatistiques() {
+        return statistiques;
+    }
+    
+    /**
+     * Copie en colonnes des medicaments, a jour avec le catalogue
+     */
+    public ColonnesCatalogue.Instantane getColonnes() {
+        return colonnes.instantane();
+    }
+    
+    private void indexerMedicament(Medicament m) {
+        ClesMedicament cles = new ClesMedicament(m);
+        clesMedicaments.put(m, cles);
+        medicamentsParCode.put(cles.code, m);
+        ajouterA(medicamentsParNom, cles.nom, m);
+        ajouterA(medicamentsParType, cles.type, m);
+        ajouterA(medicamentsParGenre, cles.genre, m);
+        if (cles.dateExpiration != null) {
+            ajouterA(medicamentsParExpiration, cles.dateExpiration, m);
+        }
+        prefixesMedicaments.ajouter(cles.nom, m);
+        trigrammesMedicaments.ajouter(m);
+        statistiques.ajouter(m);
+    }
+    
+    private void desindexerMedicament(Medicament m) {
+        ClesMedicament cles = clesMedicaments.remove(m);
+        if (cles == null) {
+            return;
+        }
+        medicamentsParCode.remove(cles.code, m);
+        retirerDe(medicamentsParNom, cles.nom, m);
+        retirerDe(medicamentsParType, cles.type, m);
+        retirerDe(medicamentsParGenre, cles.genre, m);
+        if (cles.dateExpiration != null) {
+            retirerDe(medicamentsParExpiration, cles.dateExpiration, m);
+        }
+        prefixesMedicaments.retirer(cles.nom, m);
+        trigrammesMedicaments.retirer(m);
+        statistiques.retirer(m);
+    }
+    
+    public Medicament getMedicamentParCode(long code) {
+        return medicamentsParCode.get(code);
+    }
+    
+    /**
+     * Retourne les medicaments portant exactement ce nom (sans tenir compte de la casse)
+     */
+    public List<Medicament> getMedicamentsParNom(String nom) {
+        return lire(medicamentsParNom, nom);
+    }
+    
+    /**
+     * Retourne au plus 'limite' medicaments dont le nom commence par le prefixe (ordre alphabetique)
+     */
+    public List<Medicament> rechercherMedicamentsParPrefixe(String prefixe, int limite) {
+        return prefixesMedicaments.rechercher(prefixe, limite);
+    }
+    
+    /**
+     * Retourne au plus 'limite' medicaments dont le nom contient le texte
+     */
+    public List<Medicament> rechercherMedicamentsParNomContenant(String texte, int limite) {
+        return trigrammesMedicaments.rechercherDansChamp(texte, 0, limite);
+    }
+    
+    /**
+     * Retourne au plus 'limite' medicaments dont le nom, le genre ou le composant contient le texte
+     */
+    public List<Medicament> rechercherMedicamentsContenant(String texte, int limite) {
+        return trigrammesMedicaments.rechercher(texte, limite);
+    }
+    
+    public List<Medicament> getMedicamentsParType(String type) {
+        return lire(medicamentsParType, type);
+    }
+    
+    public List<Medicament> getMedicamentsParGenre(String genre) {
+        return lire(medicamentsParGenre, genre);
+    }
+    
+    /**
+     * Retourne les medicaments qui expirent au plus tard a la date limite,
+     * par date d'expiration croissante (plage de l'index, sans parcourir le catalogue)
+     */
+    public List<Medicament> getMedicamentsExpirantAvant(LocalDate limite) {
+        return aplatir(medicamentsParExpiration.headMap(limite, true));
+    }
+    
+    /**
+     * Retourne les medicaments dont la date d'expiration est dans ]debut, fin]
+     */
+    public List<Medicament> getMedicamentsExpirantEntre(LocalDate debut, LocalDate fin) {
+        if (!debut.isBefore(fin)) {
+            return new ArrayList<>();
+        }
+        return aplatir(medicamentsParExpiration.subMap(debut, false, fin, true));
+    }
+    
+    /**
+     * Groupes par genre exact (copie), comme groupingBy(Medicament::getGenre):
+     * "Antibiotique" et "antibiotique" forment deux groupes
+     */
+    public Map<String, List<Medicament>> grouperParGenre() {
+        return grouper(medicamentsParGenre, Medicament::getGenre);
+    }
+    
+    /**
+     * Groupes par type exact (copie), comme groupingBy(Medicament::getTypeMedicament)
+     */
+    public Map<String, List<Medicament>> grouperParType() {
+        return grouper(medicamentsParType, Medicament::getTypeMedicament);
+    }
+    
+    // ============================================
+    // CLIENTS ET APPAREILS
+    // ============================================
+    
+    public void ajouterClient(ClientFidele client) {
+        clientsParCin.put(client.getCin(), client);
+        trigrammesClients.ajouter(client);
+    }
+    
+    public ClientFidele retirerClient(long cin) {
+        ClientFidele client = clientsParCin.remove(cin);
+        if (client != null) {
+            trigrammesClients.retirer(client);
+        }
+        return client;
+    }
+    
+    /**
+     * Met a jour l'index de recherche apres modification du nom ou du prenom d'un client
+     */
+    public void reindexerClient(ClientFidele client) {
+        trigrammesClients.reindexer(client);
+    }
+    
+    /**
+     * Retourne au plus 'limite' clients dont le nom ou le prenom contient le texte
+     */
+    public List<ClientFidele> rechercherClientsContenant(String texte, int limite) {
+        return trigrammesClients.rechercher(texte, limite);
+    }
+    
+    public ClientFidele getClient(long cin) {
+        return clientsParCin.get(cin);
+    }
+    
+    public void ajouterAppareil(AppareilMedical appareil) {
+        appareilsParCode.put(appareil.getCode(), appareil);
+        prefixesAppareils.ajouter(appareil.getNom(), appareil);
+    }
+    
+    public AppareilMedical retirerAppareil(long code) {
+        AppareilMedical appareil = appareilsParCode.remove(code);
+        if (appareil != null) {
+            prefixesAppareils.retirer(appareil.getNom(), appareil);
+        }
+        return appareil;
+    }
+    
+    public AppareilMedical getAppareilParCode(long code) {
+        return appareilsParCode.get(code);
+    }
+    
+    /**
+     * Retourne au plus 'limite' appareils dont le nom commence par le prefixe (ordre alphabetique)
+     */
+    public List<AppareilMedical> rechercherAppareilsParPrefixe(String prefixe, int limite) {
+        return prefixesAppareils.rechercher(prefixe, limite);
+    }
+    
+    // ============================================
+    // Methodes utilitaires
+    // ============================================
+    
+    static String cle(String valeur) {
+        return Normalisation.normaliser(valeur);
+    }
+    
+    private static String composant(Medicament m) {
+        if (m instanceof MedicamentChimique mc) {
+            return mc.getConstituantChimique();
+        }
+        if (m instanceof MedicamentHomeopathique mh) {
+            return mh.getPlanteUtilisee();
+        }
+        return null;
+    }
+    
+    private static <K> void ajouterA(Map<K, List<Medicament>> index, K cle, Medicament m) {
+        index.computeIfAbsent(cle, k -> new ArrayList<>()).add(m);
+    }
+    
+    private static <K> void retirerDe(Map<K, List<Medicament>> index, K cle, Medicament m) {
+        List<Medicament> groupe = index.get(cle);
+        if (groupe == null) {
+            return;
+        }
+        // Comparaison par identite: Medicament ne redefinit pas equals()
+        groupe.removeIf(x -> x == m);
+        if (groupe.isEmpty()) {
+            index.remove(cle);
+        }
+    }
+    
+    private static List<Medicament> lire(Map<String, List<Medicament>> index, String valeur) {
+        List<Medicament> groupe = index.get(cle(valeur));
+        return groupe == null ? Collections.emptyList() : Collections.unmodifiableList(groupe);
+    }
+    
+    private static List<Medicament> aplatir(SortedMap<LocalDate, List<Medicament>> plage) {
+        List<Medicament> resultats = new ArrayList<>();
+        for (List<Medicament> groupe : plage.values()) {
+            resultats.addAll(groupe);
+        }
+        return resultats;
+    }
+    
+    private static Map<String, List<Medicament>> grouper(Map<String, List<Medicament>> index,
+                                                         Function<Medicament, String> libelle) {
+        // L'index regroupe les cles normalisees: separer les valeurs exactes de chaque groupe
+        Map<String, List<Medicament>> groupes = new HashMap<>();
+        for (List<Medicament> groupe : index.values()) {
+            for (Medicament m : groupe) {
+                groupes.computeIfAbsent(libelle.apply(m), k -> new ArrayList<>()).add(m);
+            }
+        }
+        return groupes;
+    }
+    
+    /**
+     * Cles d'indexation d'un medicament, figees au moment de l'indexation
+     */
+    private static class ClesMedicament {
+        
+        private final long code;
+        private final String nom;
+        private final String type;
+        private final String genre;
+        private final LocalDate dateExpiration;
+        
+        ClesMedicament(Medicament m) {
+            this.code = m.getCode();
+            this.nom = cle(m.getNom());
+            // Cles partagees entre tous les medicaments du meme type ou du meme genre
+            this.type = Dictionnaire.TYPES.cle(m.getTypeMedicament());
+            this.genre = Dictionnaire.GENRES.cle(m.getGenre());
+            this.dateExpiration = m.getDateExpiration();
+        }
+    }
+}
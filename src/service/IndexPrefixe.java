@@ -0,0 +1,68 @@
+package service;
+
+import util.Normalisation;
+
+import java.util.*;
+
+/**
+ * Index trie par nom normalise pour la recherche par premieres lettres.
+ * Les noms sont gardes dans un TreeMap: les elements dont le nom commence par
+ * un prefixe forment une plage contigue [prefixe, prefixe + Character.MAX_VALUE[,
+ * trouvee par recherche dichotomique sans parcourir tout le catalogue.
+ *
+ * @param <T> type des elements indexes (medicament, appareil...)
+ */
+public class IndexPrefixe<T> {
+    
+    // Nom normalise -> elements portant ce nom (les noms ne sont pas uniques)
+    private final TreeMap<String, List<T>> parNom = new TreeMap<>();
+    private int taille;
+    
+    public void ajouter(String nom, T element) {
+        parNom.computeIfAbsent(Normalisation.normaliser(nom), k -> new ArrayList<>(1)).add(element);
+        taille++;
+    }
+    
+    /**
+     * Retire un element indexe sous ce nom (comparaison par identite)
+     */
+    public void retirer(String nom, T element) {
+        String cle = Normalisation.normaliser(nom);
+        List<T> elements = parNom.get(cle);
+        if (elements != null && elements.removeIf(e -> e == element)) {
+            taille--;
+            if (elements.isEmpty()) {
+                parNom.remove(cle);
+            }
+        }
+    }
+    
+    public void vider() {
+        parNom.clear();
+        taille = 0;
+    }
+    
+    /**
+     * Retourne au plus 'limite' elements dont le nom commence par le prefixe,
+     * dans l'ordre alphabetique des noms
+     */
+    public List<T> rechercher(String prefixe, int limite) {
+        String debut = Normalisation.normaliser(prefixe);
+        SortedMap<String, List<T>> plage = parNom.subMap(debut, debut + Character.MAX_VALUE);
+        
+        List<T> resultats = new ArrayList<>(Math.min(limite, 64));
+        for (List<T> elements : plage.values()) {
+            for (T element : elements) {
+                if (resultats.size() >= limite) {
+                    return resultats;
+                }
+                resultats.add(element);
+            }
+        }
+        return resultats;
+    }
+    
+    public int taille() {
+        return taille;
+    }
+}
@@ -0,0 +1,241 @@
+package service;
+
+import util.Normalisation;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Index inverse de trigrammes pour les recherches "contient" (sous-chaine).
+ * Chaque element est decoupe en trigrammes (3 caracteres consecutifs) sur ses
+ * champs normalises (minuscules, sans accents). Une recherche intersecte les
+ * listes d'elements des trigrammes de la requete, en commencant par la plus
+ * courte, puis verifie les candidats restants: seuls quelques elements sont
+ * examines au lieu de tout le catalogue.
+ *
+ * Les requetes de moins de 3 caracteres n'ont pas de trigramme: elles parcourent
+ * les textes deja normalises.
+ *
+ * @param <T> type des elements indexes (medicament, client...)
+ */
+public class IndexTrigrammes<T> {
+    
+    private static final int N = 3;
+    
+    // Extraction des champs indexes d'un element
+    private final Function<T, String[]> champs;
+    
+    // Element et champs normalises par identifiant interne (null si retire)
+    private final List<T> elements = new ArrayList<>();
+    private final List<String[]> textes = new ArrayList<>();
+    private final Map<T, Integer> identifiants = new IdentityHashMap<>();
+    private int nombreRetires;
+    
+    // Trigramme -> identifiants des elements qui le contiennent (ordre croissant)
+    private final Map<String, Postings> postings = new HashMap<>();
+    
+    public IndexTrigrammes(Function<T, String[]> champs) {
+        this.champs = champs;
+    }
+    
+    // ============================================
+    // MISE A JOUR
+    // ============================================
+    
+    public void ajouter(T element) {
+        if (identifiants.containsKey(element)) {
+            return;
+        }
+        String[] normalises = normaliser(champs.apply(element));
+        int id = elements.size();
+        elements.add(element);
+        textes.add(normalises);
+        identifiants.put(element, id);
+        
+        // Les identifiants sont croissants: l'ajout en fin garde les listes triees
+        for (String trigramme : trigrammes(normalises)) {
+            postings.computeIfAbsent(trigramme, k -> new Postings()).ajouter(id);
+        }
+    }
+    
+    public void retirer(T element) {
+        Integer id = identifiants.remove(element);
+        if (id == null) {
+            return;
+        }
+        for (String trigramme : trigrammes(textes.get(id))) {
+            Postings liste = postings.get(trigramme);
+            if (liste != null && liste.retirer(id) && liste.taille == 0) {
+                postings.remove(trigramme);
+            }
+        }
+        elements.set(id, null);
+        textes.set(id, null);
+        nombreRetires++;
+        
+        // Recompacter quand plus de la moitie des identifiants sont libres
+        if (nombreRetires > 1024 && nombreRetires > elements.size() / 2) {
+            compacter();
+        }
+    }
+    
+    /**
+     * Met a jour l'index apres modification des champs d'un element
+     */
+    public void reindexer(T element) {
+        retirer(element);
+        ajouter(element);
+    }
+    
+    public void vider() {
+        elements.clear();
+        textes.clear();
+        identifiants.clear();
+        postings.clear();
+        nombreRetires = 0;
+    }
+    
+    public int taille() {
+        return identifiants.size();
+    }
+    
+    // ============================================
+    // RECHERCHE
+    // ============================================
+    
+    /**
+     * Retourne au plus 'limite' elements dont un des champs contient la requete
+     */
+    public List<T> rechercher(String requete, int limite) {
+        return rechercher(requete, -1, limite);
+    }
+    
+    /**
+     * Retourne au plus 'limite' elements dont le champ d'indice 'champ' contient la requete
+     */
+    public List<T> rechercherDansChamp(String requete, int champ, int limite) {
+        return rechercher(requete, champ, limite);
+    }
+    
+    private List<T> rechercher(String requete, int champ, int limite) {
+        String motif = Normalisation.normaliser(requete);
+        List<T> resultats = new ArrayList<>();
+        if (motif.isEmpty()) {
+            return resultats;
+        }
+        
+        // Requete trop courte: parcours des textes normalises
+        if (motif.length() < N) {
+            for (int id = 0; id < elements.size() && resultats.size() < limite; id++) {
+                if (textes.get(id) != null && correspond(textes.get(id), motif, champ)) {
+                    resultats.add(elements.get(id));
+                }
+            }
+            return resultats;
+        }
+        
+        // Listes des trigrammes de la requete, de la plus courte a la plus longue
+        List<Postings> listes = new ArrayList<>();
+        for (String trigramme : trigrammes(new String[] {motif})) {
+            Postings liste = postings.get(trigramme);
+            if (liste == null) {
+                return resultats; // un trigramme absent: aucun resultat
+            }
+            listes.add(liste);
+        }
+        listes.sort(Comparator.comparingInt(l -> l.taille));
+        
+        // Intersection: chaque candidat de la plus courte liste doit figurer dans les autres
+        Postings plusCourte = listes.get(0);
+        for (int i = 0; i < plusCourte.taille && resultats.size() < limite; i++) {
+            int id = plusCourte.ids[i];
+            boolean present = true;
+            for (int j = 1; j < listes.size() && present; j++) {
+                present = listes.get(j).contient(id);
+            }
+            // Verification: les trigrammes peuvent etre presents sans etre consecutifs
+            if (present && correspond(textes.get(id), motif, champ)) {
+                resultats.add(elements.get(id));
+            }
+        }
+        return resultats;
+    }
+    
+    // ============================================
+    // Methodes utilitaires
+    // ============================================
+    
+    private static boolean correspond(String[] textes, String motif, int champ) {
+        if (champ >= 0) {
+            return champ < textes.length && textes[champ].contains(motif);
+        }
+        for (String texte : textes) {
+            if (texte.contains(motif)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private static String[] normaliser(String[] valeurs) {
+        String[] normalises = new String[valeurs.length];
+        for (int i = 0; i < valeurs.length; i++) {
+            normalises[i] = Normalisation.normaliser(valeurs[i]);
+        }
+        return normalises;
+    }
+    
+    private static Set<String> trigrammes(String[] textes) {
+        Set<String> resultat = new HashSet<>();
+        for (String texte : textes) {
+            for (int i = 0; i + N <= texte.length(); i++) {
+                resultat.add(texte.substring(i, i + N));
+            }
+        }
+        return resultat;
+    }
+    
+    /**
+     * Reattribue des identifiants contigus aux elements restants
+     */
+    private void compacter() {
+        List<T> restants = new ArrayList<>(identifiants.size());
+        for (T element : elements) {
+            if (element != null) {
+                restants.add(element);
+            }
+        }
+        vider();
+        restants.forEach(this::ajouter);
+    }
+    
+    /**
+     * Liste triee d'identifiants (tableau d'int extensible)
+     */
+    private static class Postings {
+        
+        private int[] ids = new int[4];
+        private int taille;
+        
+        void ajouter(int id) {
+            if (taille == ids.length) {
+                ids = Arrays.copyOf(ids, taille * 2);
+            }
+            ids[taille++] = id;
+        }
+        
+        boolean retirer(int id) {
+            int position = Arrays.binarySearch(ids, 0, taille, id);
+            if (position < 0) {
+                return false;
+            }
+            System.arraycopy(ids, position + 1, ids, position, taille - position - 1);
+            taille--;
+            return true;
+        }
+        
+        boolean contient(int id) {
+            return Arrays.binarySearch(ids, 0, taille, id) >= 0;
+        }
+    }
+}
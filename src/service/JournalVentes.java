@@ -0,0 +1,228 @@
+package service;
+
+import dao.AchatDAO;
+import model.Achat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Journal des ventes: enregistre chaque achat dans la table ACHAT.
+ *
+ * En mode asynchrone (par defaut), les achats sont places dans une file bornee
+ * et un thread d'ecriture les insere par lots (batch JDBC), ce qui garde le temps
+ * d'une vente constant meme avec des centaines de ventes par minute.
+ * Si la file est pleine, l'appelant ecrit lui-meme son lot: aucun achat n'est perdu.
+ *
+ * En mode synchrone (durabilite immediate), Pharmacie insere les achats dans
+ * la meme transaction que les decrements de stock.
+ */
+public class JournalVentes {
+    
+    // Au-dela de ce nombre d'intervalles sans vente, le thread d'ecriture s'arrete
+    private static final int INTERVALLES_INACTIFS_AVANT_ARRET = 30;
+    
+    private final AchatDAO achatDAO;
+    private final BlockingQueue<Achat> file;
+    private final int tailleLot;
+    private final long intervalleMs;
+    private final boolean synchrone;
+    
+    // Lot en echec, reessaye avant les nouveaux achats (accede uniquement par le thread d'ecriture)
+    private final List<Achat> enEchec = new ArrayList<>();
+    
+    private Thread ecrivain;
+    private boolean actif;
+    private boolean crochetArret;
+    
+    // Statistiques
+    private final AtomicLong nombreEnregistres = new AtomicLong();
+    private final AtomicLong nombreLots = new AtomicLong();
+    private final AtomicLong nombreEchecs = new AtomicLong();
+    private final AtomicLong nombreFilePleine = new AtomicLong();
+    
+    // ============================================
+    // CONSTRUCTEUR
+    // ============================================
+    
+    /**
+     * @param capacite taille maximale de la file d'attente
+     * @param tailleLot nombre maximal d'achats par insertion batch
+     * @param intervalleMs delai maximal avant l'ecriture d'un lot incomplet
+     * @param synchrone true pour ecrire les achats dans la transaction de la vente
+     */
+    public JournalVentes(AchatDAO achatDAO, int capacite, int tailleLot, long intervalleMs, boolean synchrone) {
+        this.achatDAO = achatDAO;
+        this.file = new ArrayBlockingQueue<>(capacite);
+        this.tailleLot = tailleLot;
+        this.intervalleMs = intervalleMs;
+        this.synchrone = synchrone;
+    }
+    
+    // ============================================
+    // ENREGISTREMENT
+    // ============================================
+    
+    /**
+     * Indique si les achats doivent etre ecrits dans la transaction de la vente
+     */
+    public boolean estSynchrone() {
+        return synchrone;
+    }
+    
+    /**
+     * Enregistre des achats deja valides.
+     * En mode synchrone, l'ecriture est immediate; sinon les achats sont mis en file.
+     */
+    public void enregistrer(List<Achat> achats) {
+        if (achats.isEmpty()) {
+            return;
+        }
+        if (synchrone) {
+            ecrire(achats);
+            return;
+        }
+        
+        List<Achat> debordement = null;
+        for (Achat achat : achats) {
+            if (!file.offer(achat)) {
+                if (debordement == null) {
+                    debordement = new ArrayList<>();
+                }
+                debordement.add(achat);
+            }
+        }
+        demarrerSiNecessaire();
+        
+        // File pleine: l'appelant ecrit lui-meme pour ne rien perdre
+        if (debordement != null) {
+            nombreFilePleine.incrementAndGet();
+            ecrire(debordement);
+        }
+    }
+    
+    /**
+     * Ecrit immediatement tous les achats en attente (fermeture de l'application par exemple)
+     */
+    public void vider() {
+        List<Achat> lot = new ArrayList<>();
+        while (file.drainTo(lot, tailleLot) > 0) {
+            ecrire(lot);
+            lot.clear();
+        }
+    }
+    
+    private void ecrire(List<Achat> lot) {
+        achatDAO.ajouterLot(lot);
+        nombreEnregistres.addAndGet(lot.size());
+        nombreLots.incrementAndGet();
+    }
+    
+    // ============================================
+    // THREAD D'ECRITURE
+    // ============================================
+    
+    private synchronized void demarrerSiNecessaire() {
+        if (!crochetArret) {
+            // Ecrire les achats encore en file a l'arret de l'application
+            crochetArret = true;
+            Runtime.getRuntime().addShutdownHook(new Thread(this::vider, "journal-ventes-arret"));
+        }
+        if (!actif) {
+            actif = true;
+            ecrivain = new Thread(this::boucleEcriture, "journal-ventes");
+            ecrivain.setDaemon(true);
+            ecrivain.start();
+        }
+    }
+    
+    /**
+     * Le thread s'arrete apres une periode sans vente et redemarre a la vente suivante,
+     * pour ne pas laisser de thread inutile derriere chaque instance de Pharmacie.
+     */
+    private synchronized boolean arreterSiInactif() {
+        if (file.isEmpty() && enEchec.isEmpty()) {
+            actif = false;
+            return true;
+        }
+        return false;
+    }
+    
+    private void boucleEcriture() {
+        List<Achat> lot = new ArrayList<>(tailleLot);
+        int intervallesInactifs = 0;
+        
+        while (true) {
+            try {
+                if (!enEchec.isEmpty()) {
+                    lot.addAll(enEchec);
+                    enEchec.clear();
+                } else {
+                    Achat premier = file.poll(intervalleMs, TimeUnit.MILLISECONDS);
+                    if (premier == null) {
+                        if (++intervallesInactifs >= INTERVALLES_INACTIFS_AVANT_ARRET && arreterSiInactif()) {
+                            return;
+                        }
+                        continue;
+                    }
+                    lot.add(premier);
+                }
+                intervallesInactifs = 0;
+                file.drainTo(lot, tailleLot - lot.size());
+                
+                try {
+                    ecrire(lot);
+                } catch (RuntimeException e) {
+                    // Base indisponible: garder le lot et reessayer apres un intervalle
+                    nombreEchecs.incrementAndGet();
+                    System.err.println("Erreur d'ecriture du journal des ventes (" + lot.size()
+                            + " achats en attente): " + e.getMessage());
+                    enEchec.addAll(lot);
+                    Thread.sleep(intervalleMs);
+                }
+                lot.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                synchronized (this) {
+                    actif = false;
+                }
+                return;
+            }
+        }
+    }
+    
+    // ============================================
+    // STATISTIQUES
+    // ============================================
+    
+    public int getTailleFile() {
+        return file.size();
+    }
+    
+    public long getNombreEnregistres() {
+        return nombreEnregistres.get();
+    }
+    
+    public long getNombreLots() {
+        return nombreLots.get();
+    }
+    
+    public long getNombreEchecs() {
+        return nombreEchecs.get();
+    }
+    
+    public long getNombreFilePleine() {
+        return nombreFilePleine.get();
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("JournalVentes[%s, enAttente=%d, enregistres=%d, lots=%d, echecs=%d]",
+                synchrone ? "synchrone" : "asynchrone", getTailleFile(),
+                getNombreEnregistres(), getNombreLots(), getNombreEchecs());
+    }
+}
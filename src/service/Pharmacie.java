@@ -4,8 +4,21 @@ import model.*;
 import dao.*;
 import exception.*;
 
+import util.DatabaseConnection;
+import util.Normalisation;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -23,12 +36,58 @@ public class Pharmacie {
     
     // Maps pour recherche rapide
     private Map<Long, Integer> mapMedicaments;  // numSerie -> nombre d'exemplaires
-    private Map<Long, Double> mapClientsFideles; // CIN -> montant total achats
+    private Map<Long, Long> mapClientsFideles; // CIN -> montant total achats en millimes (modifiee par les ventes concurrentes)
+    
+    // Index du catalogue (code, CIN, nom, type, genre), maintenus a chaque modification
+    private IndexCatalogue index;
     
     // DAOs pour acces base de donnees
     private MedicamentDAO medicamentDAO;
     private ClientFideleDAO clientDAO;
     private AppareilMedicalDAO appareilDAO;
+    private AchatDAO achatDAO;
+    private SuiviModificationsDAO suiviDAO;
+    
+    // Heure (de la base) du dernier chargement, null tant que rien n'a ete charge.
+    // Lue par le thread de chargement en arriere-plan
+    private volatile Timestamp derniereSynchronisation;
+    
+    // Recouvrement des rafraichissements: une transaction commencee avant le dernier
+    // chargement mais validee apres peut porter une date_modification anterieure
+    // (heure de l'instruction, pas du commit). Une transaction plus longue que la marge
+    // n'est pas vue par les rafraichissements incrementaux.
+    private static final long MARGE_SYNCHRONISATION_MS = 60_000;
+    
+    // Journal des ventes (historique ACHAT), asynchrone sauf -Dpharmacie.journal.synchrone=true
+    private JournalVentes journalVentes;
+    
+    // Registre des ventes non reportees en base (fichier projete en memoire), actif avec
+    // -Dpharmacie.stock.registre=chemin: les stocks sont alors reportes par le reconciliateur
+    private RegistreStock registreStock;
+    private ReconciliateurStock reconciliateurStock;
+    
+    // Ecriture differee des totaux d'achats des clients, active avec
+    // -Dpharmacie.clients.ecritureDifferee=true (null sinon: ecriture dans la transaction de la vente)
+    private EcritureDiffereeClients ecritureClients;
+    
+    // Clients lus en base hors de l'index (achat par CIN, verification d'existence)
+    private CacheClients cacheClients;
+    
+    // Remises automatiques sur les medicaments expirants
+    private PlanificateurExpiration planificateurExpiration;
+    
+    // Verrous des ventes par client (repartis par CIN): deux caisses servent deux clients en parallele
+    private final ReentrantLock[] verrousClients = new ReentrantLock[64];
+    
+    // Nombre de tentatives d'une vente quand le total du client change en concurrence
+    private static final int TENTATIVES_VENTE = 5;
+    
+    // Bonus fidelite: 15% de reduction quand le total des achats atteint 100 DT (ClientFidele.SEUIL_REDUCTION)
+    private static final int REMISE_BONUS_FIDELITE = 15;
+    
+    // Remise (en %) sur les medicaments qui expirent dans le mois
+    private static final int REMISE_EXPIRATION = 30;
+    private static final int MOIS_REMISE_EXPIRATION = 1;
     
     // ============================================
     // CONSTRUCTEUR
@@ -40,23 +99,401 @@ public class Pharmacie {
         this.listeAppareils = new ArrayList<>();
         this.etageres = new ArrayList<>();
         this.mapMedicaments = new HashMap<>();
-        this.mapClientsFideles = new HashMap<>();
+        this.mapClientsFideles = new ConcurrentHashMap<>();
+        this.index = new IndexCatalogue();
+        for (int i = 0; i < verrousClients.length; i++) {
+            verrousClients[i] = new ReentrantLock();
+        }
         
         // Initialiser les DAOs
         this.medicamentDAO = new MedicamentDAO();
         this.clientDAO = new ClientFideleDAO();
         this.appareilDAO = new AppareilMedicalDAO();
+        this.achatDAO = new AchatDAO();
+        this.suiviDAO = new SuiviModificationsDAO();
+        this.journalVentes = new JournalVentes(achatDAO, 10_000, 500, 1_000,
+                Boolean.getBoolean("pharmacie.journal.synchrone"));
+        ouvrirRegistreStock(System.getProperty("pharmacie.stock.registre"));
+        if (Boolean.getBoolean("pharmacie.clients.ecritureDifferee")) {
+            this.ecritureClients = new EcritureDiffereeClients(clientDAO,
+                    Long.getLong("pharmacie.clients.intervalleMs", 1_000));
+        }
+        this.cacheClients = new CacheClients(clientDAO, ecritureClients,
+                Integer.getInteger("pharmacie.clients.cache.taille", 10_000),
+                Long.getLong("pharmacie.clients.cache.dureeVieMs", 60_000));
+        this.planificateurExpiration = new PlanificateurExpiration(medicamentDAO,
+                REMISE_EXPIRATION, MOIS_REMISE_EXPIRATION);
+        planificateurExpiration.ajouterEcouteur(this::appliquerRemisesEnMemoire);
+    }
+    
+    /**
+     * Ouvre le registre de stock s'il est configure, et reporte en base les ventes
+     * qu'un arret precedent n'avait pas encore reportees
+     */
+    private void ouvrirRegistreStock(String chemin) {
+        if (chemin == null) {
+            return;
+        }
+        try {
+            registreStock = RegistreStock.ouvrir(Path.of(chemin),
+                    Integer.getInteger("pharmacie.stock.registre.capacite", 262_144));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Impossible d'ouvrir le registre de stock " + chemin, e);
+        }
+        reconciliateurStock = new ReconciliateurStock(registreStock, medicamentDAO, appareilDAO,
+                Long.getLong("pharmacie.stock.registre.intervalleMs", 1_000));
+        if (registreStock.aDesVentesNonReportees()) {
+            reconciliateurStock.demarrerSiNecessaire();
+        }
+    }
+    
+    /**
+     * Demarre les balayages automatiques des medicaments expirants (au demarrage puis chaque jour).
+     * Les resultats sont appliques en memoire via l'executeur fourni
+     * (Platform::runLater pour l'interface JavaFX).
+     */
+    public void demarrerPlanificateurExpiration(Executor executeur) {
+        planificateurExpiration.demarrer(executeur);
     }
     
     /**
      * Charge les donnees depuis la base de donnees
      */
     public void chargerDonnees() {
-        this.listeMedicaments = medicamentDAO.getAll();
-        this.listeClientsFideles = clientDAO.getAll();
-        this.listeAppareils = appareilDAO.getAll();
+        // Lire l'heure avant les donnees: ce qui change pendant le chargement sera relu
+        Timestamp debut = suiviDAO.getHorodatage();
+        long[] reportes = suspendreReports();
+        List<Medicament> medicaments;
+        List<ClientFidele> clients;
+        List<AppareilMedical> appareils;
+        try {
+            medicaments = medicamentDAO.getAll();
+            clients = clientDAO.getAll();
+            appareils = appareilDAO.getAll();
+        } finally {
+            reprendreReports(reportes);
+        }
+        if (ecritureClients != null) {
+            clients.forEach(ecritureClients::appliquerEnAttente);
+        }
+        for (Medicament m : medicaments) {
+            m.setQuantiteStock(stockDisponible(m, m.getQuantiteStock(), reportes));
+        }
+        for (AppareilMedical a : appareils) {
+            a.setQuantiteStock(stockDisponible(a, a.getQuantiteStock(), reportes));
+        }
+        chargerDonnees(medicaments, clients, appareils);
+        derniereSynchronisation = debut;
+    }
+    
+    /**
+     * Recharge uniquement les lignes ajoutees, modifiees ou supprimees depuis le dernier
+     * chargement (colonnes date_modification et table JOURNAL_SUPPRESSION).
+     * Les objets deja en memoire sont mis a jour sur place: les vues et paniers
+     * qui les referencent restent valides. Charge tout si rien n'a encore ete charge.
+     */
+    public void rafraichir() {
+        if (derniereSynchronisation == null) {
+            chargerDonnees();
+            return;
+        }
+        Changements changements = ouvrirChangements();
+        List<Medicament> medicaments;
+        List<ClientFidele> clients;
+        List<AppareilMedical> appareils;
+        try {
+            medicaments = lireMedicaments(changements);
+            clients = lireClients(changements);
+            appareils = lireAppareils(changements);
+            lireSuppressions(changements);
+        } finally {
+            terminerLecture(changements);
+        }
+        commencerChangements(changements);
+        integrerMedicaments(changements, medicaments);
+        integrerClients(clients);
+        integrerAppareils(changements, appareils);
+        terminerChangements(changements);
+    }
+    
+    public Timestamp getDerniereSynchronisation() {
+        return derniereSynchronisation;
+    }
+    
+    // ============================================
+    // Etapes d'un rafraichissement
+    // ============================================
+    
+    // Les methodes lire* n'accedent qu'a la base et peuvent s'executer sur un autre thread,
+    // entre ouvrirChangements() et terminerLecture() (meme thread: les reports du registre
+    // de stock sont suspendus entre les deux). Les autres modifient l'etat en memoire et
+    // restent sur le thread de l'interface.
+    
+    /**
+     * Un rafraichissement en cours: heure de debut, date de reference des changements
+     * (null pour un chargement complet) et cles supprimees depuis.
+     */
+    static class Changements {
+        
+        private final Timestamp horodatage;
+        private final Timestamp depuis;
+        // Quantites du registre de stock deja en base pendant la lecture (null sans registre)
+        private long[] reportes;
+        private List<Long> medicamentsSupprimes = List.of();
+        private List<Long> clientsSupprimes = List.of();
+        private List<Long> appareilsSupprimes = List.of();
+        
+        private Changements(Timestamp horodatage, Timestamp depuis) {
+            this.horodatage = horodatage;
+            this.depuis = depuis;
+        }
+        
+        boolean isComplet() {
+            return depuis == null;
+        }
+    }
+    
+    Changements ouvrirChangements() {
+        // Lire l'heure avant les donnees: ce qui change pendant la lecture sera relu
+        Timestamp horodatage = suiviDAO.getHorodatage();
+        Timestamp derniere = derniereSynchronisation;
+        Changements c = new Changements(horodatage,
+                derniere == null ? null : new Timestamp(derniere.getTime() - MARGE_SYNCHRONISATION_MS));
+        c.reportes = suspendreReports();
+        return c;
+    }
+    
+    /**
+     * Fin des lectures en base (sur le thread de ouvrirChangements): les reports reprennent
+     */
+    void terminerLecture(Changements c) {
+        reprendreReports(c.reportes);
+    }
+    
+    /**
+     * Suspend les reports du registre de stock pendant une lecture des stocks en base, et
+     * retourne les quantites deja reportees (null sans registre). Un envoi applique en base
+     * mais pas encore confirme dans le registre n'est ainsi jamais deduit deux fois.
+     */
+    private long[] suspendreReports() {
+        if (reconciliateurStock == null) {
+            return null;
+        }
+        reconciliateurStock.suspendreReports();
+        try {
+            return registreStock.instantaneReportes();
+        } catch (RuntimeException | Error e) {
+            reconciliateurStock.reprendreReports();
+            throw e;
+        }
+    }
+    
+    private void reprendreReports(long[] reportes) {
+        if (reportes != null) {
+            reconciliateurStock.reprendreReports();
+        }
+    }
+    
+    List<Medicament> lireMedicaments(Changements c) {
+        return c.isComplet() ? medicamentDAO.getAll() : medicamentDAO.getModifiesDepuis(c.depuis);
+    }
+    
+    List<ClientFidele> lireClients(Changements c) {
+        return c.isComplet() ? clientDAO.getAll() : clientDAO.getModifiesDepuis(c.depuis);
+    }
+    
+    List<AppareilMedical> lireAppareils(Changements c) {
+        return c.isComplet() ? appareilDAO.getAll() : appareilDAO.getModifiesDepuis(c.depuis);
+    }
+    
+    /**
+     * Variantes en flux de lire*(): un chargement complet parcourt la table sur un curseur
+     * sans la garder en memoire. Le flux doit etre ferme.
+     */
+    Stream<Medicament> parcourirMedicaments(Changements c) {
+        return c.isComplet() ? medicamentDAO.parcourirTout() : medicamentDAO.getModifiesDepuis(c.depuis).stream();
+    }
+    
+    Stream<ClientFidele> parcourirClients(Changements c) {
+        return c.isComplet() ? clientDAO.parcourirTout() : clientDAO.getModifiesDepuis(c.depuis).stream();
+    }
+    
+    Stream<AppareilMedical> parcourirAppareils(Changements c) {
+        return c.isComplet() ? appareilDAO.parcourirTout() : appareilDAO.getModifiesDepuis(c.depuis).stream();
+    }
+    
+    void lireSuppressions(Changements c) {
+        if (!c.isComplet()) {
+            c.medicamentsSupprimes = suiviDAO.getClesSupprimees("MEDICAMENT", c.depuis);
+            c.clientsSupprimes = suiviDAO.getClesSupprimees("CLIENT_FIDELE", c.depuis);
+            c.appareilsSupprimes = suiviDAO.getClesSupprimees("APPAREIL_MEDICAL", c.depuis);
+        }
+    }
+    
+    /**
+     * Un chargement complet repart d'un catalogue vide
+     */
+    void commencerChangements(Changements c) {
+        if (c.isComplet()) {
+            chargerDonnees(new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+        }
+    }
+    
+    void integrerMedicaments(Changements c, List<Medicament> medicaments) {
+        medicaments.forEach(m -> fusionnerMedicament(m, c.reportes));
+    }
+    
+    void integrerClients(List<ClientFidele> clients) {
+        clients.forEach(this::fusionnerClient);
+    }
+    
+    void integrerAppareils(Changements c, List<AppareilMedical> appareils) {
+        appareils.forEach(a -> fusionnerAppareil(a, c.reportes));
+    }
+    
+    void terminerChangements(Changements c) {
+        retirerMedicamentsLocaux(c.medicamentsSupprimes);
+        retirerClientsLocaux(c.clientsSupprimes);
+        retirerAppareilsLocaux(c.appareilsSupprimes);
+        derniereSynchronisation = c.horodatage;
+    }
+    
+    private void fusionnerMedicament(Medicament lu, long[] reportes) {
+        lu.setQuantiteStock(stockDisponible(lu, lu.getQuantiteStock(), reportes));
+        Medicament m = index.getMedicamentParCode(lu.getCode());
+        if (m == null || m.getClass() != lu.getClass()) {
+            if (m != null) {
+                retirerMedicamentsLocaux(List.of(m.getCode()));
+            }
+            listeMedicaments.add(lu);
+            mapMedicaments.merge(lu.getNumSerie(), 1, Integer::sum);
+            index.ajouterMedicament(lu);
+            return;
+        }
+        if (m.getNumSerie() != lu.getNumSerie()) {
+            mapMedicaments.computeIfPresent(m.getNumSerie(), (k, n) -> n > 1 ? n - 1 : null);
+            mapMedicaments.merge(lu.getNumSerie(), 1, Integer::sum);
+        }
+        m.setNumSerie(lu.getNumSerie());
+        m.setNom(lu.getNom());
+        m.setGenre(lu.getGenre());
+        m.setPrix(lu.getPrix());
+        m.setDateExpiration(lu.getDateExpiration());
+        m.setQuantiteStock(lu.getQuantiteStock());
+        m.setRemiseExpiration(lu.isRemiseExpiration());
+        if (m instanceof MedicamentChimique mc && lu instanceof MedicamentChimique luc) {
+            mc.setConstituantChimique(luc.getConstituantChimique());
+            mc.setAgeMinimum(luc.getAgeMinimum());
+        } else if (m instanceof MedicamentHomeopathique mh && lu instanceof MedicamentHomeopathique luh) {
+            mh.setPlanteUtilisee(luh.getPlanteUtilisee());
+        }
+        index.reindexerMedicament(m);
+    }
+    
+    private void fusionnerClient(ClientFidele lu) {
+        if (ecritureClients != null) {
+            ecritureClients.appliquerEnAttente(lu);
+        }
+        cacheClients.invalider(lu.getCin());
+        ClientFidele c = index.getClient(lu.getCin());
+        if (c == null) {
+            listeClientsFideles.add(lu);
+            index.ajouterClient(lu);
+            c = lu;
+        } else {
+            c.setNom(lu.getNom());
+            c.setPrenom(lu.getPrenom());
+            c.setCredit(lu.getCredit());
+            c.setMontantTotalAchats(lu.getMontantTotalAchats());
+            index.reindexerClient(c);
+        }
+        mapClientsFideles.put(c.getCin(), c.getMontantTotalAchats());
+    }
+    
+    private void fusionnerAppareil(AppareilMedical lu, long[] reportes) {
+        lu.setQuantiteStock(stockDisponible(lu, lu.getQuantiteStock(), reportes));
+        // Retirer avant modification: l'index par prefixe est cle par le nom actuel
+        AppareilMedical a = index.retirerAppareil(lu.getCode());
+        if (a == null) {
+            listeAppareils.add(lu);
+            a = lu;
+        } else {
+            a.setNom(lu.getNom());
+            a.setPrix(lu.getPrix());
+            a.setQuantiteStock(lu.getQuantiteStock());
+        }
+        index.ajouterAppareil(a);
+    }
+    
+    /**
+     * Stock lu en base moins les ventes du registre qui n'y etaient pas encore a la lecture
+     * (reportes: instantane pris pendant la lecture)
+     */
+    private int stockDisponible(Vendable v, int stockEnBase, long[] reportes) {
+        if (reportes == null) {
+            return stockEnBase;
+        }
+        return stockEnBase - registreStock.nonReporte(typeRegistre(v), codeDe(v), reportes);
+    }
+    
+    private void retirerMedicamentsLocaux(List<Long> codes) {
+        Set<Medicament> aRetirer = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (long code : codes) {
+            Medicament m = index.getMedicamentParCode(code);
+            if (m != null) {
+                index.retirerMedicament(m);
+                mapMedicaments.computeIfPresent(m.getNumSerie(), (k, n) -> n > 1 ? n - 1 : null);
+                aRetirer.add(m);
+            }
+        }
+        if (!aRetirer.isEmpty()) {
+            listeMedicaments.removeIf(aRetirer::contains);
+        }
+    }
+    
+    private void retirerClientsLocaux(List<Long> cins) {
+        Set<ClientFidele> aRetirer = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (long cin : cins) {
+            ClientFidele c = index.retirerClient(cin);
+            cacheClients.invalider(cin);
+            if (c != null) {
+                mapClientsFideles.remove(cin);
+                aRetirer.add(c);
+            }
+        }
+        if (!aRetirer.isEmpty()) {
+            listeClientsFideles.removeIf(aRetirer::contains);
+        }
+    }
+    
+    private void retirerAppareilsLocaux(List<Long> codes) {
+        Set<AppareilMedical> aRetirer = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (long code : codes) {
+            AppareilMedical a = index.retirerAppareil(code);
+            if (a != null) {
+                aRetirer.add(a);
+            }
+        }
+        if (!aRetirer.isEmpty()) {
+            listeAppareils.removeIf(aRetirer::contains);
+        }
+    }
+    
+    /**
+     * Charge des donnees deja lues (import, jeux de donnees de test ou benchmarks)
+     * et reconstruit les maps et les index, sans acces a la base
+     */
+    public void chargerDonnees(List<Medicament> medicaments, List<ClientFidele> clients,
+                               List<AppareilMedical> appareils) {
+        this.listeMedicaments = medicaments;
+        this.listeClientsFideles = clients;
+        this.listeAppareils = appareils;
         
-        // Remplir les maps
+        // Remplir les maps et les index
+        mapMedicaments.clear();
+        mapClientsFideles.clear();
+        cacheClients.vider();
+        index.reconstruire(listeMedicaments, listeClientsFideles, listeAppareils);
         for (Medicament m : listeMedicaments) {
             mapMedicaments.merge(m.getNumSerie(), 1, Integer::sum);
         }
@@ -74,8 +511,37 @@ public class Pharmacie {
      */
     public void ajouterMedicament(Medicament m) {
         medicamentDAO.ajouter(m);
+        medicamentAjoute(m);
+    }
+    
+    /**
+     * Version asynchrone de ajouterMedicament(): l'INSERT s'execute en arriere-plan (ExecuteurDAO)
+     * et le medicament est ajoute en memoire sur l'executeur de l'interface (Platform::runLater).
+     */
+    public CompletableFuture<Void> ajouterMedicamentAsync(Medicament m, Executor executeurInterface) {
+        return getExecuteurDAO().soumettre(() -> medicamentDAO.ajouter(m))
+                .thenAcceptAsync(code -> medicamentAjoute(m), executeurInterface);
+    }
+    
+    /**
+     * Reporte en memoire un medicament deja enregistre en base
+     */
+    void medicamentAjoute(Medicament m) {
         listeMedicaments.add(m);
         mapMedicaments.merge(m.getNumSerie(), 1, Integer::sum);
+        index.ajouterMedicament(m);
+    }
+    
+    /**
+     * Importe plusieurs medicaments en une seule transaction (codes attribues par blocs)
+     */
+    public void importerMedicaments(List<Medicament> medicaments) {
+        medicamentDAO.ajouterLot(medicaments);
+        for (Medicament m : medicaments) {
+            listeMedicaments.add(m);
+            mapMedicaments.merge(m.getNumSerie(), 1, Integer::sum);
+            index.ajouterMedicament(m);
+        }
     }
     
     /**
@@ -86,12 +552,59 @@ public class Pharmacie {
         boolean supprime = medicamentDAO.supprimerParNom(nomMedicament);
         
         if (supprime) {
-            // Supprimer de la liste locale
-            listeMedicaments.removeIf(m -> m.getNom().equalsIgnoreCase(nomMedicament));
+            medicamentsSupprimes(nomMedicament);
         }
         return supprime;
     }
     
+    /**
+     * Version asynchrone de supprimerMedicament(): le DELETE s'execute en arriere-plan
+     * et la memoire est mise a jour sur l'executeur de l'interface
+     */
+    public CompletableFuture<Boolean> supprimerMedicamentAsync(String nomMedicament, Executor executeurInterface) {
+        return getExecuteurDAO().soumettre(() -> medicamentDAO.supprimerParNom(nomMedicament))
+                .thenApplyAsync(supprime -> {
+                    if (supprime) {
+                        medicamentsSupprimes(nomMedicament);
+                    }
+                    return supprime;
+                }, executeurInterface);
+    }
+    
+    /**
+     * Retire de la liste locale et des index les medicaments de ce nom, deja supprimes en base
+     */
+    void medicamentsSupprimes(String nomMedicament) {
+        List<Medicament> supprimes = new ArrayList<>(index.getMedicamentsParNom(nomMedicament));
+        for (Medicament m : supprimes) {
+            index.retirerMedicament(m);
+            mapMedicaments.computeIfPresent(m.getNumSerie(), (k, n) -> n > 1 ? n - 1 : null);
+        }
+        Set<Medicament> aRetirer = Collections.newSetFromMap(new IdentityHashMap<>());
+        aRetirer.addAll(supprimes);
+        listeMedicaments.removeIf(aRetirer::contains);
+    }
+    
+    /**
+     * Enregistre les modifications d'un medicament et met a jour les index
+     */
+    public boolean mettreAJourMedicament(Medicament m) {
+        boolean modifie = medicamentDAO.update(m);
+        medicamentModifie(m);
+        return modifie;
+    }
+    
+    void medicamentModifie(Medicament m) {
+        index.reindexerMedicament(m);
+    }
+    
+    /**
+     * Retourne le medicament de ce code (index par cle primaire)
+     */
+    public Medicament getMedicamentParCode(long code) {
+        return index.getMedicamentParCode(code);
+    }
+    
     /**
      * Retourne le nombre de medicaments disponibles
      */
@@ -104,71 +617,374 @@ public class Pharmacie {
     // ============================================
     
     /**
-     * Permet a un client d'acheter un medicament et retourne son prix
+     * Permet a un client d'acheter un medicament et retourne son prix: la tranche
+     * fidele, ajoutee au total des achats du client, sans bonus fidelite ni
+     * reinitialisation du total. Meme chemin que validerPanier pour le reste
+     * (decrement conditionnel en base, ligne ACHAT).
      */
-    public double achatMedicament(Medicament m, ClientFidele client) throws StockInsuffisantException {
-        if (m.getQuantiteStock() <= 0) {
-            throw new StockInsuffisantException(m.getNom(), m.getQuantiteStock(), 1);
-        }
-        
-        // Decrementer le stock
-        m.setQuantiteStock(m.getQuantiteStock() - 1);
-        medicamentDAO.updateStock(m.getCode(), m.getQuantiteStock());
-        
-        // Prix avec reduction si client fidele
-        double prix = m.getTranche(true);
-        
-        // Mettre a jour le montant des achats du client
-        client.ajouterAchat(prix);
-        clientDAO.update(client);
-        
-        return prix;
+    public long achatMedicament(Medicament m, ClientFidele client) throws StockInsuffisantException {
+        Panier panier = new Panier();
+        panier.ajouter(m, 1);
+        return validerPanier(panier, client, false);
     }
     
     /**
      * Permet a un client fidele d'acheter un medicament avec reduction possible.
      * Si le montant depasse 100 DT, reduction de 15% et reinitialisation.
      */
-    public double achatMedicament(String nomMedicament, long cin) throws StockInsuffisantException, MedicamentNonTrouveException {
-        // Trouver le medicament
-        Medicament m = listeMedicaments.stream()
-                .filter(med -> med.getNom().equalsIgnoreCase(nomMedicament))
-                .findFirst()
-                .orElseThrow(() -> new MedicamentNonTrouveException(nomMedicament, ""));
+    public long achatMedicament(String nomMedicament, long cin) throws StockInsuffisantException, MedicamentNonTrouveException {
+        // Trouver le medicament (index par nom)
+        List<Medicament> trouves = index.getMedicamentsParNom(nomMedicament);
+        if (trouves.isEmpty()) {
+            throw new MedicamentNonTrouveException(nomMedicament, "");
+        }
+        Medicament m = trouves.get(0);
         
-        // Trouver le client
-        ClientFidele client = clientDAO.getByCin(cin);
+        // Trouver le client (index par CIN, sinon cache des clients lus en base)
+        ClientFidele client = index.getClient(cin);
+        if (client == null) {
+            client = cacheClients.getByCin(cin);
+        }
         if (client == null) {
             throw new DatabaseException("Client avec CIN " + cin + " non trouve");
         }
         
-        if (m.getQuantiteStock() <= 0) {
-            throw new StockInsuffisantException(m.getNom(), m.getQuantiteStock(), 1);
+        Panier panier = new Panier();
+        panier.ajouter(m, 1);
+        return validerPanier(panier, client);
+    }
+    
+    // ============================================
+    // VALIDATION D'UN PANIER (plusieurs lignes, une transaction)
+    // ============================================
+    
+    /**
+     * Valide le panier d'un client fidele et retourne le montant total paye.
+     * Les decrements de stock et le nouveau montant des achats du client sont
+     * enregistres dans une seule transaction, avec des batchs JDBC:
+     * soit tout le panier est vendu, soit rien ne l'est.
+     * Les lignes ACHAT sont ecrites dans la meme transaction si le journal des ventes
+     * est synchrone, sinon elles lui sont confiees apres le commit.
+     * Le bonus fidelite de 15% s'applique a la premiere ligne payee alors que
+     * le total des achats du client atteint 100 DT, puis le total est reinitialise.
+     * Utilisable depuis plusieurs caisses en parallele: le stock est reserve en memoire
+     * par CAS avant la transaction (et rendu si elle echoue), et les ventes d'un meme
+     * client sont serialisees.
+     */
+    public long validerPanier(Panier panier, ClientFidele client) throws StockInsuffisantException {
+        return validerPanier(panier, client, true);
+    }
+    
+    private long validerPanier(Panier panier, ClientFidele client, boolean bonusFidelite)
+            throws StockInsuffisantException {
+        if (panier.estVide()) {
+            return 0;
+        }
+        // Une vente a la fois par client (le bonus depend de son total), les autres en parallele
+        ReentrantLock verrou = verrouClient(client.getCin());
+        verrou.lock();
+        try {
+            for (int tentative = 1; ; tentative++) {
+                Vente vente = preparerVente(panier, client, bonusFidelite);
+                boolean enregistree;
+                try {
+                    enregistree = persisterVente(vente, panier);
+                } catch (StockInsuffisantException | RuntimeException e) {
+                    // Une vente validee en base garde ses reservations
+                    if (!vente.validee) {
+                        vente.annulerReservations();
+                    }
+                    throw e;
+                }
+                if (enregistree) {
+                    return appliquerVente(vente, client);
+                }
+                
+                // Total du client modifie par une autre instance: le relire et recalculer les prix
+                vente.annulerReservations();
+                if (tentative == TENTATIVES_VENTE) {
+                    throw new DatabaseException("Vente abandonnee: le client " + client.getCin()
+                            + " est modifie en continu par une autre caisse");
+                }
+                ClientFidele enBase = clientDAO.getByCin(client.getCin());
+                if (enBase == null) {
+                    throw new DatabaseException("Client avec CIN " + client.getCin() + " non trouve");
+                }
+                client.setMontantTotalAchats(enBase.getMontantTotalAchats());
+            }
+        } finally {
+            verrou.unlock();
         }
+    }
+    
+    /**
+     * Version asynchrone de validerPanier(): toute la vente s'execute en arriere-plan
+     * (ExecuteurDAO) et le resultat est rendu sur l'executeur de l'interface
+     * (Platform::runLater). Le panier ne doit pas etre modifie avant la fin de la validation,
+     * et aucun rafraichissement ne doit etre lance d'ici la: cette classe n'est pas verrouillee
+     * (PharmacieConcurrente l'est) et rafraichir() reecrirait les stocks reserves et le
+     * montant du client pendant la vente.
+     * Le resultat echoue avec StockInsuffisantException ou DatabaseException.
+     */
+    public CompletableFuture<Long> validerPanierAsync(Panier panier, ClientFidele client,
+                                                       Executor executeurInterface) {
+        return getExecuteurDAO().soumettre(() -> validerPanier(panier, client))
+                .thenApplyAsync(total -> total, executeurInterface);
+    }
+    
+    /**
+     * Stock reserve, decrements a enregistrer, lignes d'achat, nouveau montant du client et total d'un panier
+     */
+    protected static class Vente {
         
-        // Calculer le prix
-        double prix = m.getTranche(true);
+        private final List<Panier.Ligne> reservees = new ArrayList<>();
+        private final Map<Long, Integer> decrementsMedicaments = new LinkedHashMap<>();
+        private final Map<Long, Integer> decrementsAppareils = new LinkedHashMap<>();
+        private final List<Achat> achats = new ArrayList<>();
+        private long cin;
+        private long ancienMontantClient;
+        private long montantClient;
+        private long total;
+        // Registre de stock ou les reservations sont aussi enregistrees (null sans registre)
+        private RegistreStock registre;
+        // Transaction validee (ou inutile): les reservations ne doivent plus etre rendues
+        private boolean validee;
         
-        // Verifier si reduction de 15% applicable
-        if (client.getMontantTotalAchats() >= 100) {
-            prix = prix * 0.85; // Reduction de 15%
-            client.appliquerReductionEtReinitialiser();
+        public List<Achat> getAchats() {
+            return achats;
         }
         
-        // Ajouter au montant
-        client.ajouterAchat(prix);
-        
-        // Decrementer le stock
-        m.setQuantiteStock(m.getQuantiteStock() - 1);
+        /**
+         * Total paye en millimes
+         */
+        public long getTotal() {
+            return total;
+        }
         
-        // Sauvegarder les modifications
-        medicamentDAO.updateStock(m.getCode(), m.getQuantiteStock());
-        clientDAO.update(client);
+        private void annulerReservations() {
+            for (Panier.Ligne ligne : reservees) {
+                Vendable v = ligne.getVendable();
+                v.remettreStock(ligne.getQuantite());
+                if (registre != null) {
+                    registre.remettre(typeRegistre(v), codeDe(v), ligne.getQuantite());
+                }
+            }
+            reservees.clear();
+        }
+    }
+    
+    /**
+     * Reserve le stock en memoire (CAS par produit) et calcule les prix (avec ou sans
+     * bonus fidelite). Si un produit manque, les reservations deja faites sont rendues.
+     */
+    private Vente preparerVente(Panier panier, ClientFidele client, boolean bonusFidelite)
+            throws StockInsuffisantException {
+        Vente vente = new Vente();
+        vente.registre = registreStock;
         
-        // Mettre a jour la map
-        mapClientsFideles.put(cin, client.getMontantTotalAchats());
+        // Reserver le stock en memoire avant d'ouvrir une transaction
+        for (Panier.Ligne ligne : panier.getLignes()) {
+            Vendable v = ligne.getVendable();
+            if (!v.retirerStock(ligne.getQuantite())) {
+                vente.annulerReservations();
+                throw new StockInsuffisantException(v.getNomVendable(), v.getQuantiteStock(), ligne.getQuantite());
+            }
+            if (registreStock != null) {
+                // Vente enregistree dans le fichier avant la transaction: un arret ne la perd pas
+                try {
+                    registreStock.retirer(typeRegistre(v), codeDe(v), ligne.getQuantite());
+                } catch (IllegalStateException e) {
+                    v.remettreStock(ligne.getQuantite());
+                    vente.annulerReservations();
+                    throw e;
+                }
+            }
+            vente.reservees.add(ligne);
+            if (v instanceof Medicament m) {
+                vente.decrementsMedicaments.put(m.getCode(), ligne.getQuantite());
+            } else if (v instanceof AppareilMedical a) {
+                vente.decrementsAppareils.put(a.getCode(), ligne.getQuantite());
+            }
+        }
         
-        return prix;
+        // Calculer les prix ligne par ligne sans modifier le client avant le commit
+        // Montants en millimes: le seuil du bonus est compare sans derive d'arrondi
+        long montantClient = client.getMontantTotalAchats();
+        long total = 0;
+        List<Achat> achats = vente.achats;
+        for (Panier.Ligne ligne : panier.getLignes()) {
+            Vendable v = ligne.getVendable();
+            long prixLigne = Montant.multiplier(v.getTranche(true), ligne.getQuantite());
+            if (bonusFidelite && montantClient >= ClientFidele.SEUIL_REDUCTION) {
+                prixLigne = Montant.remise(prixLigne, REMISE_BONUS_FIDELITE);
+                montantClient = 0;
+            }
+            montantClient += prixLigne;
+            total += prixLigne;
+            achats.add(new Achat(client.getCin(), Achat.typeDe(v), codeDe(v), prixLigne, ligne.getQuantite()));
+        }
+        vente.cin = client.getCin();
+        vente.ancienMontantClient = client.getMontantTotalAchats();
+        vente.montantClient = montantClient;
+        vente.total = total;
+        return vente;
+    }
+    
+    /**
+     * Enregistre la vente dans une seule transaction, puis confie les lignes ACHAT
+     * au journal s'il est asynchrone. Redefinie par les benchmarks pour mesurer
+     * la vente en memoire sans base de donnees.
+     * Les stocks sont decrementes sous condition en un aller-retour par table (sans lecture
+     * prealable) et le total du client n'est remplace que s'il n'a pas change depuis sa lecture.
+     * Retourne false (transaction annulee) si une autre instance a modifie le total du client.
+     * Avec un registre de stock, les stocks ne sont pas ecrits ici: le reconciliateur
+     * les reporte plus tard. Avec l'ecriture differee des clients, le nouveau total est
+     * confie a EcritureDiffereeClients apres la transaction (qui n'est pas ouverte s'il ne
+     * reste rien a y ecrire).
+     */
+    protected boolean persisterVente(Vente vente, Panier panier) throws StockInsuffisantException {
+        if (registreStock == null || ecritureClients == null || journalVentes.estSynchrone()) {
+            if (!executerTransactionVente(vente, panier)) {
+                return false;
+            }
+        }
+        vente.validee = true;
+        confierEcrituresDifferees(vente);
+        return true;
+    }
+    
+    /**
+     * Ecritures confiees apres la validation (total differe du client, journal asynchrone,
+     * registre de stock). La vente est deja en base: un echec est signale, jamais propage.
+     */
+    private void confierEcrituresDifferees(Vente vente) {
+        if (ecritureClients != null) {
+            try {
+                ecritureClients.modifierMontantAchats(vente.cin, vente.ancienMontantClient, vente.montantClient);
+            } catch (RuntimeException e) {
+                System.err.println("Total du client " + vente.cin + " non confie a l'ecriture differee: "
+                        + e.getMessage());
+            }
+        }
+        if (!journalVentes.estSynchrone()) {
+            try {
+                journalVentes.enregistrer(vente.achats);
+            } catch (RuntimeException e) {
+                System.err.println("Achats de la vente non journalises (" + vente.achats.size()
+                        + " lignes, client " + vente.cin + "): " + e.getMessage());
+            }
+        }
+        if (reconciliateurStock != null) {
+            try {
+                reconciliateurStock.demarrerSiNecessaire();
+            } catch (RuntimeException e) {
+                System.err.println("Reconciliation du registre de stock non demarree: " + e.getMessage());
+            }
+        }
+    }
+    
+    private boolean executerTransactionVente(Vente vente, Panier panier) throws StockInsuffisantException {
+        try (Connection connection = DatabaseConnection.getInstance().getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                if (registreStock == null) {
+                    verifierDecrements(medicamentDAO.decrementerStocks(connection, vente.decrementsMedicaments),
+                            vente.decrementsMedicaments, panier);
+                    verifierDecrements(appareilDAO.decrementerStocks(connection, vente.decrementsAppareils),
+                            vente.decrementsAppareils, panier);
+                }
+                if (ecritureClients == null && !clientDAO.remplacerMontantAchats(connection, vente.cin,
+                        vente.ancienMontantClient, vente.montantClient)) {
+                    connection.rollback();
+                    return false;
+                }
+                if (journalVentes.estSynchrone()) {
+                    achatDAO.ajouterLot(connection, vente.achats);
+                }
+                connection.commit();
+                vente.validee = true;
+                return true;
+            } catch (StockInsuffisantException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            if (vente.validee) {
+                // Commit deja fait: seule la restitution de la connexion au pool a echoue
+                System.err.println("Erreur apres la validation du panier: " + e.getMessage());
+                return true;
+            }
+            throw new DatabaseException("Erreur lors de la validation du panier: " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Ecrit immediatement en base ce qui a ete differe pendant les ventes (totaux des clients,
+     * stocks du registre, achats du journal asynchrone). Appelee a la fermeture de la caisse.
+     */
+    public void fermerCaisse() {
+        if (ecritureClients != null) {
+            ecritureClients.vider();
+        }
+        if (reconciliateurStock != null) {
+            reconciliateurStock.reconcilier();
+        }
+        journalVentes.vider();
+    }
+    
+    /**
+     * Transaction validee: met a jour le client en memoire et retourne le total paye.
+     * Le stock en memoire, deja diminue par la reservation, n'est pas remplace par la valeur
+     * retournee par la base: d'autres caisses peuvent y avoir des reservations pas encore
+     * validees. Les ventes des autres instances sont reprises par rafraichir(), et le
+     * decrement conditionnel en base refuse toute vente au-dela du stock reel.
+     */
+    private long appliquerVente(Vente vente, ClientFidele client) {
+        client.setMontantTotalAchats(vente.montantClient);
+        mapClientsFideles.put(client.getCin(), vente.montantClient);
+        if (!vente.decrementsMedicaments.isEmpty()) {
+            index.stocksModifies();
+        }
+        return vente.total;
+    }
+    
+    private ReentrantLock verrouClient(long cin) {
+        return verrousClients[Math.floorMod(Long.hashCode(cin), verrousClients.length)];
+    }
+    
+    /**
+     * Verifie le resultat des decrements conditionnels: un stock retourne a -1
+     * (ligne non modifiee) signifie que le stock en base etait insuffisant.
+     */
+    private void verifierDecrements(int[] resultats, Map<Long, Integer> decrements, Panier panier)
+            throws StockInsuffisantException {
+        int i = 0;
+        for (Map.Entry<Long, Integer> e : decrements.entrySet()) {
+            if (resultats[i++] < 0) {
+                String nom = panier.getLignes().stream()
+                        .map(Panier.Ligne::getVendable)
+                        .filter(v -> codeDe(v) == e.getKey())
+                        .map(Vendable::getNomVendable)
+                        .findFirst()
+                        .orElse(String.valueOf(e.getKey()));
+                throw new StockInsuffisantException("Stock insuffisant en base pour '" + nom
+                        + "' (vendu entre-temps sur une autre caisse)");
+            }
+        }
+    }
+    
+    private static int typeRegistre(Vendable v) {
+        return v instanceof AppareilMedical ? RegistreStock.APPAREIL : RegistreStock.MEDICAMENT;
+    }
+    
+    private static long codeDe(Vendable v) {
+        if (v instanceof Medicament m) {
+            return m.getCode();
+        }
+        if (v instanceof AppareilMedical a) {
+            return a.getCode();
+        }
+        throw new IllegalArgumentException("Type de produit non supporte: " + v);
     }
     
     // ============================================
@@ -180,10 +996,7 @@ public class Pharmacie {
      * et dont le prix est superieur a 2 DT (TP8)
      */
     public long compterMedicamentsCommencantParPEtPrixSup2() {
-        return listeMedicaments.stream()
-                .filter(m -> m.getNom().toLowerCase().startsWith("p"))
-                .filter(m -> m.getPrix() > 2)
-                .count();
+        return index.getColonnes().compterParInitialeEtPrixSuperieur('p', 2 * Montant.MILLIMES_PAR_DINAR);
     }
     
     /**
@@ -197,29 +1010,58 @@ public class Pharmacie {
     }
     
     /**
-     * Recherche les medicaments par nom avec Stream
+     * Recherche les medicaments dont le nom contient le texte (index de trigrammes,
+     * sans tenir compte de la casse ni des accents)
      */
     public List<Medicament> rechercherMedicamentsParNom(String nom) {
-        return listeMedicaments.stream()
-                .filter(m -> m.getNom().toLowerCase().contains(nom.toLowerCase()))
-                .collect(Collectors.toList());
+        return index.rechercherMedicamentsParNomContenant(nom, Integer.MAX_VALUE);
+    }
+    
+    /**
+     * Recherche les medicaments dont le nom, le genre, le constituant chimique
+     * ou la plante utilisee contient le texte
+     */
+    public List<Medicament> rechercherMedicaments(String texte) {
+        return index.rechercherMedicamentsContenant(texte, Integer.MAX_VALUE);
     }
     
     /**
      * Recherche les medicaments par categorie avec Stream
      */
     public List<Medicament> rechercherMedicamentsParCategorie(String categorie) {
-        return listeMedicaments.stream()
-                .filter(m -> m.getTypeMedicament().equalsIgnoreCase(categorie))
-                .collect(Collectors.toList());
+        return new ArrayList<>(index.getMedicamentsParType(categorie));
     }
     
     /**
      * Recherche les medicaments dont le nom commence par certaines lettres
+     * (sans tenir compte de la casse ni des accents, ordre alphabetique)
      */
     public List<Medicament> rechercherMedicamentsParPremieresLettres(String lettres) {
-        return listeMedicaments.stream()
-                .filter(m -> m.getNom().toLowerCase().startsWith(lettres.toLowerCase()))
+        return rechercherMedicamentsParPremieresLettres(lettres, Integer.MAX_VALUE);
+    }
+    
+    /**
+     * Retourne les 'limite' premiers medicaments dont le nom commence par certaines lettres
+     */
+    public List<Medicament> rechercherMedicamentsParPremieresLettres(String lettres, int limite) {
+        return index.rechercherMedicamentsParPrefixe(lettres, limite);
+    }
+    
+    /**
+     * Retourne les 'limite' premiers appareils dont le nom commence par certaines lettres
+     */
+    public List<AppareilMedical> rechercherAppareilsParPremieresLettres(String lettres, int limite) {
+        return index.rechercherAppareilsParPrefixe(lettres, limite);
+    }
+    
+    /**
+     * Recherche les appareils dont le nom contient le texte (en memoire, sans acces a la base)
+     */
+    public List<AppareilMedical> rechercherAppareilsParNom(String texte) {
+        String recherche = Normalisation.normaliser(texte);
+        return listeAppareils.stream()
+                .filter(a -> Normalisation.normaliser(a.getNom()).contains(recherche))
+                .sorted(Comparator.comparing(AppareilMedical::getNom))
                 .collect(Collectors.toList());
     }
     
@@ -227,9 +1069,7 @@ public class Pharmacie {
      * Trie les medicaments par prix croissant
      */
     public List<Medicament> trierMedicamentsParPrix() {
-        return listeMedicaments.stream()
-                .sorted(Comparator.comparingDouble(Medicament::getPrix))
-                .collect(Collectors.toList());
+        return index.getColonnes().trierParPrix();
     }
     
     /**
@@ -242,11 +1082,11 @@ public class Pharmacie {
     }
     
     /**
-     * Calcule le prix total d'une liste de vendables pour un client fidele (TP5)
+     * Calcule le prix total (en millimes) d'une liste de vendables pour un client fidele (TP5)
      */
-    public double calculerPrixFidele(List<Vendable> vendables) {
+    public long calculerPrixFidele(List<Vendable> vendables) {
         return vendables.stream()
-                .mapToDouble(v -> v.getTranche(true))
+                .mapToLong(v -> v.getTranche(true))
                 .sum();
     }
     
@@ -254,20 +1094,14 @@ public class Pharmacie {
      * Liste uniquement les medicaments homeopathiques (TP5)
      */
     public List<MedicamentHomeopathique> listerMedicamentsHomeo() {
-        return listeMedicaments.stream()
-                .filter(m -> m instanceof MedicamentHomeopathique)
-                .map(m -> (MedicamentHomeopathique) m)
-                .collect(Collectors.toList());
+        return index.getColonnes().filtrerParType("HOMEOPATHIQUE", MedicamentHomeopathique.class);
     }
     
     /**
      * Liste uniquement les medicaments chimiques
      */
     public List<MedicamentChimique> listerMedicamentsChimiques() {
-        return listeMedicaments.stream()
-                .filter(m -> m instanceof MedicamentChimique)
-                .map(m -> (MedicamentChimique) m)
-                .collect(Collectors.toList());
+        return index.getColonnes().filtrerParType("CHIMIQUE", MedicamentChimique.class);
     }
     
     /**
@@ -275,21 +1109,29 @@ public class Pharmacie {
      */
     public List<Medicament> getMedicamentsExpirantDans(int mois) {
         LocalDate dateLimite = LocalDate.now().plusMonths(mois);
-        return listeMedicaments.stream()
-                .filter(m -> m.getDateExpiration() != null)
-                .filter(m -> !m.getDateExpiration().isAfter(dateLimite))
-                .sorted(Comparator.comparing(Medicament::getDateExpiration))
-                .collect(Collectors.toList());
+        return index.getMedicamentsExpirantAvant(dateLimite);
     }
     
     /**
      * Applique une remise de 30% sur les medicaments qui expirent dans 1 mois
+     * et qui n'ont pas encore ete remises (meme traitement que le balayage automatique).
+     * Retourne le nombre de medicaments remises.
+     */
+    public int appliquerRemiseMedicamentsExpirants() {
+        return planificateurExpiration.balayer().getLignesModifiees();
+    }
+    
+    /**
+     * Reporte en memoire les prix remises par un balayage
      */
-    public void appliquerRemiseMedicamentsExpirants() {
-        List<Medicament> expirants = getMedicamentsExpirantDans(1);
-        expirants.forEach(m -> {
-            m.appliquerRemise(30);
-            medicamentDAO.update(m);
+    private void appliquerRemisesEnMemoire(PlanificateurExpiration.ResultatBalayage resultat) {
+        resultat.getNouveauxPrix().forEach((code, prix) -> {
+            Medicament m = index.getMedicamentParCode(code);
+            if (m != null) {
+                m.setPrix(prix);
+                m.setRemiseExpiration(true);
+                index.prixModifie(m);
+            }
         });
     }
     
@@ -297,55 +1139,92 @@ public class Pharmacie {
     // CALCULS STATISTIQUES AVEC STREAMS
     // ============================================
     
+    // Les statistiques sont maintenues a chaque modification du catalogue
+    // (StatistiquesCatalogue): la lecture ne parcourt pas la liste. Les autres analyses
+    // parcourent la copie en colonnes du catalogue (ColonnesCatalogue) au lieu des objets.
+    
     /**
-     * Calcule la moyenne des prix des medicaments
+     * Calcule la moyenne des prix des medicaments (en millimes)
      */
-    public double moyennePrixMedicaments() {
-        return listeMedicaments.stream()
-                .mapToDouble(Medicament::getPrix)
-                .average()
-                .orElse(0.0);
+    public long moyennePrixMedicaments() {
+        return index.getStatistiques().getGlobal().getMoyenne();
     }
     
     /**
      * Trouve le medicament le plus cher
      */
     public Optional<Medicament> medicamentLePlusCher() {
-        return listeMedicaments.stream()
-                .max(Comparator.comparingDouble(Medicament::getPrix));
+        return index.getStatistiques().getGlobal().getPlusCher();
     }
     
     /**
      * Trouve le medicament le moins cher
      */
     public Optional<Medicament> medicamentLeMoinsCher() {
-        return listeMedicaments.stream()
-                .min(Comparator.comparingDouble(Medicament::getPrix));
+        return index.getStatistiques().getGlobal().getMoinsCher();
     }
     
     /**
-     * Somme des prix de tous les medicaments
+     * Somme exacte des prix de tous les medicaments (en millimes)
      */
-    public double sommePrixMedicaments() {
-        return listeMedicaments.stream()
-                .mapToDouble(Medicament::getPrix)
-                .sum();
+    public long sommePrixMedicaments() {
+        return index.getStatistiques().getGlobal().getSomme();
+    }
+    
+    /**
+     * Statistiques des prix d'un type de medicament (CHIMIQUE ou HOMEOPATHIQUE)
+     */
+    public StatistiquesCatalogue.Agregat statistiquesParType(String type) {
+        return index.getStatistiques().getParType(type);
+    }
+    
+    /**
+     * Statistiques des prix d'un genre de medicament
+     */
+    public StatistiquesCatalogue.Agregat statistiquesParGenre(String genre) {
+        return index.getStatistiques().getParGenre(genre);
+    }
+    
+    /**
+     * Valeur du stock de medicaments (prix x quantite), en millimes
+     */
+    public long valeurStockMedicaments() {
+        return index.getColonnes().valeurStock();
+    }
+    
+    /**
+     * Valeur du stock des medicaments qui expirent dans X mois, en millimes
+     */
+    public long valeurStockExpirantDans(int mois) {
+        return index.getColonnes().valeurStockExpirantAvant(LocalDate.now().plusMonths(mois));
+    }
+    
+    /**
+     * Valeur du stock par genre de medicament, en millimes
+     */
+    public Map<String, Long> valeurStockParGenre() {
+        return index.getColonnes().valeurStockParGenre();
+    }
+    
+    /**
+     * Copie en colonnes (tableaux primitifs) des medicaments, pour d'autres analyses
+     */
+    public ColonnesCatalogue.Instantane getColonnesMedicaments() {
+        return index.getColonnes();
     }
     
     /**
      * Groupe les medicaments par genre
      */
     public Map<String, List<Medicament>> grouperParGenre() {
-        return listeMedicaments.stream()
-                .collect(Collectors.groupingBy(Medicament::getGenre));
+        return index.grouperParGenre();
     }
     
     /**
      * Groupe les medicaments par type (chimique/homeopathique)
      */
     public Map<String, List<Medicament>> grouperParType() {
-        return listeMedicaments.stream()
-                .collect(Collectors.groupingBy(Medicament::getTypeMedicament));
+        return index.grouperParType();
     }
     
     // ============================================
@@ -354,17 +1233,62 @@ public class Pharmacie {
     
     public void ajouterClient(ClientFidele client) {
         clientDAO.ajouter(client);
+        clientAjoute(client);
+    }
+    
+    /**
+     * Reporte en memoire un client deja enregistre en base
+     */
+    void clientAjoute(ClientFidele client) {
+        cacheClients.invalider(client.getCin());
         listeClientsFideles.add(client);
         mapClientsFideles.put(client.getCin(), client.getMontantTotalAchats());
+        index.ajouterClient(client);
     }
     
     public boolean supprimerClient(long cin) {
         boolean supprime = clientDAO.supprimer(cin);
+        clientSupprime(cin, supprime);
+        return supprime;
+    }
+    
+    /**
+     * Oublie le CIN du cache et, si la ligne a ete supprimee en base, retire le client de la memoire
+     */
+    void clientSupprime(long cin, boolean supprime) {
+        cacheClients.invalider(cin);
         if (supprime) {
-            listeClientsFideles.removeIf(c -> c.getCin() == cin);
+            ClientFidele client = index.retirerClient(cin);
+            if (client != null) {
+                listeClientsFideles.remove(client);
+            }
             mapClientsFideles.remove(cin);
         }
-        return supprime;
+    }
+    
+    /**
+     * Recherche les clients dont le nom ou le prenom contient le texte,
+     * tries par nom puis prenom (index de trigrammes)
+     */
+    public List<ClientFidele> rechercherClientsParNom(String texte) {
+        List<ClientFidele> clients = new ArrayList<>(index.rechercherClientsContenant(texte, Integer.MAX_VALUE));
+        clients.sort(Comparator.comparing(ClientFidele::getNom)
+                .thenComparing(ClientFidele::getPrenom));
+        return clients;
+    }
+    
+    /**
+     * Retourne le client de ce CIN (index par cle primaire)
+     */
+    public ClientFidele getClient(long cin) {
+        return index.getClient(cin);
+    }
+    
+    /**
+     * Indique si un client de ce CIN existe (index, sinon cache des clients lus en base)
+     */
+    public boolean existeClient(long cin) {
+        return index.getClient(cin) != null || cacheClients.existe(cin);
     }
     
     // ============================================
@@ -373,17 +1297,45 @@ public class Pharmacie {
     
     public void ajouterAppareil(AppareilMedical appareil) {
         appareilDAO.ajouter(appareil);
+        appareilAjoute(appareil);
+    }
+    
+    void appareilAjoute(AppareilMedical appareil) {
         listeAppareils.add(appareil);
+        index.ajouterAppareil(appareil);
+    }
+    
+    /**
+     * Importe plusieurs appareils en une seule transaction (codes attribues par blocs)
+     */
+    public void importerAppareils(List<AppareilMedical> appareils) {
+        appareilDAO.ajouterLot(appareils);
+        listeAppareils.addAll(appareils);
+        appareils.forEach(index::ajouterAppareil);
     }
     
     public boolean supprimerAppareil(long code) {
         boolean supprime = appareilDAO.supprimer(code);
         if (supprime) {
-            listeAppareils.removeIf(a -> a.getCode() == code);
+            appareilSupprime(code);
         }
         return supprime;
     }
     
+    void appareilSupprime(long code) {
+        AppareilMedical appareil = index.retirerAppareil(code);
+        if (appareil != null) {
+            listeAppareils.remove(appareil);
+        }
+    }
+    
+    /**
+     * Retourne l'appareil de ce code (index par cle primaire)
+     */
+    public AppareilMedical getAppareilParCode(long code) {
+        return index.getAppareilParCode(code);
+    }
+    
     /**
      * Obtient tous les vendables (medicaments + appareils)
      */
@@ -394,6 +1346,34 @@ public class Pharmacie {
         return vendables;
     }
     
+    // ============================================
+    // PAGES POUR LES TABLEAUX (pagination par cle)
+    // ============================================
+    
+    // Lues directement dans la base (a appeler hors du thread de l'interface):
+    // un tableau n'a pas besoin d'attendre le chargement complet du catalogue
+    
+    /**
+     * Medicaments tries par nom puis code qui suivent le medicament donne (null: premiere page)
+     */
+    public List<Medicament> getPageMedicaments(Medicament dernier, int taille) {
+        return medicamentDAO.getPageApres(dernier, taille);
+    }
+    
+    /**
+     * Clients tries par nom, prenom puis CIN qui suivent le client donne (null: premiere page)
+     */
+    public List<ClientFidele> getPageClients(ClientFidele dernier, int taille) {
+        return clientDAO.getPageApres(dernier, taille);
+    }
+    
+    /**
+     * Appareils tries par nom puis code qui suivent l'appareil donne (null: premiere page)
+     */
+    public List<AppareilMedical> getPageAppareils(AppareilMedical dernier, int taille) {
+        return appareilDAO.getPageApres(dernier, taille);
+    }
+    
     // ============================================
     // GESTION DES ETAGERES
     // ============================================
@@ -426,7 +1406,7 @@ public class Pharmacie {
         return mapMedicaments;
     }
     
-    public Map<Long, Double> getMapClientsFideles() {
+    public Map<Long, Long> getMapClientsFideles() {
         return mapClientsFideles;
     }
     
@@ -441,4 +1421,45 @@ public class Pharmacie {
     public AppareilMedicalDAO getAppareilDAO() {
         return appareilDAO;
     }
+    
+    /**
+     * Executeur des operations DAO sur threads virtuels (acces concurrents limites au pool)
+     */
+    public ExecuteurDAO getExecuteurDAO() {
+        return ExecuteurDAO.getInstance();
+    }
+    
+    public AchatDAO getAchatDAO() {
+        return achatDAO;
+    }
+    
+    public JournalVentes getJournalVentes() {
+        return journalVentes;
+    }
+    
+    /**
+     * Registre de stock, null sans -Dpharmacie.stock.registre
+     */
+    public RegistreStock getRegistreStock() {
+        return registreStock;
+    }
+    
+    public ReconciliateurStock getReconciliateurStock() {
+        return reconciliateurStock;
+    }
+    
+    /**
+     * Ecriture differee des clients, null sans -Dpharmacie.clients.ecritureDifferee=true
+     */
+    public EcritureDiffereeClients getEcritureClients() {
+        return ecritureClients;
+    }
+    
+    public CacheClients getCacheClients() {
+        return cacheClients;
+    }
+    
+    public PlanificateurExpiration getPlanificateurExpiration() {
+        return planificateurExpiration;
+    }
 }
@@ -0,0 +1,288 @@
+package service;
+
+import exception.MedicamentNonTrouveException;
+import exception.StockInsuffisantException;
+import model.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Pharmacie partagee par plusieurs caisses (threads) dans le meme processus.
+ *
+ * Les listes, maps et index de Pharmacie ne sont modifies que sous le verrou en ecriture
+ * (ajout, suppression, rafraichissement, remises); les requetes en base de ces modifications
+ * s'executent avant, hors du verrou. Toutes les lectures et les ventes
+ * prennent le verrou en lecture et s'executent donc en parallele. Pendant une vente,
+ * le stock de chaque produit est decremente par CAS (Vendable.retirerStock): deux caisses
+ * qui vendent la derniere boite ne peuvent pas reussir toutes les deux. Les ventes d'un
+ * meme client sont serialisees par Pharmacie (verrous repartis par CIN).
+ *
+ * Les listes retournees sont des copies: elles restent valides apres le retour.
+ */
+public class PharmacieConcurrente {
+    
+    private final Pharmacie pharmacie;
+    private final Lock lecture;
+    private final Lock ecriture;
+    
+    public PharmacieConcurrente(Pharmacie pharmacie) {
+        ReentrantReadWriteLock verrou = new ReentrantReadWriteLock();
+        this.pharmacie = pharmacie;
+        this.lecture = verrou.readLock();
+        this.ecriture = verrou.writeLock();
+    }
+    
+    /**
+     * Demarre les remises automatiques; leurs mises a jour en memoire prennent le verrou en ecriture
+     */
+    public void demarrerPlanificateurExpiration() {
+        pharmacie.demarrerPlanificateurExpiration(executeurExclusif());
+    }
+    
+    // ============================================
+    // VENTES (verrou en lecture: plusieurs caisses en parallele)
+    // ============================================
+    
+    public long validerPanier(Panier panier, ClientFidele client) throws StockInsuffisantException {
+        lecture.lock();
+        try {
+            return pharmacie.validerPanier(panier, client);
+        } finally {
+            lecture.unlock();
+        }
+    }
+    
+    public long achatMedicament(String nomMedicament, long cin)
+            throws StockInsuffisantException, MedicamentNonTrouveException {
+        lecture.lock();
+        try {
+            return pharmacie.achatMedicament(nomMedicament, cin);
+        } finally {
+            lecture.unlock();
+        }
+    }
+    
+    // ============================================
+    // LECTURES
+    // ============================================
+    
+    public Medicament getMedicamentParCode(long code) {
+        return enLecture(() -> pharmacie.getMedicamentParCode(code));
+    }
+    
+    public ClientFidele getClient(long cin) {
+        return enLecture(() -> pharmacie.getClient(cin));
+    }
+    
+    public AppareilMedical getAppareilParCode(long code) {
+        return enLecture(() -> pharmacie.getAppareilParCode(code));
+    }
+    
+    public List<Medicament> rechercherMedicamentsParNom(String nom) {
+        return enLecture(() -> pharmacie.rechercherMedicamentsParNom(nom));
+    }
+    
+    public List<Medicament> rechercherMedicaments(String texte) {
+        return enLecture(() -> pharmacie.rechercherMedicaments(texte));
+    }
+    
+    public List<Medicament> rechercherMedicamentsParPremieresLettres(String lettres, int limite) {
+        return enLecture(() -> pharmacie.rechercherMedicamentsParPremieresLettres(lettres, limite));
+    }
+    
+    public List<Medicament> rechercherMedicamentsParCategorie(String categorie) {
+        return enLecture(() -> pharmacie.rechercherMedicamentsParCategorie(categorie));
+    }
+    
+    public List<ClientFidele> rechercherClientsParNom(String texte) {
+        return enLecture(() -> pharmacie.rechercherClientsParNom(texte));
+    }
+    
+    public List<Medicament> getMedicamentsExpirantDans(int mois) {
+        return enLecture(() -> pharmacie.getMedicamentsExpirantDans(mois));
+    }
+    
+    public long moyennePrixMedicaments() {
+        return enLecture(pharmacie::moyennePrixMedicaments);
+    }
+    
+    public long valeurStockMedicaments() {
+        return enLecture(pharmacie::valeurStockMedicaments);
+    }
+    
+    public Optional<Medicament> medicamentLePlusCher() {
+        return enLecture(pharmacie::medicamentLePlusCher);
+    }
+    
+    public Optional<Medicament> medicamentLeMoinsCher() {
+        return enLecture(pharmacie::medicamentLeMoinsCher);
+    }
+    
+    public int nombreMedicaments() {
+        return enLecture(pharmacie::nombreMedicaments);
+    }
+    
+    public List<Medicament> getListeMedicaments() {
+        return enLecture(() -> new ArrayList<>(pharmacie.getListeMedicaments()));
+    }
+    
+    public List<ClientFidele> getListeClientsFideles() {
+        return enLecture(() -> new ArrayList<>(pharmacie.getListeClientsFideles()));
+    }
+    
+    public List<AppareilMedical> getListeAppareils() {
+        return enLecture(() -> new ArrayList<>(pharmacie.getListeAppareils()));
+    }
+    
+    // ============================================
+    // MODIFICATIONS DU CATALOGUE (requete hors verrou, memoire sous le verrou en ecriture)
+    // ============================================
+    
+    public void ajouterMedicament(Medicament m) {
+        pharmacie.getMedicamentDAO().ajouter(m);
+        enEcriture(() -> {
+            pharmacie.medicamentAjoute(m);
+            return null;
+        });
+    }
+    
+    public boolean supprimerMedicament(String nomMedicament) {
+        boolean supprime = pharmacie.getMedicamentDAO().supprimerParNom(nomMedicament);
+        if (supprime) {
+            enEcriture(() -> {
+                pharmacie.medicamentsSupprimes(nomMedicament);
+                return null;
+            });
+        }
+        return supprime;
+    }
+    
+    public boolean mettreAJourMedicament(Medicament m) {
+        boolean modifie = pharmacie.getMedicamentDAO().update(m);
+        enEcriture(() -> {
+            pharmacie.medicamentModifie(m);
+            return null;
+        });
+        return modifie;
+    }
+    
+    public void ajouterClient(ClientFidele client) {
+        pharmacie.getClientDAO().ajouter(client);
+        enEcriture(() -> {
+            pharmacie.clientAjoute(client);
+            return null;
+        });
+    }
+    
+    public boolean supprimerClient(long cin) {
+        boolean supprime = pharmacie.getClientDAO().supprimer(cin);
+        enEcriture(() -> {
+            pharmacie.clientSupprime(cin, supprime);
+            return null;
+        });
+        return supprime;
+    }
+    
+    public void ajouterAppareil(AppareilMedical appareil) {
+        pharmacie.getAppareilDAO().ajouter(appareil);
+        enEcriture(() -> {
+            pharmacie.appareilAjoute(appareil);
+            return null;
+        });
+    }
+    
+    public boolean supprimerAppareil(long code) {
+        boolean supprime = pharmacie.getAppareilDAO().supprimer(code);
+        if (supprime) {
+            enEcriture(() -> {
+                pharmacie.appareilSupprime(code);
+                return null;
+            });
+        }
+        return supprime;
+    }
+    
+    /**
+     * Remplace tout le catalogue (donnees deja lues: aucune requete sous le verrou)
+     */
+    public void chargerDonnees(List<Medicament> medicaments, List<ClientFidele> clients,
+                               List<AppareilMedical> appareils) {
+        enEcriture(() -> {
+            pharmacie.chargerDonnees(medicaments, clients, appareils);
+            return null;
+        });
+    }
+    
+    /**
+     * Relit les changements de la base sans bloquer les caisses pendant les requetes:
+     * seule l'integration en memoire prend le verrou en ecriture
+     */
+    public void rafraichir() {
+        Pharmacie.Changements changements = pharmacie.ouvrirChangements();
+        List<Medicament> medicaments;
+        List<ClientFidele> clients;
+        List<AppareilMedical> appareils;
+        try {
+            medicaments = pharmacie.lireMedicaments(changements);
+            clients = pharmacie.lireClients(changements);
+            appareils = pharmacie.lireAppareils(changements);
+            pharmacie.lireSuppressions(changements);
+        } finally {
+            pharmacie.terminerLecture(changements);
+        }
+        
+        enEcriture(() -> {
+            pharmacie.commencerChangements(changements);
+            pharmacie.integrerMedicaments(changements, medicaments);
+            pharmacie.integrerClients(clients);
+            pharmacie.integrerAppareils(changements, appareils);
+            pharmacie.terminerChangements(changements);
+            return null;
+        });
+    }
+    
+    /**
+     * Pharmacie sous-jacente, pour un acces exclusif (par exemple l'interface) via enEcriture()
+     */
+    public Pharmacie getPharmacie() {
+        return pharmacie;
+    }
+    
+    /**
+     * Executeur qui lance chaque tache sous le verrou en ecriture
+     */
+    public Executor executeurExclusif() {
+        return tache -> enEcriture(() -> {
+            tache.run();
+            return null;
+        });
+    }
+    
+    // ============================================
+    // VERROUS
+    // ============================================
+    
+    private <T> T enLecture(Supplier<T> operation) {
+        lecture.lock();
+        try {
+            return operation.get();
+        } finally {
+            lecture.unlock();
+        }
+    }
+    
+    public <T> T enEcriture(Supplier<T> operation) {
+        ecriture.lock();
+        try {
+            return operation.get();
+        } finally {
+            ecriture.unlock();
+        }
+    }
+}
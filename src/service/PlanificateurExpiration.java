@@ -0,0 +1,258 @@
+package service;
+
+import dao.MedicamentDAO;
+import model.Medicament;
+import model.Montant;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Planificateur des remises sur les medicaments qui arrivent a expiration.
+ *
+ * Un balayage est lance au demarrage puis chaque jour a minuit, sur un thread
+ * dedie (jamais sur le thread de l'interface ni pendant une vente). Chaque balayage:
+ * - lit uniquement les medicaments pas encore remises dont l'expiration est dans
+ *   la fenetre (index (remise_expiration, date_expiration)), donc seulement ceux
+ *   qui ont franchi le seuil depuis le balayage precedent;
+ * - enregistre les nouveaux prix en un seul batch conditionnel (idempotent);
+ * - previent les ecouteurs (mise a jour en memoire, alertes) avec sa duree
+ *   et le nombre de lignes touchees.
+ */
+public class PlanificateurExpiration {
+    
+    private static final long UN_JOUR_MS = TimeUnit.DAYS.toMillis(1);
+    
+    private final MedicamentDAO medicamentDAO;
+    private final int pourcentageRemise;
+    private final int moisAvantExpiration;
+    private final List<EcouteurExpiration> ecouteurs = new CopyOnWriteArrayList<>();
+    
+    // Executeur des ecouteurs (Platform::runLater pour l'interface JavaFX)
+    private Executor executeurEcouteurs = Runnable::run;
+    private ScheduledExecutorService planificateur;
+    
+    // Statistiques
+    private ResultatBalayage dernierResultat;
+    private long nombreBalayages;
+    private long nombreLignesModifiees;
+    private long dureeTotaleMs;
+    
+    /**
+     * @param pourcentageRemise remise appliquee aux medicaments expirants (30 pour 30%)
+     * @param moisAvantExpiration fenetre avant la date d'expiration (1 pour un mois)
+     */
+    public PlanificateurExpiration(MedicamentDAO medicamentDAO, int pourcentageRemise, int moisAvantExpiration) {
+        this.medicamentDAO = medicamentDAO;
+        this.pourcentageRemise = pourcentageRemise;
+        this.moisAvantExpiration = moisAvantExpiration;
+    }
+    
+    // ============================================
+    // PLANIFICATION
+    // ============================================
+    
+    /**
+     * Lance un balayage immediat puis un balayage par jour a minuit.
+     * Les ecouteurs sont appeles via l'executeur fourni.
+     */
+    public synchronized void demarrer(Executor executeurEcouteurs) {
+        if (planificateur != null) {
+            return;
+        }
+        this.executeurEcouteurs = executeurEcouteurs;
+        planificateur = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "planificateur-expiration");
+            t.setDaemon(true);
+            return t;
+        });
+        
+        long delaiMinuit = Duration.between(LocalDateTime.now(),
+                LocalDate.now().plusDays(1).atStartOfDay()).toMillis();
+        planificateur.schedule(this::balayerSansErreur, 0, TimeUnit.MILLISECONDS);
+        planificateur.scheduleAtFixedRate(this::balayerSansErreur, delaiMinuit, UN_JOUR_MS, TimeUnit.MILLISECONDS);
+    }
+    
+    public synchronized void arreter() {
+        if (planificateur != null) {
+            planificateur.shutdownNow();
+            planificateur = null;
+        }
+    }
+    
+    public void ajouterEcouteur(EcouteurExpiration ecouteur) {
+        ecouteurs.add(ecouteur);
+    }
+    
+    public void retirerEcouteur(EcouteurExpiration ecouteur) {
+        ecouteurs.remove(ecouteur);
+    }
+    
+    // Une exception non rattrapee annulerait les balayages suivants
+    private void balayerSansErreur() {
+        try {
+            balayer();
+        } catch (RuntimeException e) {
+            System.err.println("Erreur lors du balayage des medicaments expirants: " + e.getMessage());
+        }
+    }
+    
+    // ============================================
+    // BALAYAGE
+    // ============================================
+    
+    /**
+     * Applique la remise a tous les medicaments entres dans la fenetre d'expiration
+     * et pas encore remises. Peut etre appele a tout moment (bouton de l'interface):
+     * un medicament n'est jamais remise deux fois.
+     */
+    public synchronized ResultatBalayage balayer() {
+        long debut = System.nanoTime();
+        LocalDate limite = LocalDate.now().plusMonths(moisAvantExpiration);
+        
+        List<Medicament> candidats = medicamentDAO.getMedicamentsARemiser(limite);
+        Map<Long, Long> nouveauxPrix = new LinkedHashMap<>();
+        for (Medicament m : candidats) {
+            m.appliquerRemiseExpiration(pourcentageRemise);
+            nouveauxPrix.put(m.getCode(), m.getPrix());
+        }
+        int[] modifies = medicamentDAO.appliquerRemisesExpiration(nouveauxPrix);
+        
+        // Garder les remises effectivement enregistrees et preparer les alertes
+        Map<Long, Long> appliques = new LinkedHashMap<>();
+        List<String> alertes = new ArrayList<>();
+        LocalDate aujourdhui = LocalDate.now();
+        for (int i = 0; i < candidats.size(); i++) {
+            Medicament m = candidats.get(i);
+            if (modifies[i] <= 0) {
+                continue; // deja remise entre-temps
+            }
+            appliques.put(m.getCode(), m.getPrix());
+            if (m.getDateExpiration().isBefore(aujourdhui)) {
+                alertes.add(String.format("%s (code %d) est expire depuis le %s: a retirer de la vente",
+                        m.getNom(), m.getCode(), m.getDateExpiration()));
+            } else {
+                alertes.add(String.format("%s (code %d) expire le %s: remise de %d%%, nouveau prix %s DT",
+                        m.getNom(), m.getCode(), m.getDateExpiration(), pourcentageRemise, Montant.formater(m.getPrix())));
+            }
+        }
+        
+        long dureeMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - debut);
+        ResultatBalayage resultat = new ResultatBalayage(LocalDateTime.now(), limite, dureeMs,
+                candidats.size(), appliques, alertes);
+        dernierResultat = resultat;
+        nombreBalayages++;
+        nombreLignesModifiees += appliques.size();
+        dureeTotaleMs += dureeMs;
+        
+        for (EcouteurExpiration ecouteur : ecouteurs) {
+            executeurEcouteurs.execute(() -> ecouteur.balayageTermine(resultat));
+        }
+        return resultat;
+    }
+    
+    // ============================================
+    // STATISTIQUES
+    // ============================================
+    
+    public synchronized ResultatBalayage getDernierResultat() {
+        return dernierResultat;
+    }
+    
+    public synchronized long getNombreBalayages() {
+        return nombreBalayages;
+    }
+    
+    public synchronized long getNombreLignesModifiees() {
+        return nombreLignesModifiees;
+    }
+    
+    public synchronized long getDureeTotaleMs() {
+        return dureeTotaleMs;
+    }
+    
+    @Override
+    public synchronized String toString() {
+        return String.format("PlanificateurExpiration[balayages=%d, lignesModifiees=%d, dureeTotale=%d ms, dernier=%s]",
+                nombreBalayages, nombreLignesModifiees, dureeTotaleMs, dernierResultat);
+    }
+    
+    // ============================================
+    // ECOUTEUR ET RESULTAT
+    // ============================================
+    
+    /**
+     * Recoit le resultat de chaque balayage (remises appliquees et alertes)
+     */
+    @FunctionalInterface
+    public interface EcouteurExpiration {
+        void balayageTermine(ResultatBalayage resultat);
+    }
+    
+    /**
+     * Resultat d'un balayage: nouveaux prix par code, alertes, duree et lignes touchees
+     */
+    public static class ResultatBalayage {
+        
+        private final LocalDateTime date;
+        private final LocalDate limite;
+        private final long dureeMs;
+        private final int lignesLues;
+        private final Map<Long, Long> nouveauxPrix;
+        private final List<String> alertes;
+        
+        ResultatBalayage(LocalDateTime date, LocalDate limite, long dureeMs, int lignesLues,
+                         Map<Long, Long> nouveauxPrix, List<String> alertes) {
+            this.date = date;
+            this.limite = limite;
+            this.dureeMs = dureeMs;
+            this.lignesLues = lignesLues;
+            this.nouveauxPrix = Collections.unmodifiableMap(nouveauxPrix);
+            this.alertes = Collections.unmodifiableList(alertes);
+        }
+        
+        public LocalDateTime getDate() {
+            return date;
+        }
+        
+        public LocalDate getLimite() {
+            return limite;
+        }
+        
+        public long getDureeMs() {
+            return dureeMs;
+        }
+        
+        public int getLignesLues() {
+            return lignesLues;
+        }
+        
+        public int getLignesModifiees() {
+            return nouveauxPrix.size();
+        }
+        
+        /**
+         * Prix remises (en millimes) par code de medicament
+         */
+        public Map<Long, Long> getNouveauxPrix() {
+            return nouveauxPrix;
+        }
+        
+        public List<String> getAlertes() {
+            return alertes;
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("Balayage[%s, limite=%s, lus=%d, modifies=%d, duree=%d ms]",
+                    date, limite, lignesLues, getLignesModifiees(), dureeMs);
+        }
+    }
+}
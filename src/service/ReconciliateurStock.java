@@ -0,0 +1,235 @@
+package service;
+
+import dao.AppareilMedicalDAO;
+import dao.BlocsStock;
+import dao.MedicamentDAO;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Reporte en base (colonnes quantite_stock) les ventes enregistrees dans le RegistreStock.
+ *
+ * Un thread de reconciliation reporte les quantites a intervalle regulier, par lots
+ * (un bloc PL/SQL par lot et par table). Comme le thread du JournalVentes, il demarre
+ * a la premiere vente, s'arrete apres une periode sans vente et vide le registre
+ * a l'arret de l'application. Un lot en echec (base indisponible) reste dans le registre
+ * et est renvoye a l'intervalle suivant, sous les memes numeros d'envoi: s'il avait ete
+ * applique (arret ou perte de la reponse apres le commit), la base l'ignore.
+ *
+ * Un rafraichissement suspend les reports pendant ses lectures (suspendreReports): les stocks
+ * lus et l'instantane du registre correspondent, aucun envoi n'est deduit deux fois.
+ */
+public class ReconciliateurStock {
+    
+    // Au-dela de ce nombre d'intervalles sans vente, le thread de reconciliation s'arrete
+    private static final int INTERVALLES_INACTIFS_AVANT_ARRET = 30;
+    
+    // Produits par bloc PL/SQL
+    private static final int TAILLE_LOT = 200;
+    
+    private final RegistreStock registre;
+    private final MedicamentDAO medicamentDAO;
+    private final AppareilMedicalDAO appareilDAO;
+    private final long intervalleMs;
+    
+    // Un report a la fois, ou une lecture de rafraichissement; distinct du moniteur de l'objet
+    // pour ne pas bloquer les ventes. Pris et rendu sur le thread de la lecture.
+    private final ReentrantLock verrouReport = new ReentrantLock();
+    
+    private Thread reconciliateur;
+    private boolean actif;
+    private boolean crochetArret;
+    
+    // Statistiques
+    private final AtomicLong nombreReconciliations = new AtomicLong();
+    private final AtomicLong nombreProduitsReportes = new AtomicLong();
+    private final AtomicLong nombreSurventes = new AtomicLong();
+    private final AtomicLong nombreEnvoisDejaReportes = new AtomicLong();
+    private final AtomicLong nombreEchecs = new AtomicLong();
+    
+    // ============================================
+    // CONSTRUCTEUR
+    // ============================================
+    
+    /**
+     * @param intervalleMs delai entre deux reports des ventes en base
+     */
+    public ReconciliateurStock(RegistreStock registre, MedicamentDAO medicamentDAO,
+                               AppareilMedicalDAO appareilDAO, long intervalleMs) {
+        this.registre = registre;
+        this.medicamentDAO = medicamentDAO;
+        this.appareilDAO = appareilDAO;
+        this.intervalleMs = intervalleMs;
+    }
+    
+    // ============================================
+    // RECONCILIATION
+    // ============================================
+    
+    /**
+     * Reporte immediatement toutes les ventes du registre en base, puis ecrit le registre
+     * sur le disque. Les lots en echec restent dans le registre.
+     *
+     * @throws exception.DatabaseException si un lot n'a pas pu etre reporte
+     */
+    public void reconcilier() {
+        verrouReport.lock();
+        try {
+            reporter(RegistreStock.MEDICAMENT);
+            reporter(RegistreStock.APPAREIL);
+            nombreReconciliations.incrementAndGet();
+        } finally {
+            try {
+                registre.forcer();
+            } finally {
+                verrouReport.unlock();
+            }
+        }
+    }
+    
+    private void reporter(int type) {
+        RegistreStock.Envois envois = registre.preparerEnvois(type);
+        if (envois.quantites.isEmpty()) {
+            return;
+        }
+        // Numeros d'envoi sur le disque avant d'etre en base: jamais reutilises apres un arret du systeme
+        registre.forcer();
+        Iterator<Map.Entry<Long, Integer>> it = envois.quantites.entrySet().iterator();
+        Map<Long, Integer> lot = new LinkedHashMap<>();
+        while (it.hasNext()) {
+            Map.Entry<Long, Integer> e = it.next();
+            lot.put(e.getKey(), e.getValue());
+            if (lot.size() == TAILLE_LOT || !it.hasNext()) {
+                int[] stocks = type == RegistreStock.MEDICAMENT
+                        ? medicamentDAO.reporterDecrements(registre.getInstance(), lot, envois.numeros)
+                        : appareilDAO.reporterDecrements(registre.getInstance(), lot, envois.numeros);
+                registre.confirmer(type, lot.keySet());
+                nombreProduitsReportes.addAndGet(lot.size());
+                compterResultats(stocks);
+                lot.clear();
+            }
+        }
+    }
+    
+    /**
+     * Un stock negatif en base: d'autres instances ont vendu les memes unites
+     */
+    private void compterResultats(int[] stocks) {
+        for (int stock : stocks) {
+            if (stock == BlocsStock.DEJA_REPORTE) {
+                nombreEnvoisDejaReportes.incrementAndGet();
+            } else if (stock < 0 && stock != BlocsStock.PRODUIT_ABSENT) {
+                nombreSurventes.incrementAndGet();
+            }
+        }
+    }
+    
+    /**
+     * Attend la fin du report en cours et empeche les suivants jusqu'a reprendreReports(),
+     * appele sur le meme thread
+     */
+    public void suspendreReports() {
+        verrouReport.lock();
+    }
+    
+    public void reprendreReports() {
+        verrouReport.unlock();
+    }
+    
+    // ============================================
+    // THREAD DE RECONCILIATION
+    // ============================================
+    
+    /**
+     * Signale une vente enregistree dans le registre (demarre le thread si necessaire)
+     */
+    public synchronized void demarrerSiNecessaire() {
+        if (!crochetArret) {
+            // Reporter les ventes encore dans le registre a l'arret de l'application
+            crochetArret = true;
+            Runtime.getRuntime().addShutdownHook(new Thread(this::reconcilier, "reconciliation-stock-arret"));
+        }
+        if (!actif) {
+            actif = true;
+            reconciliateur = new Thread(this::boucleReconciliation, "reconciliation-stock");
+            reconciliateur.setDaemon(true);
+            reconciliateur.start();
+        }
+    }
+    
+    private synchronized boolean arreterSiInactif() {
+        if (!registre.aDesVentesNonReportees()) {
+            actif = false;
+            return true;
+        }
+        return false;
+    }
+    
+    private void boucleReconciliation() {
+        int intervallesInactifs = 0;
+        
+        while (true) {
+            try {
+                Thread.sleep(intervalleMs);
+                long avant = nombreProduitsReportes.get();
+                try {
+                    reconcilier();
+                } catch (RuntimeException e) {
+                    // Base indisponible: les envois restent dans le registre
+                    nombreEchecs.incrementAndGet();
+                    System.err.println("Erreur de reconciliation du registre de stock: " + e.getMessage());
+                }
+                if (nombreProduitsReportes.get() != avant) {
+                    intervallesInactifs = 0;
+                } else if (++intervallesInactifs >= INTERVALLES_INACTIFS_AVANT_ARRET && arreterSiInactif()) {
+                    return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                synchronized (this) {
+                    actif = false;
+                }
+                return;
+            }
+        }
+    }
+    
+    // ============================================
+    // STATISTIQUES
+    // ============================================
+    
+    public long getNombreReconciliations() {
+        return nombreReconciliations.get();
+    }
+    
+    public long getNombreProduitsReportes() {
+        return nombreProduitsReportes.get();
+    }
+    
+    public long getNombreSurventes() {
+        return nombreSurventes.get();
+    }
+    
+    public long getNombreEchecs() {
+        return nombreEchecs.get();
+    }
+    
+    /**
+     * Envois renvoyes apres un arret et reconnus comme deja appliques en base
+     */
+    public long getNombreEnvoisDejaReportes() {
+        return nombreEnvoisDejaReportes.get();
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("ReconciliateurStock[reconciliations=%d, produitsReportes=%d, surventes=%d, "
+                        + "dejaReportes=%d, echecs=%d]",
+                getNombreReconciliations(), getNombreProduitsReportes(), getNombreSurventes(),
+                getNombreEnvoisDejaReportes(), getNombreEchecs());
+    }
+}
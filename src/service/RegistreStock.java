@@ -0,0 +1,338 @@
+package service;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.SecureRandom;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Registre des ventes pas encore reportees en base, dans un fichier projete en memoire.
+ *
+ * Le stock reste reserve en memoire (CAS sur quantiteStock); le registre garde, par produit,
+ * les quantites vendues que la colonne quantite_stock ne contient pas encore. Une vente n'y
+ * ajoute qu'une operation atomique sur le fichier (aucun aller-retour reseau ni objet alloue),
+ * et ReconciliateurStock reporte periodiquement les quantites en base.
+ * Le fichier survit a un arret brutal du processus (les pages ecrites restent dans le cache
+ * du systeme): au redemarrage, les quantites non reportees sont deduites du stock lu et
+ * renvoyees a la base. force() les ecrit aussi sur le disque.
+ *
+ * Chaque envoi porte un numero, croissant par produit, que le report enregistre en base
+ * (table REPORT_STOCK, cle: instance du registre et produit) dans la meme transaction que
+ * le decrement: un envoi renvoye apres un arret est reconnu et ignore, jamais compte deux fois.
+ *
+ * Format: un en-tete (MAGIQUE, capacite, instance) puis des cases de cinq long
+ * (cle, vendu, envoye, confirme, numero), adressees par hachage de (type, code) avec sondage
+ * lineaire. Une case attribuee n'est jamais liberee: la capacite borne le nombre de produits
+ * differents vendus. Les quantites sont des cumuls depuis la creation de la case:
+ * - vendu: quantites vendues moins les reservations rendues
+ * - envoye: valeur de 'vendu' a la preparation du dernier envoi (numero)
+ * - confirme: valeur de 'vendu' deja contenue dans la base
+ * Le seul thread de reconciliation ecrit envoye, confirme et numero.
+ */
+public final class RegistreStock {
+    
+    // Types de produit (partie de la cle d'une case)
+    public static final int MEDICAMENT = 0;
+    public static final int APPAREIL = 1;
+    
+    private static final long MAGIQUE = 0x5048_5354_4F43_4B32L; // "PHSTOCK2"
+    private static final int TAILLE_EN_TETE = 24;
+    private static final int TAILLE_CASE = 40;
+    private static final int CLE = 0;
+    private static final int VENDU = 8;
+    private static final int ENVOYE = 16;
+    private static final int CONFIRME = 24;
+    private static final int NUMERO = 32;
+    
+    // Format precedent: en-tete (magique, capacite) et cases (cle, attente, envoi)
+    private static final long MAGIQUE_V1 = 0x5048_5354_4F43_4B31L; // "PHSTOCK1"
+    private static final int TAILLE_EN_TETE_V1 = 16;
+    private static final int TAILLE_CASE_V1 = 24;
+    
+    // Acces atomiques aux long du fichier (adresses alignees sur 8 octets)
+    private static final VarHandle LONG =
+            MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+    
+    private final MappedByteBuffer fichier;
+    private final int capacite;
+    private final long instance;
+    
+    private RegistreStock(MappedByteBuffer fichier, int capacite) {
+        this.fichier = fichier;
+        this.capacite = capacite;
+        this.instance = fichier.getLong(16);
+    }
+    
+    /**
+     * Ouvre le registre, ou le cree avec 'capacite' cases s'il n'existe pas.
+     * Un registre existant garde sa capacite et ses quantites non reportees
+     * (un registre de l'ancien format est converti).
+     *
+     * @throws IOException si le fichier ne peut pas etre projete ou n'est pas un registre
+     */
+    public static RegistreStock ouvrir(Path chemin, int capacite) throws IOException {
+        if (Files.exists(chemin) && lireMagique(chemin) == MAGIQUE_V1) {
+            convertirV1(chemin);
+        }
+        try (FileChannel canal = FileChannel.open(chemin, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            boolean nouveau = canal.size() == 0;
+            if (!nouveau) {
+                if (canal.size() < TAILLE_EN_TETE) {
+                    throw new IOException("Fichier de registre de stock invalide: " + chemin);
+                }
+                MappedByteBuffer enTete = canal.map(FileChannel.MapMode.READ_ONLY, 0, TAILLE_EN_TETE);
+                enTete.order(ByteOrder.nativeOrder());
+                if (enTete.getLong(0) != MAGIQUE) {
+                    throw new IOException("Fichier de registre de stock invalide: " + chemin);
+                }
+                capacite = (int) enTete.getLong(8);
+            }
+            if (capacite < 1 || capacite > (Integer.MAX_VALUE - TAILLE_EN_TETE) / TAILLE_CASE) {
+                throw new IllegalArgumentException("Capacite du registre de stock invalide: " + capacite);
+            }
+            MappedByteBuffer fichier = canal.map(FileChannel.MapMode.READ_WRITE, 0,
+                    TAILLE_EN_TETE + (long) capacite * TAILLE_CASE);
+            fichier.order(ByteOrder.nativeOrder());
+            if (nouveau) {
+                fichier.putLong(8, capacite);
+                // Identifie ce registre dans REPORT_STOCK (numeros d'envoi deja reportes)
+                fichier.putLong(16, new SecureRandom().nextLong());
+                // Magique en dernier: un en-tete incomplet n'est pas pris pour un registre
+                fichier.putLong(0, MAGIQUE);
+                fichier.force();
+            }
+            return new RegistreStock(fichier, capacite);
+        }
+    }
+    
+    private static long lireMagique(Path chemin) throws IOException {
+        try (FileChannel canal = FileChannel.open(chemin, StandardOpenOption.READ)) {
+            if (canal.size() < 8) {
+                return 0;
+            }
+            MappedByteBuffer enTete = canal.map(FileChannel.MapMode.READ_ONLY, 0, 8);
+            enTete.order(ByteOrder.nativeOrder());
+            return enTete.getLong(0);
+        }
+    }
+    
+    /**
+     * Recopie les quantites non reportees d'un registre de l'ancien format (attente + envoi)
+     * dans un nouveau registre, qui remplace l'ancien fichier en une seule operation
+     */
+    private static void convertirV1(Path chemin) throws IOException {
+        Path nouveau = chemin.resolveSibling(chemin.getFileName() + ".conversion");
+        Files.deleteIfExists(nouveau);
+        try (FileChannel canal = FileChannel.open(chemin, StandardOpenOption.READ)) {
+            MappedByteBuffer ancien = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+            ancien.order(ByteOrder.nativeOrder());
+            int capacite = (int) ancien.getLong(8);
+            RegistreStock registre = ouvrir(nouveau, capacite);
+            for (int i = 0; i < capacite; i++) {
+                int position = TAILLE_EN_TETE_V1 + i * TAILLE_CASE_V1;
+                long cle = ancien.getLong(position);
+                long quantite = ancien.getLong(position + 8) + ancien.getLong(position + 16);
+                if (cle != 0 && quantite != 0) {
+                    LONG.getAndAdd(registre.fichier, registre.caseDe(typeDe(cle), codeDe(cle), true) + VENDU, quantite);
+                }
+            }
+            registre.forcer();
+        }
+        Files.move(nouveau, chemin, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    
+    // ============================================
+    // VENTES
+    // ============================================
+    
+    /**
+     * Enregistre une quantite vendue (stock deja reserve en memoire)
+     *
+     * @throws IllegalStateException si toutes les cases sont attribuees a d'autres produits
+     */
+    public void retirer(int type, long code, int quantite) {
+        LONG.getAndAdd(fichier, caseDe(type, code, true) + VENDU, (long) quantite);
+    }
+    
+    /**
+     * Rend une quantite enregistree par retirer() (vente annulee)
+     */
+    public void remettre(int type, long code, int quantite) {
+        LONG.getAndAdd(fichier, caseDe(type, code, true) + VENDU, (long) -quantite);
+    }
+    
+    /**
+     * Quantite vendue que la base ne contenait pas encore quand 'reportes' a ete pris
+     * (a deduire du stock lu en base a ce moment-la)
+     *
+     * @param reportes instantane de instantaneReportes(), pris sans report en cours
+     */
+    public int nonReporte(int type, long code, long[] reportes) {
+        int position = caseDe(type, code, false);
+        if (position < 0) {
+            return 0;
+        }
+        long vendu = (long) LONG.getVolatile(fichier, position + VENDU);
+        return Math.toIntExact(vendu - reportes[(position - TAILLE_EN_TETE) / TAILLE_CASE]);
+    }
+    
+    /**
+     * Quantites deja contenues dans la base, par case. Pris pendant que les reports sont
+     * suspendus, il correspond aux stocks lus en base avant leur reprise.
+     */
+    public long[] instantaneReportes() {
+        long[] reportes = new long[capacite];
+        for (int i = 0; i < capacite; i++) {
+            reportes[i] = (long) LONG.getVolatile(fichier, TAILLE_EN_TETE + i * TAILLE_CASE + CONFIRME);
+        }
+        return reportes;
+    }
+    
+    // ============================================
+    // RECONCILIATION (un seul thread a la fois)
+    // ============================================
+    
+    /**
+     * Envois d'un type de produit: quantite et numero d'envoi, par code
+     */
+    static final class Envois {
+        
+        final Map<Long, Integer> quantites = new LinkedHashMap<>();
+        final Map<Long, Long> numeros = new LinkedHashMap<>();
+    }
+    
+    /**
+     * Prepare un envoi pour chaque produit du type vendu depuis le dernier envoi confirme,
+     * et retourne les envois (ceux d'un report precedent en echec compris, avec leur numero).
+     * Le numero est ecrit avant la quantite: un arret entre les deux laisse un envoi vide,
+     * et un envoi n'est jamais renvoye sous un autre numero.
+     */
+    synchronized Envois preparerEnvois(int type) {
+        Envois envois = new Envois();
+        for (int i = 0; i < capacite; i++) {
+            int position = TAILLE_EN_TETE + i * TAILLE_CASE;
+            long cle = (long) LONG.getVolatile(fichier, position + CLE);
+            if (cle == 0 || typeDe(cle) != type) {
+                continue;
+            }
+            long confirme = (long) LONG.getVolatile(fichier, position + CONFIRME);
+            long envoye = (long) LONG.getVolatile(fichier, position + ENVOYE);
+            if (envoye == confirme) {
+                long vendu = (long) LONG.getVolatile(fichier, position + VENDU);
+                if (vendu != envoye) {
+                    LONG.setVolatile(fichier, position + NUMERO, (long) LONG.getVolatile(fichier, position + NUMERO) + 1);
+                    LONG.setVolatile(fichier, position + ENVOYE, vendu);
+                    envoye = vendu;
+                }
+            }
+            if (envoye != confirme) {
+                envois.quantites.put(codeDe(cle), Math.toIntExact(envoye - confirme));
+                envois.numeros.put(codeDe(cle), (long) LONG.getVolatile(fichier, position + NUMERO));
+            }
+        }
+        return envois;
+    }
+    
+    /**
+     * Les envois de ces codes sont dans la base.
+     * Un arret avant cet appel renvoie les envois au redemarrage, sous le meme numero: le report
+     * les reconnait et ne les applique pas une seconde fois.
+     */
+    synchronized void confirmer(int type, Iterable<Long> codes) {
+        for (long code : codes) {
+            int position = caseDe(type, code, false);
+            if (position >= 0) {
+                LONG.setVolatile(fichier, position + CONFIRME, (long) LONG.getVolatile(fichier, position + ENVOYE));
+            }
+        }
+    }
+    
+    /**
+     * Indique s'il reste des quantites a reporter
+     */
+    public boolean aDesVentesNonReportees() {
+        for (int i = 0; i < capacite; i++) {
+            int position = TAILLE_EN_TETE + i * TAILLE_CASE;
+            if ((long) LONG.getVolatile(fichier, position + VENDU)
+                    != (long) LONG.getVolatile(fichier, position + CONFIRME)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Ecrit les pages modifiees sur le disque (resiste aussi a un arret du systeme)
+     */
+    public void forcer() {
+        fichier.force();
+    }
+    
+    public int getCapacite() {
+        return capacite;
+    }
+    
+    /**
+     * Identifiant de ce registre dans REPORT_STOCK (tire au hasard a la creation du fichier)
+     */
+    public long getInstance() {
+        return instance;
+    }
+    
+    // ============================================
+    // CASES
+    // ============================================
+    
+    /**
+     * Position de la case du produit, attribuee si necessaire (-1 si absente et creer = false)
+     */
+    private int caseDe(int type, long code, boolean creer) {
+        long cle = ((code << 1) | type) + 1; // 0 = case libre
+        int i = (int) Long.remainderUnsigned(cle * 0x9E37_79B9_7F4A_7C15L, capacite);
+        for (int n = 0; n < capacite; n++) {
+            int position = TAILLE_EN_TETE + i * TAILLE_CASE;
+            long occupant = (long) LONG.getVolatile(fichier, position + CLE);
+            if (occupant == cle) {
+                return position;
+            }
+            if (occupant == 0) {
+                if (!creer) {
+                    return -1;
+                }
+                occupant = (long) LONG.compareAndExchange(fichier, position + CLE, 0L, cle);
+                if (occupant == 0 || occupant == cle) {
+                    return position;
+                }
+            }
+            i = i + 1 == capacite ? 0 : i + 1;
+        }
+        if (!creer) {
+            return -1;
+        }
+        throw new IllegalStateException("Registre de stock plein (" + capacite
+                + " produits): augmentez -Dpharmacie.stock.registre.capacite");
+    }
+    
+    private static int typeDe(long cle) {
+        return (int) ((cle - 1) & 1);
+    }
+    
+    private static long codeDe(long cle) {
+        return (cle - 1) >> 1;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("RegistreStock[capacite=%d, instance=%d]", capacite, instance);
+    }
+}
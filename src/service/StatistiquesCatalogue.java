@@ -0,0 +1,187 @@
+package service;
+
+import model.Medicament;
+import model.Montant;
+import util.Dictionnaire;
+
+import java.util.*;
+
+/**
+ * Statistiques des prix des medicaments, maintenues a chaque ajout, suppression
+ * ou changement de prix au lieu d'etre recalculees sur tout le catalogue.
+ *
+ * Pour le catalogue entier, par type et par genre: nombre, somme, et un multi-ensemble
+ * ordonne des prix (TreeMap prix -> medicaments) qui donne le moins cher et le plus cher
+ * en O(log n) meme apres la suppression de l'extremum. Les prix sont en millimes (Montant):
+ * la somme reste exacte quel que soit le nombre d'ajouts et de retraits.
+ */
+public class StatistiquesCatalogue {
+    
+    private final Agregat global = new Agregat();
+    private final Map<String, Agregat> parType = new HashMap<>();
+    private final Map<String, Agregat> parGenre = new HashMap<>();
+    
+    // Prix, type et genre sous lesquels chaque medicament est compte
+    private final Map<Medicament, Cles> cles = new IdentityHashMap<>();
+    
+    // ============================================
+    // MISE A JOUR
+    // ============================================
+    
+    public void ajouter(Medicament m) {
+        if (cles.containsKey(m)) {
+            return;
+        }
+        Cles c = new Cles(m.getPrix(), Dictionnaire.TYPES.cle(m.getTypeMedicament()),
+                Dictionnaire.GENRES.cle(m.getGenre()));
+        cles.put(m, c);
+        global.ajouter(c.prix, m);
+        parType.computeIfAbsent(c.type, k -> new Agregat()).ajouter(c.prix, m);
+        parGenre.computeIfAbsent(c.genre, k -> new Agregat()).ajouter(c.prix, m);
+    }
+    
+    public void retirer(Medicament m) {
+        Cles c = cles.remove(m);
+        if (c == null) {
+            return;
+        }
+        global.retirer(c.prix, m);
+        retirerDe(parType, c.type, c.prix, m);
+        retirerDe(parGenre, c.genre, c.prix, m);
+    }
+    
+    /**
+     * Met a jour les statistiques apres un changement de prix, de type ou de genre
+     */
+    public void mettreAJour(Medicament m) {
+        retirer(m);
+        ajouter(m);
+    }
+    
+    public void vider() {
+        global.vider();
+        parType.clear();
+        parGenre.clear();
+        cles.clear();
+    }
+    
+    // ============================================
+    // LECTURE
+    // ============================================
+    
+    public Agregat getGlobal() {
+        return global;
+    }
+    
+    /**
+     * Statistiques d'un type (CHIMIQUE, HOMEOPATHIQUE), vides si aucun medicament
+     */
+    public Agregat getParType(String type) {
+        return parType.getOrDefault(IndexCatalogue.cle(type), Agregat.VIDE);
+    }
+    
+    /**
+     * Statistiques d'un genre, vides si aucun medicament
+     */
+    public Agregat getParGenre(String genre) {
+        return parGenre.getOrDefault(IndexCatalogue.cle(genre), Agregat.VIDE);
+    }
+    
+    private static void retirerDe(Map<String, Agregat> agregats, String cle, long prix, Medicament m) {
+        Agregat agregat = agregats.get(cle);
+        if (agregat != null) {
+            agregat.retirer(prix, m);
+            if (agregat.getNombre() == 0) {
+                agregats.remove(cle);
+            }
+        }
+    }
+    
+    // ============================================
+    // AGREGAT
+    // ============================================
+    
+    /**
+     * Nombre, somme, moyenne, minimum et maximum des prix d'un groupe de medicaments
+     */
+    public static class Agregat {
+        
+        static final Agregat VIDE = new Agregat();
+        
+        private int nombre;
+        private long somme;
+        private final TreeMap<Long, List<Medicament>> parPrix = new TreeMap<>();
+        
+        void ajouter(long prix, Medicament m) {
+            nombre++;
+            somme += prix;
+            parPrix.computeIfAbsent(prix, k -> new ArrayList<>(1)).add(m);
+        }
+        
+        void retirer(long prix, Medicament m) {
+            List<Medicament> memePrix = parPrix.get(prix);
+            if (memePrix == null || !memePrix.removeIf(x -> x == m)) {
+                return;
+            }
+            if (memePrix.isEmpty()) {
+                parPrix.remove(prix);
+            }
+            nombre--;
+            somme -= prix;
+        }
+        
+        void vider() {
+            nombre = 0;
+            somme = 0;
+            parPrix.clear();
+        }
+        
+        public int getNombre() {
+            return nombre;
+        }
+        
+        /**
+         * Somme des prix en millimes
+         */
+        public long getSomme() {
+            return somme;
+        }
+        
+        /**
+         * Prix moyen en millimes (arrondi au millime)
+         */
+        public long getMoyenne() {
+            return nombre == 0 ? 0 : Montant.proportion(somme, 1, nombre);
+        }
+        
+        public Optional<Medicament> getPlusCher() {
+            return parPrix.isEmpty() ? Optional.empty() : Optional.of(parPrix.lastEntry().getValue().get(0));
+        }
+        
+        public Optional<Medicament> getMoinsCher() {
+            return parPrix.isEmpty() ? Optional.empty() : Optional.of(parPrix.firstEntry().getValue().get(0));
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("Agregat[nombre=%d, somme=%s, moyenne=%s]",
+                    nombre, Montant.formater(somme), Montant.formater(getMoyenne()));
+        }
+    }
+    
+    /**
+     * Prix, type et genre d'un medicament au moment ou il a ete compte
+     */
+    private static class Cles {
+        
+        private final long prix;
+        private final String type;
+        private final String genre;
+        
+        Cles(long prix, String type, String genre) {
+            this.prix = prix;
+            this.type = type;
+            this.genre = genre;
+        }
+    }
+}
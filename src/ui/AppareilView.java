@@ -1,7 +1,5 @@
 package ui;
 
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.control.*;
@@ -12,6 +10,8 @@ import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
 import javafx.stage.Stage;
 import model.AppareilMedical;
+import model.Montant;
+import service.ContexteApplication;
 import service.Pharmacie;
 import exception.SaisieInvalideException;
 
@@ -27,7 +27,7 @@ public class AppareilView {
     private Stage primaryStage;
     private VBox root;
     private TableView<AppareilMedical> tableView;
-    private ObservableList<AppareilMedical> appareilsList;
+    private TablePaginee<AppareilMedical> pages;
     
     // Champs de formulaire
     private TextField txtNom, txtPrix;
@@ -37,8 +37,10 @@ public class AppareilView {
     public AppareilView(Pharmacie pharmacie, Stage primaryStage) {
         this.pharmacie = pharmacie;
         this.primaryStage = primaryStage;
-        this.appareilsList = FXCollections.observableArrayList(pharmacie.getListeAppareils());
         createView();
+        
+        // Premiere page lue dans la base, sans attendre le chargement du catalogue
+        pages.recharger();
     }
     
     private void createView() {
@@ -72,7 +74,7 @@ public class AppareilView {
         Region spacer = new Region();
         HBox.setHgrow(spacer, Priority.ALWAYS);
         
-        Label count = new Label("Total: " + appareilsList.size() + " appareils");
+        Label count = new Label("Total: " + pharmacie.getListeAppareils().size() + " appareils");
         count.setFont(Font.font("Arial", 14));
         
         header.getChildren().addAll(btnRetour, titre, spacer, count);
@@ -109,7 +111,7 @@ public class AppareilView {
     
     private TableView<AppareilMedical> createTableView() {
         TableView<AppareilMedical> table = new TableView<>();
-        table.setItems(appareilsList);
+        pages = new TablePaginee<>(table, pharmacie::getPageAppareils, pharmacie.getExecuteurDAO());
         
         TableColumn<AppareilMedical, Long> colCode = new TableColumn<>("Code");
         colCode.setCellValueFactory(new PropertyValueFactory<>("code"));
@@ -119,14 +121,16 @@ public class AppareilView {
         colNom.setCellValueFactory(new PropertyValueFactory<>("nom"));
         colNom.setPrefWidth(250);
         
-        TableColumn<AppareilMedical, Double> colPrix = new TableColumn<>("Prix (DT)");
+        TableColumn<AppareilMedical, Long> colPrix = new TableColumn<>("Prix (DT)");
         colPrix.setCellValueFactory(new PropertyValueFactory<>("prix"));
+        colPrix.setCellFactory(colonne -> new CelluleMontant<>());
         colPrix.setPrefWidth(100);
         
-        TableColumn<AppareilMedical, Double> colTranche = new TableColumn<>("Tranche (DT)");
+        TableColumn<AppareilMedical, Long> colTranche = new TableColumn<>("Tranche (DT)");
         colTranche.setCellValueFactory(cellData -> 
-                new javafx.beans.property.SimpleDoubleProperty(
+                new javafx.beans.property.SimpleLongProperty(
                         cellData.getValue().getTranche(true)).asObject());
+        colTranche.setCellFactory(colonne -> new CelluleMontant<>());
         colTranche.setPrefWidth(100);
         
         TableColumn<AppareilMedical, Integer> colStock = new TableColumn<>("Stock");
@@ -205,8 +209,8 @@ public class AppareilView {
             return;
         }
         
-        List<AppareilMedical> resultats = pharmacie.getAppareilDAO().rechercherParNom(recherche);
-        appareilsList.setAll(resultats);
+        List<AppareilMedical> resultats = pharmacie.rechercherAppareilsParNom(recherche);
+        pages.afficher(resultats);
     }
     
     private void ajouterAppareil() {
@@ -214,7 +218,7 @@ public class AppareilView {
             validerFormulaire();
             
             String nom = txtNom.getText().trim();
-            double prix = Double.parseDouble(txtPrix.getText().trim());
+            long prix = Montant.lire(txtPrix.getText());
             int stock = spinnerStock.getValue();
             
             AppareilMedical appareil = new AppareilMedical(nom, prix);
@@ -240,7 +244,7 @@ public class AppareilView {
             throw new SaisieInvalideException("Prix", "Le prix est obligatoire");
         }
         try {
-            double prix = Double.parseDouble(txtPrix.getText().trim());
+            long prix = Montant.lire(txtPrix.getText());
             if (prix < 0) {
                 throw new SaisieInvalideException("Prix", "Le prix doit etre positif");
             }
@@ -275,15 +279,25 @@ public class AppareilView {
         }
         
         txtNom.setText(selected.getNom());
-        txtPrix.setText(String.valueOf(selected.getPrix()));
+        txtPrix.setText(Montant.formater(selected.getPrix()));
         spinnerStock.getValueFactory().setValue(selected.getQuantiteStock());
         
         showInfo("Modifiez les champs puis cliquez sur 'Ajouter' pour enregistrer.");
     }
     
     private void refreshTable() {
-        pharmacie.chargerDonnees();
-        appareilsList.setAll(pharmacie.getListeAppareils());
+        pages.recharger();
+        synchroniser();
+    }
+    
+    /**
+     * Relit les changements de la base en arriere-plan (catalogue en memoire: recherches, ventes)
+     */
+    private void synchroniser() {
+        ContexteApplication.getInstance().synchroniserAsync(null).exceptionally(e -> {
+            System.err.println("Rafraichissement impossible: " + e.getMessage());
+            return null;
+        });
     }
     
     private void clearForm() {
@@ -0,0 +1,21 @@
+package ui;
+
+import javafx.scene.control.TableCell;
+import model.Montant;
+
+/**
+ * Cellule d'une colonne de montants (en millimes) affiches en dinars ("12.500").
+ * La colonne garde des valeurs Long: le tri reste numerique.
+ */
+class CelluleMontant<S> extends TableCell<S, Long> {
+    
+    @Override
+    protected void updateItem(Long montant, boolean empty) {
+        super.updateItem(montant, empty);
+        if (empty || montant == null) {
+            setText(null);
+        } else {
+            setText(Montant.formater(montant));
+        }
+    }
+}
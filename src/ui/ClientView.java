@@ -1,7 +1,5 @@
 package ui;
 
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.control.*;
@@ -12,6 +10,8 @@ import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
 import javafx.stage.Stage;
 import model.ClientFidele;
+import model.Montant;
+import service.ContexteApplication;
 import service.Pharmacie;
 import exception.SaisieInvalideException;
 
@@ -28,7 +28,7 @@ public class ClientView {
     private Stage primaryStage;
     private VBox root;
     private TableView<ClientFidele> tableView;
-    private ObservableList<ClientFidele> clientsList;
+    private TablePaginee<ClientFidele> pages;
     
     // Champs de formulaire
     private TextField txtCin, txtNom, txtPrenom;
@@ -37,8 +37,10 @@ public class ClientView {
     public ClientView(Pharmacie pharmacie, Stage primaryStage) {
         this.pharmacie = pharmacie;
         this.primaryStage = primaryStage;
-        this.clientsList = FXCollections.observableArrayList(pharmacie.getListeClientsFideles());
         createView();
+        
+        // Premiere page lue dans la base, sans attendre le chargement du catalogue
+        pages.recharger();
     }
     
     private void createView() {
@@ -81,7 +83,7 @@ public class ClientView {
         Region spacer = new Region();
         HBox.setHgrow(spacer, Priority.ALWAYS);
         
-        Label count = new Label("Total: " + clientsList.size() + " clients");
+        Label count = new Label("Total: " + pharmacie.getListeClientsFideles().size() + " clients");
         count.setFont(Font.font("Arial", 14));
         
         header.getChildren().addAll(btnRetour, titre, spacer, count);
@@ -122,7 +124,7 @@ public class ClientView {
     
     private TableView<ClientFidele> createTableView() {
         TableView<ClientFidele> table = new TableView<>();
-        table.setItems(clientsList);
+        pages = new TablePaginee<>(table, pharmacie::getPageClients, pharmacie.getExecuteurDAO());
         
         TableColumn<ClientFidele, Long> colCin = new TableColumn<>("CIN");
         colCin.setCellValueFactory(new PropertyValueFactory<>("cin"));
@@ -136,18 +138,20 @@ public class ClientView {
         colPrenom.setCellValueFactory(new PropertyValueFactory<>("prenom"));
         colPrenom.setPrefWidth(150);
         
-        TableColumn<ClientFidele, Double> colCredit = new TableColumn<>("Credit (DT)");
+        TableColumn<ClientFidele, Long> colCredit = new TableColumn<>("Credit (DT)");
         colCredit.setCellValueFactory(new PropertyValueFactory<>("credit"));
+        colCredit.setCellFactory(colonne -> new CelluleMontant<>());
         colCredit.setPrefWidth(100);
         
-        TableColumn<ClientFidele, Double> colMontant = new TableColumn<>("Total Achats (DT)");
+        TableColumn<ClientFidele, Long> colMontant = new TableColumn<>("Total Achats (DT)");
         colMontant.setCellValueFactory(new PropertyValueFactory<>("montantTotalAchats"));
+        colMontant.setCellFactory(colonne -> new CelluleMontant<>());
         colMontant.setPrefWidth(120);
         
         // Colonne pour indiquer si reduction applicable
         TableColumn<ClientFidele, String> colReduction = new TableColumn<>("Reduction");
         colReduction.setCellValueFactory(cellData -> {
-            boolean aReduction = cellData.getValue().getMontantTotalAchats() >= 100;
+            boolean aReduction = cellData.getValue().aReduction();
             return new javafx.beans.property.SimpleStringProperty(aReduction ? "15% applicable" : "-");
         });
         colReduction.setPrefWidth(100);
@@ -161,7 +165,7 @@ public class ClientView {
                 super.updateItem(item, empty);
                 if (item == null || empty) {
                     setStyle("");
-                } else if (item.getMontantTotalAchats() >= 100) {
+                } else if (item.aReduction()) {
                     setStyle("-fx-background-color: #C8E6C9;"); // Vert clair
                 } else {
                     setStyle("");
@@ -239,13 +243,13 @@ public class ClientView {
             return;
         }
         
-        List<ClientFidele> resultats = pharmacie.getClientDAO().rechercherParNom(recherche);
-        clientsList.setAll(resultats);
+        List<ClientFidele> resultats = pharmacie.rechercherClientsParNom(recherche);
+        pages.afficher(resultats);
     }
     
     private void trierParNom() {
         List<ClientFidele> tries = pharmacie.trierClientsParNom();
-        clientsList.setAll(tries);
+        pages.afficher(tries);
     }
     
     private void ajouterClient() {
@@ -332,13 +336,13 @@ public class ClientView {
                 "=== DETAILS DU CLIENT ===\n\n" +
                 "CIN: %d\n" +
                 "Nom complet: %s\n" +
-                "Credit: %.2f DT\n" +
-                "Total des achats: %.2f DT\n\n" +
+                "Credit: %s DT\n" +
+                "Total des achats: %s DT\n\n" +
                 "Statut reduction: %s",
                 selected.getCin(),
                 selected.getNomComplet(),
-                selected.getCredit(),
-                selected.getMontantTotalAchats(),
+                Montant.formater(selected.getCredit()),
+                Montant.formater(selected.getMontantTotalAchats()),
                 selected.aReduction() ? "REDUCTION 15% DISPONIBLE!" : "Pas de reduction (achats < 100 DT)"
         );
         
@@ -350,9 +354,19 @@ public class ClientView {
     }
     
     private void refreshTable() {
-        pharmacie.chargerDonnees();
-        clientsList.setAll(pharmacie.getListeClientsFideles());
+        pages.recharger();
         txtCin.setDisable(false);
+        synchroniser();
+    }
+    
+    /**
+     * Relit les changements de la base en arriere-plan (catalogue en memoire: recherches, ventes)
+     */
+    private void synchroniser() {
+        ContexteApplication.getInstance().synchroniserAsync(null).exceptionally(e -> {
+            System.err.println("Rafraichissement impossible: " + e.getMessage());
+            return null;
+        });
     }
     
     private void clearForm() {
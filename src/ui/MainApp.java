@@ -1,6 +1,7 @@
 package ui;
 
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
@@ -13,6 +14,9 @@ import javafx.scene.paint.Color;
 import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
 import javafx.stage.Stage;
+import model.Montant;
+import service.ChargeurDonnees;
+import service.ContexteApplication;
 import service.Pharmacie;
 
 /**
@@ -23,19 +27,17 @@ public class MainApp extends Application {
     
     private Pharmacie pharmacie;
     private Stage primaryStage;
+    private HBox statsBox;
+    private Label lblChargement;
     
     @Override
     public void start(Stage primaryStage) {
         this.primaryStage = primaryStage;
-        this.pharmacie = new Pharmacie();
+        ContexteApplication contexte = ContexteApplication.getInstance();
+        this.pharmacie = contexte.getPharmacie();
         
-        // Charger les donnees depuis la base
-        try {
-            pharmacie.chargerDonnees();
-        } catch (Exception e) {
-            System.err.println("Attention: Impossible de charger les donnees de la base.");
-            System.err.println("L'application fonctionnera en mode local.");
-        }
+        // Chargements en arriere-plan et remises automatiques sur les medicaments expirants
+        contexte.demarrerServices(Platform::runLater);
         
         // Creer l'interface d'accueil
         VBox root = createAccueil();
@@ -49,6 +51,29 @@ public class MainApp extends Application {
         primaryStage.setMinWidth(800);
         primaryStage.setMinHeight(600);
         primaryStage.show();
+        
+        // Charger les donnees depuis la base apres l'affichage de la fenetre
+        // (seulement les changements apres le premier chargement)
+        synchroniser();
+    }
+    
+    /**
+     * Met la pharmacie a jour en arriere-plan; les statistiques suivent la progression
+     */
+    private void synchroniser() {
+        ContexteApplication.getInstance().synchroniserAsync(this::chargementProgresse)
+                .exceptionally(e -> {
+                    System.err.println("Attention: Impossible de charger les donnees de la base.");
+                    System.err.println("L'application fonctionnera en mode local.");
+                    lblChargement.setText("Base de donnees indisponible - mode local");
+                    return null;
+                });
+    }
+    
+    private void chargementProgresse(ChargeurDonnees.Progression progression) {
+        remplirStats();
+        lblChargement.setText(progression.isTermine() ? "" :
+                String.format("Chargement: %s (%d lignes)...", progression.getEtape(), progression.getLignesChargees()));
     }
     
     /**
@@ -72,6 +97,11 @@ public class MainApp extends Application {
         // Statistiques
         HBox statsBox = createStatsBox();
         
+        // Progression du chargement en arriere-plan
+        lblChargement = new Label();
+        lblChargement.setFont(Font.font("Arial", 12));
+        lblChargement.setTextFill(Color.WHITE);
+        
         // Boutons de navigation
         VBox buttonsBox = createButtonsBox();
         
@@ -80,7 +110,7 @@ public class MainApp extends Application {
         footer.setFont(Font.font("Arial", 12));
         footer.setTextFill(Color.WHITE);
         
-        root.getChildren().addAll(titre, sousTitre, statsBox, buttonsBox, footer);
+        root.getChildren().addAll(titre, sousTitre, statsBox, lblChargement, buttonsBox, footer);
         VBox.setMargin(statsBox, new Insets(20, 0, 20, 0));
         
         return root;
@@ -90,9 +120,16 @@ public class MainApp extends Application {
      * Cree la boite de statistiques
      */
     private HBox createStatsBox() {
-        HBox statsBox = new HBox(30);
+        statsBox = new HBox(30);
         statsBox.setAlignment(Pos.CENTER);
-        
+        remplirStats();
+        return statsBox;
+    }
+    
+    /**
+     * (Re)calcule les cartes de statistiques, pendant et apres le chargement
+     */
+    private void remplirStats() {
         // Nombre de medicaments
         VBox medStats = createStatCard("Medicaments", String.valueOf(pharmacie.getListeMedicaments().size()));
         
@@ -102,9 +139,11 @@ public class MainApp extends Application {
         // Nombre d'appareils
         VBox appareilStats = createStatCard("Appareils", String.valueOf(pharmacie.getListeAppareils().size()));
         
-        statsBox.getChildren().addAll(medStats, clientStats, appareilStats);
+        // Prix moyen des medicaments (statistiques maintenues par Pharmacie)
+        VBox prixStats = createStatCard("Prix moyen (DT)",
+                Montant.formater(pharmacie.moyennePrixMedicaments()));
         
-        return statsBox;
+        statsBox.getChildren().setAll(medStats, clientStats, appareilStats, prixStats);
     }
     
     /**
@@ -228,8 +267,8 @@ public class MainApp extends Application {
      * Retourne a l'accueil
      */
     public void retourAccueil() {
-        pharmacie.chargerDonnees(); // Recharger les donnees
         primaryStage.getScene().setRoot(createAccueil());
+        synchroniser(); // Relire les changements
     }
     
     public static void main(String[] args) {
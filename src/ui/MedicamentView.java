@@ -1,7 +1,6 @@
 package ui;
 
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
+import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.control.*;
@@ -12,12 +11,14 @@ import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
 import javafx.stage.Stage;
 import model.*;
+import service.ContexteApplication;
 import service.Pharmacie;
 import exception.SaisieInvalideException;
 
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletionException;
 
 /**
  * Interface graphique pour la gestion des medicaments.
@@ -29,7 +30,7 @@ public class MedicamentView {
     private Stage primaryStage;
     private VBox root;
     private TableView<Medicament> tableView;
-    private ObservableList<Medicament> medicamentsList;
+    private TablePaginee<Medicament> pages;
     
     // Champs de formulaire
     private TextField txtNom, txtGenre, txtPrix, txtNumSerie;
@@ -40,11 +41,16 @@ public class MedicamentView {
     private TextField txtRecherche;
     private ComboBox<String> comboRecherche;
     
+    // Nombre maximal de resultats affiches pendant la saisie
+    private static final int LIMITE_SUGGESTIONS = 100;
+    
     public MedicamentView(Pharmacie pharmacie, Stage primaryStage) {
         this.pharmacie = pharmacie;
         this.primaryStage = primaryStage;
-        this.medicamentsList = FXCollections.observableArrayList(pharmacie.getListeMedicaments());
         createView();
+        
+        // Premiere page lue dans la base, sans attendre le chargement du catalogue
+        pages.recharger();
     }
     
     private void createView() {
@@ -87,7 +93,7 @@ public class MedicamentView {
         Region spacer = new Region();
         HBox.setHgrow(spacer, Priority.ALWAYS);
         
-        Label count = new Label("Total: " + medicamentsList.size() + " medicaments");
+        Label count = new Label("Total: " + pharmacie.getListeMedicaments().size() + " medicaments");
         count.setFont(Font.font("Arial", 14));
         
         header.getChildren().addAll(btnRetour, titre, spacer, count);
@@ -107,9 +113,17 @@ public class MedicamentView {
         txtRecherche.setPrefWidth(250);
         
         comboRecherche = new ComboBox<>();
-        comboRecherche.getItems().addAll("Par nom", "Par categorie", "Par premieres lettres");
+        comboRecherche.getItems().addAll("Par nom", "Par nom, genre ou composant", "Par categorie",
+                "Par premieres lettres");
         comboRecherche.setValue("Par nom");
         
+        // Recherche par premieres lettres a chaque frappe (index en memoire)
+        txtRecherche.textProperty().addListener((obs, ancien, nouveau) -> {
+            if ("Par premieres lettres".equals(comboRecherche.getValue())) {
+                rechercherParPremieresLettres();
+            }
+        });
+        
         Button btnRechercher = new Button("Rechercher");
         btnRechercher.setStyle("-fx-background-color: #2196F3; -fx-text-fill: white;");
         btnRechercher.setOnAction(e -> rechercher());
@@ -133,7 +147,7 @@ public class MedicamentView {
     
     private TableView<Medicament> createTableView() {
         TableView<Medicament> table = new TableView<>();
-        table.setItems(medicamentsList);
+        pages = new TablePaginee<>(table, pharmacie::getPageMedicaments, pharmacie.getExecuteurDAO());
         
         TableColumn<Medicament, Long> colCode = new TableColumn<>("Code");
         colCode.setCellValueFactory(new PropertyValueFactory<>("code"));
@@ -147,8 +161,9 @@ public class MedicamentView {
         colGenre.setCellValueFactory(new PropertyValueFactory<>("genre"));
         colGenre.setPrefWidth(100);
         
-        TableColumn<Medicament, Double> colPrix = new TableColumn<>("Prix (DT)");
+        TableColumn<Medicament, Long> colPrix = new TableColumn<>("Prix (DT)");
         colPrix.setCellValueFactory(new PropertyValueFactory<>("prix"));
+        colPrix.setCellFactory(colonne -> new CelluleMontant<>());
         colPrix.setPrefWidth(80);
         
         TableColumn<Medicament, String> colType = new TableColumn<>("Type");
@@ -264,7 +279,7 @@ public class MedicamentView {
         // Bouton d'ajout
         Button btnAjouter = new Button("Ajouter le medicament");
         btnAjouter.setStyle("-fx-background-color: #4CAF50; -fx-text-fill: white; -fx-font-weight: bold;");
-        btnAjouter.setOnAction(e -> ajouterMedicament());
+        btnAjouter.setOnAction(e -> ajouterMedicament(btnAjouter));
         
         formBox.getChildren().addAll(lblForm, ligne1, ligne2, btnAjouter);
         
@@ -293,7 +308,7 @@ public class MedicamentView {
         
         Button btnSupprimer = new Button("Supprimer selection");
         btnSupprimer.setStyle("-fx-background-color: #f44336; -fx-text-fill: white;");
-        btnSupprimer.setOnAction(e -> supprimerMedicament());
+        btnSupprimer.setOnAction(e -> supprimerMedicament(btnSupprimer));
         
         Button btnModifier = new Button("Modifier selection");
         btnModifier.setStyle("-fx-background-color: #FF9800; -fx-text-fill: white;");
@@ -301,7 +316,7 @@ public class MedicamentView {
         
         Button btnRemise = new Button("Appliquer remise 30% (expirants)");
         btnRemise.setStyle("-fx-background-color: #9C27B0; -fx-text-fill: white;");
-        btnRemise.setOnAction(e -> appliquerRemise());
+        btnRemise.setOnAction(e -> appliquerRemise(btnRemise));
         
         buttons.getChildren().addAll(btnSupprimer, btnModifier, btnRemise);
         
@@ -317,23 +332,35 @@ public class MedicamentView {
         
         List<Medicament> resultats;
         switch (comboRecherche.getValue()) {
+            case "Par nom, genre ou composant":
+                resultats = pharmacie.rechercherMedicaments(recherche);
+                break;
             case "Par categorie":
                 resultats = pharmacie.rechercherMedicamentsParCategorie(recherche);
                 break;
             case "Par premieres lettres":
-                resultats = pharmacie.rechercherMedicamentsParPremieresLettres(recherche);
+                resultats = pharmacie.rechercherMedicamentsParPremieresLettres(recherche, LIMITE_SUGGESTIONS);
                 break;
             default: // Par nom
                 resultats = pharmacie.rechercherMedicamentsParNom(recherche);
                 break;
         }
         
-        medicamentsList.setAll(resultats);
+        pages.afficher(resultats);
+    }
+    
+    private void rechercherParPremieresLettres() {
+        String recherche = txtRecherche.getText().trim();
+        if (recherche.isEmpty()) {
+            pages.recharger();
+        } else {
+            pages.afficher(pharmacie.rechercherMedicamentsParPremieresLettres(recherche, LIMITE_SUGGESTIONS));
+        }
     }
     
     private void afficherExpirants() {
         List<Medicament> expirants = pharmacie.getMedicamentsExpirantDans(2);
-        medicamentsList.setAll(expirants);
+        pages.afficher(expirants);
         
         if (expirants.isEmpty()) {
             showInfo("Aucun medicament n'expire dans les 2 prochains mois.");
@@ -342,13 +369,13 @@ public class MedicamentView {
         }
     }
     
-    private void ajouterMedicament() {
+    private void ajouterMedicament(Button btnAjouter) {
         try {
             validerFormulaire();
             
             String nom = txtNom.getText().trim();
             String genre = txtGenre.getText().trim();
-            double prix = Double.parseDouble(txtPrix.getText().trim());
+            long prix = Montant.lire(txtPrix.getText());
             long numSerie = Long.parseLong(txtNumSerie.getText().trim());
             LocalDate expiration = dateExpiration.getValue();
             int stock = spinnerStock.getValue();
@@ -372,10 +399,19 @@ public class MedicamentView {
                 medicament = mh;
             }
             
-            pharmacie.ajouterMedicament(medicament);
-            refreshTable();
-            clearForm();
-            showInfo("Medicament ajoute avec succes!");
+            // INSERT en arriere-plan, comme la validation d'une vente
+            btnAjouter.setDisable(true);
+            pharmacie.ajouterMedicamentAsync(medicament, Platform::runLater).whenComplete((r, erreur) -> {
+                btnAjouter.setDisable(false);
+                if (erreur != null) {
+                    Throwable cause = erreur instanceof CompletionException ? erreur.getCause() : erreur;
+                    showError("Erreur", "Impossible d'ajouter le medicament: " + cause.getMessage());
+                    return;
+                }
+                refreshTable();
+                clearForm();
+                showInfo("Medicament ajoute avec succes!");
+            });
             
         } catch (NumberFormatException e) {
             showError("Erreur de saisie", "Veuillez entrer des valeurs numeriques valides pour le prix et le numero de serie.");
@@ -398,7 +434,7 @@ public class MedicamentView {
             throw new SaisieInvalideException("Numero de serie", "Le numero de serie est obligatoire");
         }
         try {
-            double prix = Double.parseDouble(txtPrix.getText().trim());
+            long prix = Montant.lire(txtPrix.getText());
             if (prix < 0) {
                 throw new SaisieInvalideException("Prix", "Le prix doit etre positif");
             }
@@ -407,7 +443,7 @@ public class MedicamentView {
         }
     }
     
-    private void supprimerMedicament() {
+    private void supprimerMedicament(Button btnSupprimer) {
         Medicament selected = tableView.getSelectionModel().getSelectedItem();
         if (selected == null) {
             showError("Selection requise", "Veuillez selectionner un medicament a supprimer.");
@@ -419,9 +455,17 @@ public class MedicamentView {
                 "Etes-vous sur de vouloir supprimer le medicament: " + selected.getNom() + "?");
         
         if (result.isPresent() && result.get() == ButtonType.OK) {
-            pharmacie.supprimerMedicament(selected.getNom());
-            refreshTable();
-            showInfo("Medicament supprime avec succes!");
+            btnSupprimer.setDisable(true);
+            pharmacie.supprimerMedicamentAsync(selected.getNom(), Platform::runLater).whenComplete((supprime, erreur) -> {
+                btnSupprimer.setDisable(false);
+                if (erreur != null) {
+                    Throwable cause = erreur instanceof CompletionException ? erreur.getCause() : erreur;
+                    showError("Erreur", "Impossible de supprimer le medicament: " + cause.getMessage());
+                    return;
+                }
+                refreshTable();
+                showInfo("Medicament supprime avec succes!");
+            });
         }
     }
     
@@ -435,7 +479,7 @@ public class MedicamentView {
         // Remplir le formulaire avec les donnees du medicament selectionne
         txtNom.setText(selected.getNom());
         txtGenre.setText(selected.getGenre());
-        txtPrix.setText(String.valueOf(selected.getPrix()));
+        txtPrix.setText(Montant.formater(selected.getPrix()));
         txtNumSerie.setText(String.valueOf(selected.getNumSerie()));
         dateExpiration.setValue(selected.getDateExpiration());
         spinnerStock.getValueFactory().setValue(selected.getQuantiteStock());
@@ -453,21 +497,41 @@ public class MedicamentView {
         showInfo("Modifiez les champs puis cliquez sur 'Ajouter' pour enregistrer.");
     }
     
-    private void appliquerRemise() {
+    private void appliquerRemise(Button btnRemise) {
         Optional<ButtonType> result = showConfirmation(
                 "Confirmer la remise",
                 "Appliquer une remise de 30% sur tous les medicaments expirant dans 1 mois?");
         
         if (result.isPresent() && result.get() == ButtonType.OK) {
-            pharmacie.appliquerRemiseMedicamentsExpirants();
-            refreshTable();
-            showInfo("Remise appliquee avec succes!");
+            // Balayage et batch JDBC en arriere-plan, resultat affiche sur le thread JavaFX
+            btnRemise.setDisable(true);
+            pharmacie.getExecuteurDAO().soumettre(() -> pharmacie.appliquerRemiseMedicamentsExpirants())
+                    .whenCompleteAsync((nombre, erreur) -> {
+                        btnRemise.setDisable(false);
+                        if (erreur != null) {
+                            Throwable cause = erreur instanceof CompletionException ? erreur.getCause() : erreur;
+                            showError("Erreur", "Impossible d'appliquer la remise: " + cause.getMessage());
+                            return;
+                        }
+                        refreshTable();
+                        showInfo("Remise appliquee avec succes sur " + nombre + " medicament(s)!");
+                    }, Platform::runLater);
         }
     }
     
     private void refreshTable() {
-        pharmacie.chargerDonnees();
-        medicamentsList.setAll(pharmacie.getListeMedicaments());
+        pages.recharger();
+        synchroniser();
+    }
+    
+    /**
+     * Relit les changements de la base en arriere-plan (catalogue en memoire: recherches, ventes)
+     */
+    private void synchroniser() {
+        ContexteApplication.getInstance().synchroniserAsync(null).exceptionally(e -> {
+            System.err.println("Rafraichissement impossible: " + e.getMessage());
+            return null;
+        });
     }
     
     private void clearForm() {
@@ -0,0 +1,134 @@
+package ui;
+
+import dao.ExecuteurDAO;
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.geometry.Orientation;
+import javafx.scene.Node;
+import javafx.scene.control.ScrollBar;
+import javafx.scene.control.TableView;
+
+import java.util.List;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Remplissage paresseux d'une TableView par pages lues dans la base (pagination par cle).
+ *
+ * La premiere page s'affiche des qu'elle est lue; la suivante est demandee quand la barre
+ * de defilement approche de la fin du tableau. Chaque page reprend apres la derniere ligne
+ * recue: la memoire et le temps d'affichage dependent des lignes parcourues par l'utilisateur,
+ * pas de la taille de la table. Les resultats d'une recherche (deja en memoire) s'affichent
+ * avec afficher(), qui suspend la pagination jusqu'au prochain recharger().
+ *
+ * A utiliser depuis le thread de l'interface; les pages sont lues sur un thread virtuel.
+ */
+class TablePaginee<T> {
+    
+    // Une page couvre largement la hauteur d'un tableau: la barre de defilement apparait des la premiere
+    static final int TAILLE_PAGE = 100;
+    
+    // Position de la barre (fraction) a partir de laquelle la page suivante est demandee
+    private static final double SEUIL_PAGE_SUIVANTE = 0.8;
+    
+    /**
+     * Lecture d'une page: les lignes qui suivent la derniere (null pour la premiere page)
+     */
+    @FunctionalInterface
+    interface SourcePages<T> {
+        List<T> pageApres(T derniere, int taille);
+    }
+    
+    private final TableView<T> table;
+    private final SourcePages<T> source;
+    private final ExecuteurDAO executeur;
+    private final ObservableList<T> lignes = FXCollections.observableArrayList();
+    
+    private boolean pagination;
+    private boolean complet;
+    private boolean enCours;
+    // Derniere ligne recue (les lignes peuvent etre retriees par un clic sur une colonne)
+    private T derniere;
+    // Incremente a chaque recharger()/afficher(): les pages demandees avant sont ignorees
+    private int generation;
+    
+    TablePaginee(TableView<T> table, SourcePages<T> source, ExecuteurDAO executeur) {
+        this.table = table;
+        this.source = source;
+        this.executeur = executeur;
+        table.setItems(lignes);
+        table.skinProperty().addListener((obs, ancien, skin) -> {
+            if (skin != null) {
+                Platform.runLater(this::suivreDefilement);
+            }
+        });
+    }
+    
+    /**
+     * Repart de la premiere page (apres une modification ou pour quitter une recherche)
+     */
+    void recharger() {
+        generation++;
+        pagination = true;
+        complet = false;
+        enCours = false;
+        derniere = null;
+        lignes.clear();
+        chargerPageSuivante();
+    }
+    
+    /**
+     * Affiche une liste complete (resultats de recherche) et suspend la pagination
+     */
+    void afficher(List<T> resultats) {
+        generation++;
+        pagination = false;
+        enCours = false;
+        lignes.setAll(resultats);
+    }
+    
+    private void chargerPageSuivante() {
+        if (!pagination || complet || enCours) {
+            return;
+        }
+        enCours = true;
+        int demande = generation;
+        T apres = derniere;
+        executeur.soumettre(() -> source.pageApres(apres, TAILLE_PAGE))
+                .whenCompleteAsync((page, erreur) -> pageRecue(demande, page, erreur), Platform::runLater);
+    }
+    
+    private void pageRecue(int demande, List<T> page, Throwable erreur) {
+        if (demande != generation) {
+            return;
+        }
+        enCours = false;
+        if (erreur != null) {
+            // La page sera redemandee au prochain defilement
+            Throwable cause = erreur instanceof CompletionException ? erreur.getCause() : erreur;
+            System.err.println("Lecture d'une page impossible: " + cause.getMessage());
+            return;
+        }
+        complet = page.size() < TAILLE_PAGE;
+        if (!page.isEmpty()) {
+            derniere = page.get(page.size() - 1);
+            lignes.addAll(page);
+        }
+    }
+    
+    /**
+     * Suit la barre de defilement verticale (creee avec le skin du tableau)
+     */
+    private void suivreDefilement() {
+        for (Node noeud : table.lookupAll(".scroll-bar")) {
+            if (noeud instanceof ScrollBar barre && barre.getOrientation() == Orientation.VERTICAL) {
+                barre.valueProperty().addListener((obs, ancienne, valeur) -> {
+                    if (valeur.doubleValue() >= barre.getMin() + (barre.getMax() - barre.getMin()) * SEUIL_PAGE_SUIVANTE) {
+                        chargerPageSuivante();
+                    }
+                });
+                return;
+            }
+        }
+    }
+}
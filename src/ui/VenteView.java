@@ -1,5 +1,6 @@
 package ui;
 
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.geometry.Insets;
@@ -15,11 +16,14 @@ import model.*;
 import service.Pharmacie;
 import exception.*;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletionException;
 
 /**
  * Interface graphique pour effectuer une vente.
- * Permet a un client fidele d'acheter des medicaments ou appareils medicaux.
+ * Permet a un client fidele de remplir un panier de medicaments et d'appareils
+ * medicaux, puis de le valider en une seule transaction.
  */
 public class VenteView {
     
@@ -32,7 +36,12 @@ public class VenteView {
     private ObservableList<Vendable> vendablesList;
     private Label lblTotal;
     private Label lblReduction;
-    private double totalPanier = 0;
+    private Spinner<Integer> spinnerQuantite;
+    private ListView<Panier.Ligne> listePanier;
+    private HBox boutonsActions;
+    private Button btnRetour;
+    private Panier panier = new Panier();
+    private long totalVentes = 0; // en millimes
     
     public VenteView(Pharmacie pharmacie, Stage primaryStage) {
         this.pharmacie = pharmacie;
@@ -61,7 +70,7 @@ public class VenteView {
         header.setAlignment(Pos.CENTER_LEFT);
         header.setSpacing(20);
         
-        Button btnRetour = new Button("← Retour");
+        btnRetour = new Button("← Retour");
         btnRetour.setStyle("-fx-background-color: #607D8B; -fx-text-fill: white;");
         btnRetour.setOnAction(e -> retourAccueil());
         
@@ -128,8 +137,8 @@ public class VenteView {
             lblReduction.setText("⭐ REDUCTION 15% DISPONIBLE!");
             lblReduction.setTextFill(Color.GREEN);
         } else if (client != null) {
-            double restant = 100 - client.getMontantTotalAchats();
-            lblReduction.setText(String.format("Encore %.2f DT pour reduction 15%%", restant));
+            long restant = ClientFidele.SEUIL_REDUCTION - client.getMontantTotalAchats();
+            lblReduction.setText(String.format("Encore %s DT pour reduction 15%%", Montant.formater(restant)));
             lblReduction.setTextFill(Color.ORANGE);
         } else {
             lblReduction.setText("");
@@ -160,16 +169,18 @@ public class VenteView {
         });
         colType.setPrefWidth(150);
         
-        TableColumn<Vendable, Double> colPrix = new TableColumn<>("Prix (DT)");
+        TableColumn<Vendable, Long> colPrix = new TableColumn<>("Prix (DT)");
         colPrix.setCellValueFactory(cellData -> 
-                new javafx.beans.property.SimpleDoubleProperty(
+                new javafx.beans.property.SimpleLongProperty(
                         cellData.getValue().getPrixVendable()).asObject());
+        colPrix.setCellFactory(colonne -> new CelluleMontant<>());
         colPrix.setPrefWidth(100);
         
-        TableColumn<Vendable, Double> colPrixFidele = new TableColumn<>("Prix Fidele (DT)");
+        TableColumn<Vendable, Long> colPrixFidele = new TableColumn<>("Prix Fidele (DT)");
         colPrixFidele.setCellValueFactory(cellData -> 
-                new javafx.beans.property.SimpleDoubleProperty(
+                new javafx.beans.property.SimpleLongProperty(
                         cellData.getValue().getTranche(true)).asObject());
+        colPrixFidele.setCellFactory(colonne -> new CelluleMontant<>());
         colPrixFidele.setPrefWidth(120);
         
         TableColumn<Vendable, String> colReduction = new TableColumn<>("Reduction");
@@ -194,15 +205,20 @@ public class VenteView {
     
     private HBox createPanierBox() {
         HBox panierBox = new HBox(20);
-        panierBox.setAlignment(Pos.CENTER);
+        panierBox.setAlignment(Pos.CENTER_LEFT);
         panierBox.setPadding(new Insets(15));
         panierBox.setStyle("-fx-background-color: #E8F5E9; -fx-background-radius: 5;");
         
+        listePanier = new ListView<>();
+        listePanier.setPrefHeight(100);
+        listePanier.setPrefWidth(350);
+        listePanier.setPlaceholder(new Label("Panier vide"));
+        
         lblTotal = new Label("Total: 0.00 DT");
         lblTotal.setFont(Font.font("Arial", FontWeight.BOLD, 20));
         lblTotal.setTextFill(Color.web("#2E7D32"));
         
-        panierBox.getChildren().add(lblTotal);
+        panierBox.getChildren().addAll(listePanier, lblTotal);
         
         return panierBox;
     }
@@ -210,21 +226,60 @@ public class VenteView {
     private HBox createActionButtons() {
         HBox buttons = new HBox(15);
         buttons.setAlignment(Pos.CENTER);
+        boutonsActions = buttons;
+        
+        spinnerQuantite = new Spinner<>(1, 1000, 1);
+        spinnerQuantite.setPrefWidth(80);
+        
+        Button btnAjouter = new Button("Ajouter au panier");
+        btnAjouter.setStyle("-fx-background-color: #2196F3; -fx-text-fill: white;");
+        btnAjouter.setOnAction(e -> ajouterAuPanier());
         
-        Button btnAcheter = new Button("Acheter le produit selectionne");
-        btnAcheter.setStyle("-fx-background-color: #4CAF50; -fx-text-fill: white; -fx-font-size: 14; -fx-font-weight: bold;");
-        btnAcheter.setPrefWidth(250);
-        btnAcheter.setOnAction(e -> effectuerAchat());
+        Button btnRetirer = new Button("Retirer du panier");
+        btnRetirer.setStyle("-fx-background-color: #9E9E9E; -fx-text-fill: white;");
+        btnRetirer.setOnAction(e -> retirerDuPanier());
+        
+        Button btnValider = new Button("Valider le panier");
+        btnValider.setStyle("-fx-background-color: #4CAF50; -fx-text-fill: white; -fx-font-size: 14; -fx-font-weight: bold;");
+        btnValider.setPrefWidth(200);
+        btnValider.setOnAction(e -> effectuerAchat());
         
         Button btnHistorique = new Button("Voir historique client");
         btnHistorique.setStyle("-fx-background-color: #2196F3; -fx-text-fill: white;");
         btnHistorique.setOnAction(e -> voirHistorique());
         
-        buttons.getChildren().addAll(btnAcheter, btnHistorique);
+        buttons.getChildren().addAll(new Label("Quantite:"), spinnerQuantite,
+                btnAjouter, btnRetirer, btnValider, btnHistorique);
         
         return buttons;
     }
     
+    private void ajouterAuPanier() {
+        Vendable selected = tableVendables.getSelectionModel().getSelectedItem();
+        if (selected == null) {
+            showError("Produit requis", "Veuillez selectionner un produit a ajouter au panier.");
+            return;
+        }
+        panier.ajouter(selected, spinnerQuantite.getValue());
+        updatePanier();
+    }
+    
+    private void retirerDuPanier() {
+        Panier.Ligne ligne = listePanier.getSelectionModel().getSelectedItem();
+        if (ligne == null) {
+            showError("Selection requise", "Veuillez selectionner une ligne du panier.");
+            return;
+        }
+        panier.retirer(ligne.getVendable());
+        updatePanier();
+    }
+    
+    private void updatePanier() {
+        listePanier.getItems().setAll(panier.getLignes());
+        lblTotal.setText(String.format("Panier: %d article(s) - %s DT",
+                panier.nombreArticles(), Montant.formater(panier.totalEstime())));
+    }
+    
     private void effectuerAchat() {
         ClientFidele client = comboClient.getValue();
         if (client == null) {
@@ -232,83 +287,56 @@ public class VenteView {
             return;
         }
         
-        Vendable selected = tableVendables.getSelectionModel().getSelectedItem();
-        if (selected == null) {
-            showError("Produit requis", "Veuillez selectionner un produit a acheter.");
+        if (panier.estVide()) {
+            showError("Panier vide", "Veuillez ajouter au moins un produit au panier.");
             return;
         }
         
-        try {
-            double prixPaye;
-            String nomProduit = selected.getNomVendable();
-            
-            if (selected instanceof Medicament m) {
-                // Verifier le stock
-                if (m.getQuantiteStock() <= 0) {
-                    throw new StockInsuffisantException(m.getNom(), 0, 1);
-                }
-                
-                // Calculer le prix avec reductions
-                prixPaye = m.getTranche(true);
-                
-                // Reduction supplementaire de 15% si applicable
-                if (client.aReduction()) {
-                    prixPaye = prixPaye * 0.85;
-                    client.appliquerReductionEtReinitialiser();
-                }
-                
-                // Mettre a jour le stock
-                m.setQuantiteStock(m.getQuantiteStock() - 1);
-                pharmacie.getMedicamentDAO().updateStock(m.getCode(), m.getQuantiteStock());
-                
-            } else if (selected instanceof AppareilMedical a) {
-                if (a.getQuantiteStock() <= 0) {
-                    throw new StockInsuffisantException(a.getNom(), 0, 1);
+        // La transaction s'execute en arriere-plan; le panier reste fige jusqu'a la fin.
+        // Pas de retour a l'accueil non plus: il relance un rafraichissement, qui ecrirait
+        // les stocks et les clients pendant que la vente les modifie.
+        int articles = panier.nombreArticles();
+        boutonsActions.setDisable(true);
+        btnRetour.setDisable(true);
+        pharmacie.validerPanierAsync(panier, client, Platform::runLater).whenComplete((prixPaye, erreur) -> {
+            boutonsActions.setDisable(false);
+            btnRetour.setDisable(false);
+            if (erreur != null) {
+                Throwable cause = erreur instanceof CompletionException ? erreur.getCause() : erreur;
+                if (cause instanceof StockInsuffisantException) {
+                    showError("Stock insuffisant", cause.getMessage());
+                } else {
+                    showError("Erreur", "Une erreur est survenue: " + cause.getMessage());
                 }
-                
-                prixPaye = a.getTranche(true); // Prix d'une tranche
-                
-                a.setQuantiteStock(a.getQuantiteStock() - 1);
-                pharmacie.getAppareilDAO().updateStock(a.getCode(), a.getQuantiteStock());
-                
-            } else {
-                prixPaye = selected.getTranche(true);
-            }
-            
-            // Mettre a jour le montant des achats du client
-            client.ajouterAchat(prixPaye);
-            pharmacie.getClientDAO().update(client);
-            
-            // Mettre a jour le total affiche
-            totalPanier += prixPaye;
-            lblTotal.setText(String.format("Total: %.2f DT", totalPanier));
-            
-            // Mettre a jour le label de reduction
-            updateReductionLabel();
-            
-            // Rafraichir la table
-            vendablesList.setAll(pharmacie.getTousVendables());
-            
-            // Afficher confirmation
-            String message = String.format(
-                    "Achat effectue avec succes!\n\n" +
-                    "Produit: %s\n" +
-                    "Prix paye: %.2f DT\n" +
-                    "Client: %s",
-                    nomProduit, prixPaye, client.getNomComplet()
-            );
-            
-            if (selected instanceof AppareilMedical) {
-                message += "\n\n(Facilite: 3 tranches de " + String.format("%.2f", prixPaye) + " DT)";
+                return;
             }
-            
-            showInfo("Achat reussi", message);
-            
-        } catch (StockInsuffisantException e) {
-            showError("Stock insuffisant", e.getMessage());
-        } catch (Exception e) {
-            showError("Erreur", "Une erreur est survenue: " + e.getMessage());
-        }
+            achatTermine(client, articles, prixPaye);
+        });
+    }
+    
+    private void achatTermine(ClientFidele client, int articles, long prixPaye) {
+        totalVentes += prixPaye;
+        
+        panier.vider();
+        updatePanier();
+        
+        // Mettre a jour le label de reduction
+        updateReductionLabel();
+        
+        // Rafraichir la table
+        vendablesList.setAll(pharmacie.getTousVendables());
+        
+        // Afficher confirmation
+        String message = String.format(
+                "Achat effectue avec succes!\n\n" +
+                "Articles: %d\n" +
+                "Prix paye: %s DT\n" +
+                "Client: %s\n\n" +
+                "Total des ventes de la session: %s DT",
+                articles, Montant.formater(prixPaye), client.getNomComplet(), Montant.formater(totalVentes)
+        );
+        
+        showInfo("Achat reussi", message);
     }
     
     private void voirHistorique() {
@@ -322,16 +350,37 @@ public class VenteView {
                 "=== HISTORIQUE DU CLIENT ===\n\n" +
                 "Nom: %s\n" +
                 "CIN: %d\n\n" +
-                "Total des achats: %.2f DT\n" +
-                "Credit: %.2f DT\n\n" +
+                "Total des achats: %s DT\n" +
+                "Credit: %s DT\n\n" +
                 "Statut: %s",
                 client.getNomComplet(),
                 client.getCin(),
-                client.getMontantTotalAchats(),
-                client.getCredit(),
+                Montant.formater(client.getMontantTotalAchats()),
+                Montant.formater(client.getCredit()),
                 client.aReduction() ? "REDUCTION 15% DISPONIBLE!" : "Pas de reduction active"
         );
         
+        // Derniers achats enregistres dans la table ACHAT, lus en arriere-plan
+        String resume = details;
+        pharmacie.getExecuteurDAO().soumettre(() -> pharmacie.getAchatDAO().getParClient(client.getCin()))
+                .whenCompleteAsync((achats, erreur) -> {
+                    if (erreur != null) {
+                        Throwable cause = erreur instanceof CompletionException ? erreur.getCause() : erreur;
+                        afficherHistorique(client, resume + "\n\n(Historique des achats indisponible: "
+                                + cause.getMessage() + ")");
+                        return;
+                    }
+                    StringBuilder sb = new StringBuilder(resume);
+                    sb.append(String.format("\n\nAchats enregistres: %d", achats.size()));
+                    achats.stream().limit(5).forEach(a -> sb.append(String.format(
+                            "\n  %s - %s %d x%d: %s DT",
+                            a.getDateAchat().toLocalDate(), a.getTypeVendable(), a.getCodeVendable(),
+                            a.getQuantite(), Montant.formater(a.getPrixPaye()))));
+                    afficherHistorique(client, sb.toString());
+                }, Platform::runLater);
+    }
+    
+    private void afficherHistorique(ClientFidele client, String details) {
         Alert alert = new Alert(Alert.AlertType.INFORMATION);
         alert.setTitle("Historique client");
         alert.setHeaderText(client.getNomComplet());
@@ -340,6 +389,11 @@ public class VenteView {
     }
     
     private void retourAccueil() {
+        // Fermeture de la caisse: ecrire en arriere-plan ce qui a ete differe pendant les ventes
+        pharmacie.getExecuteurDAO().soumettre(pharmacie::fermerCaisse).exceptionally(erreur -> {
+            System.err.println("Erreur a la fermeture de la caisse: " + erreur.getMessage());
+            return null;
+        });
         MainApp mainApp = new MainApp();
         try {
             mainApp.start(primaryStage);
@@ -0,0 +1,760 @@
+package util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Pool borne de connexions JDBC.
+ * Chaque operation emprunte une connexion et la rend au pool en appelant close().
+ * Fonctionnalites:
+ * - taille minimale et maximale configurables
+ * - eviction des connexions inactives au-dela de la taille minimale
+ * - validation de la connexion a l'emprunt
+ * - detection des fuites (connexion empruntee trop longtemps)
+ * - statistiques: temps d'attente, connexions actives et inactives
+ * - cache LRU des requetes preparees par connexion physique (cle: texte SQL):
+ *   prepareStatement(sql) et prepareCall(sql) reutilisent la requete deja analysee par Oracle,
+ *   et close() sur la requete la remet dans le cache au lieu de la fermer
+ */
+public class ConnectionPool {
+    
+    // Une connexion utilisee il y a moins de 500 ms n'est pas revalidee
+    private static final long DELAI_SANS_VALIDATION_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+    
+    private final String url;
+    private final String user;
+    private final String password;
+    
+    private final int tailleMin;
+    private final int tailleMax;
+    private final long delaiAttenteNanos;
+    private final long delaiInactiviteNanos;
+    private final long seuilFuiteNanos;
+    private final int delaiValidationSecondes;
+    private final int tailleCacheRequetes;
+    private final String requeteInitialisation;
+    
+    // Connexions libres (LIFO: la plus recemment rendue est reutilisee en premier)
+    private final Deque<ConnexionPhysique> libres = new ArrayDeque<>();
+    private final Set<ConnexionPhysique> empruntees = ConcurrentHashMap.newKeySet();
+    private int total;
+    private boolean ferme;
+    
+    private final ReentrantLock verrou = new ReentrantLock();
+    private final Condition disponible = verrou.newCondition();
+    private final ScheduledExecutorService maintenance;
+    
+    // Statistiques
+    private final AtomicLong nombreEmprunts = new AtomicLong();
+    private final AtomicLong tempsAttenteTotalNanos = new AtomicLong();
+    private final AtomicLong tempsAttenteMaxNanos = new AtomicLong();
+    private final AtomicLong nombreTimeouts = new AtomicLong();
+    private final AtomicLong nombreInvalides = new AtomicLong();
+    private final AtomicLong nombreFuites = new AtomicLong();
+    private final AtomicLong nombreRequetesEnCache = new AtomicLong();
+    private final AtomicLong nombreRequetesPreparees = new AtomicLong();
+    private final AtomicLong nombreRequetesEvincees = new AtomicLong();
+    
+    // ============================================
+    // CONSTRUCTEUR
+    // ============================================
+    
+    /**
+     * Cree le pool. Les connexions minimales sont ouvertes en arriere-plan
+     * par la tache de maintenance pour ne pas bloquer l'appelant.
+     *
+     * @param tailleMin nombre de connexions gardees ouvertes
+     * @param tailleMax nombre maximal de connexions simultanees
+     * @param delaiAttenteMs attente maximale d'une connexion libre avant erreur
+     * @param delaiInactiviteMs duree d'inactivite avant fermeture d'une connexion en surplus
+     * @param seuilFuiteMs duree d'emprunt au-dela de laquelle une fuite est signalee (0 = desactive)
+     * @param delaiValidationSecondes timeout de Connection.isValid a l'emprunt
+     * @param tailleCacheRequetes requetes preparees gardees par connexion (0 = pas de cache)
+     * @param requeteInitialisation requete executee sur chaque nouvelle connexion (null = aucune)
+     */
+    public ConnectionPool(String url, String user, String password,
+                          int tailleMin, int tailleMax,
+                          long delaiAttenteMs, long delaiInactiviteMs,
+                          long seuilFuiteMs, int delaiValidationSecondes,
+                          int tailleCacheRequetes, String requeteInitialisation) {
+        if (tailleMin < 0 || tailleMax < 1 || tailleMin > tailleMax) {
+            throw new IllegalArgumentException(String.format(
+                    "Taille de pool invalide: min=%d, max=%d", tailleMin, tailleMax));
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.tailleMin = tailleMin;
+        this.tailleMax = tailleMax;
+        this.delaiAttenteNanos = TimeUnit.MILLISECONDS.toNanos(delaiAttenteMs);
+        this.delaiInactiviteNanos = TimeUnit.MILLISECONDS.toNanos(delaiInactiviteMs);
+        this.seuilFuiteNanos = TimeUnit.MILLISECONDS.toNanos(seuilFuiteMs);
+        this.delaiValidationSecondes = delaiValidationSecondes;
+        this.tailleCacheRequetes = Math.max(0, tailleCacheRequetes);
+        this.requeteInitialisation = requeteInitialisation;
+        
+        this.maintenance = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "pool-connexions-maintenance");
+            t.setDaemon(true);
+            return t;
+        });
+        long periode = Math.max(1000, Math.min(delaiInactiviteMs, 30_000));
+        maintenance.scheduleWithFixedDelay(this::maintenir, 0, periode, TimeUnit.MILLISECONDS);
+    }
+    
+    // ============================================
+    // EMPRUNT ET RESTITUTION
+    // ============================================
+    
+    /**
+     * Emprunte une connexion au pool.
+     * L'appelant doit appeler close() sur la connexion retournee pour la rendre
+     * (de preference avec un try-with-resources).
+     */
+    public Connection emprunter() throws SQLException {
+        long debut = System.nanoTime();
+        long restant = delaiAttenteNanos;
+        
+        while (true) {
+            ConnexionPhysique c = null;
+            boolean creer = false;
+            
+            verrou.lock();
+            try {
+                while (!ferme && libres.isEmpty() && total >= tailleMax) {
+                    if (restant <= 0) {
+                        nombreTimeouts.incrementAndGet();
+                        throw new SQLException(String.format(
+                                "Aucune connexion disponible apres %d ms (actives=%d, max=%d)",
+                                TimeUnit.NANOSECONDS.toMillis(delaiAttenteNanos), empruntees.size(), tailleMax));
+                    }
+                    restant = disponible.awaitNanos(restant);
+                }
+                if (ferme) {
+                    throw new SQLException("Le pool de connexions est ferme");
+                }
+                c = libres.pollFirst();
+                if (c == null) {
+                    total++;
+                    creer = true;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Attente d'une connexion interrompue", e);
+            } finally {
+                verrou.unlock();
+            }
+            
+            if (creer) {
+                c = ouvrir();
+            } else if (!valider(c)) {
+                nombreInvalides.incrementAndGet();
+                detruire(c);
+                continue;
+            }
+            
+            enregistrerAttente(System.nanoTime() - debut);
+            c.marquerEmprunt(seuilFuiteNanos > 0);
+            empruntees.add(c);
+            return c.creerPoignee();
+        }
+    }
+    
+    /**
+     * Rend une connexion au pool (appele par close() sur la connexion empruntee)
+     */
+    private void rendre(ConnexionPhysique c) {
+        empruntees.remove(c);
+        // Comme Connection.close(): les requetes oubliees par l'appelant sont fermees (remises en cache)
+        c.fermerRequetesOuvertes();
+        
+        boolean saine;
+        try {
+            if (!c.connexion.getAutoCommit()) {
+                c.connexion.rollback();
+                c.connexion.setAutoCommit(true);
+            }
+            saine = !c.connexion.isClosed();
+        } catch (SQLException e) {
+            saine = false;
+        }
+        
+        if (!saine) {
+            detruire(c);
+            return;
+        }
+        
+        c.derniereUtilisation = System.nanoTime();
+        verrou.lock();
+        try {
+            if (ferme) {
+                total--;
+            } else {
+                libres.addFirst(c);
+                disponible.signal();
+                return;
+            }
+        } finally {
+            verrou.unlock();
+        }
+        fermerSilencieusement(c);
+    }
+    
+    private ConnexionPhysique ouvrir() throws SQLException {
+        try {
+            Connection connexion = DriverManager.getConnection(url, user, password);
+            if (requeteInitialisation != null) {
+                try (Statement stmt = connexion.createStatement()) {
+                    stmt.execute(requeteInitialisation);
+                } catch (SQLException e) {
+                    connexion.close();
+                    throw e;
+                }
+            }
+            return new ConnexionPhysique(connexion);
+        } catch (SQLException | RuntimeException e) {
+            verrou.lock();
+            try {
+                total--;
+                disponible.signal();
+            } finally {
+                verrou.unlock();
+            }
+            throw e;
+        }
+    }
+    
+    private boolean valider(ConnexionPhysique c) {
+        if (System.nanoTime() - c.derniereUtilisation < DELAI_SANS_VALIDATION_NANOS) {
+            return true;
+        }
+        try {
+            return c.connexion.isValid(delaiValidationSecondes);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+    
+    private void detruire(ConnexionPhysique c) {
+        verrou.lock();
+        try {
+            total--;
+            disponible.signal();
+        } finally {
+            verrou.unlock();
+        }
+        fermerSilencieusement(c);
+    }
+    
+    private void enregistrerAttente(long attenteNanos) {
+        nombreEmprunts.incrementAndGet();
+        tempsAttenteTotalNanos.addAndGet(attenteNanos);
+        tempsAttenteMaxNanos.accumulateAndGet(attenteNanos, Math::max);
+    }
+    
+    // ============================================
+    // MAINTENANCE (eviction, taille minimale, fuites)
+    // ============================================
+    
+    private void maintenir() {
+        try {
+            evincerInactives();
+            remplirJusquauMinimum();
+            detecterFuites();
+        } catch (RuntimeException e) {
+            System.err.println("Erreur lors de la maintenance du pool: " + e.getMessage());
+        }
+    }
+    
+    private void evincerInactives() {
+        List<ConnexionPhysique> aFermer = new ArrayList<>();
+        long maintenant = System.nanoTime();
+        
+        verrou.lock();
+        try {
+            // Les plus anciennes sont en fin de file
+            Iterator<ConnexionPhysique> it = libres.descendingIterator();
+            while (it.hasNext() && total > tailleMin) {
+                ConnexionPhysique c = it.next();
+                if (maintenant - c.derniereUtilisation > delaiInactiviteNanos) {
+                    it.remove();
+                    total--;
+                    aFermer.add(c);
+                }
+            }
+        } finally {
+            verrou.unlock();
+        }
+        aFermer.forEach(this::fermerSilencieusement);
+    }
+    
+    private void remplirJusquauMinimum() {
+        while (true) {
+            verrou.lock();
+            try {
+                if (ferme || total >= tailleMin) {
+                    return;
+                }
+                total++;
+            } finally {
+                verrou.unlock();
+            }
+            
+            ConnexionPhysique c;
+            try {
+                c = ouvrir();
+            } catch (SQLException e) {
+                // Base indisponible: on reessaiera au prochain passage
+                return;
+            }
+            
+            verrou.lock();
+            try {
+                if (!ferme) {
+                    libres.addLast(c);
+                    disponible.signal();
+                    continue;
+                }
+                total--;
+            } finally {
+                verrou.unlock();
+            }
+            fermerSilencieusement(c);
+            return;
+        }
+    }
+    
+    private void detecterFuites() {
+        if (seuilFuiteNanos <= 0) {
+            return;
+        }
+        long maintenant = System.nanoTime();
+        for (ConnexionPhysique c : empruntees) {
+            if (!c.fuiteSignalee && maintenant - c.dateEmprunt > seuilFuiteNanos) {
+                c.fuiteSignalee = true;
+                nombreFuites.incrementAndGet();
+                System.err.printf("ATTENTION: connexion empruntee depuis %d ms sans etre rendue (fuite probable)%n",
+                        TimeUnit.NANOSECONDS.toMillis(maintenant - c.dateEmprunt));
+                if (c.traceEmprunt != null) {
+                    c.traceEmprunt.printStackTrace();
+                }
+            }
+        }
+    }
+    
+    private void fermerSilencieusement(ConnexionPhysique c) {
+        c.viderCacheRequetes();
+        try {
+            c.connexion.close();
+        } catch (SQLException e) {
+            System.err.println("Erreur lors de la fermeture d'une connexion du pool: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Ferme le pool et toutes les connexions libres.
+     * Les connexions encore empruntees sont fermees a leur restitution.
+     */
+    public void fermer() {
+        List<ConnexionPhysique> aFermer;
+        verrou.lock();
+        try {
+            if (ferme) {
+                return;
+            }
+            ferme = true;
+            aFermer = new ArrayList<>(libres);
+            total -= libres.size();
+            libres.clear();
+            disponible.signalAll();
+        } finally {
+            verrou.unlock();
+        }
+        maintenance.shutdownNow();
+        aFermer.forEach(this::fermerSilencieusement);
+    }
+    
+    // ============================================
+    // STATISTIQUES
+    // ============================================
+    
+    public int getNombreActives() {
+        return empruntees.size();
+    }
+    
+    public int getNombreInactives() {
+        verrou.lock();
+        try {
+            return libres.size();
+        } finally {
+            verrou.unlock();
+        }
+    }
+    
+    public int getNombreTotal() {
+        verrou.lock();
+        try {
+            return total;
+        } finally {
+            verrou.unlock();
+        }
+    }
+    
+    public int getTailleMin() {
+        return tailleMin;
+    }
+    
+    public int getTailleMax() {
+        return tailleMax;
+    }
+    
+    public long getNombreEmprunts() {
+        return nombreEmprunts.get();
+    }
+    
+    public double getTempsAttenteMoyenMs() {
+        long n = nombreEmprunts.get();
+        return n == 0 ? 0.0 : tempsAttenteTotalNanos.get() / (n * 1_000_000.0);
+    }
+    
+    public double getTempsAttenteMaxMs() {
+        return tempsAttenteMaxNanos.get() / 1_000_000.0;
+    }
+    
+    public long getNombreTimeouts() {
+        return nombreTimeouts.get();
+    }
+    
+    public long getNombreInvalides() {
+        return nombreInvalides.get();
+    }
+    
+    public long getNombreFuites() {
+        return nombreFuites.get();
+    }
+    
+    public int getTailleCacheRequetes() {
+        return tailleCacheRequetes;
+    }
+    
+    /**
+     * Requetes reutilisees depuis le cache (pas de nouvelle analyse par Oracle)
+     */
+    public long getNombreRequetesEnCache() {
+        return nombreRequetesEnCache.get();
+    }
+    
+    /**
+     * Requetes absentes du cache, preparees sur la connexion physique
+     */
+    public long getNombreRequetesPreparees() {
+        return nombreRequetesPreparees.get();
+    }
+    
+    /**
+     * Requetes fermees pour respecter la taille du cache
+     */
+    public long getNombreRequetesEvincees() {
+        return nombreRequetesEvincees.get();
+    }
+    
+    public double getTauxCacheRequetes() {
+        long trouvees = nombreRequetesEnCache.get();
+        long n = trouvees + nombreRequetesPreparees.get();
+        return n == 0 ? 0.0 : (double) trouvees / n;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("ConnectionPool[actives=%d, inactives=%d, max=%d, emprunts=%d, " +
+                        "attenteMoy=%.2f ms, attenteMax=%.2f ms, timeouts=%d, fuites=%d, " +
+                        "requetesEnCache=%d, requetesPreparees=%d, tauxCache=%.1f%%]",
+                getNombreActives(), getNombreInactives(), tailleMax, getNombreEmprunts(),
+                getTempsAttenteMoyenMs(), getTempsAttenteMaxMs(), getNombreTimeouts(), getNombreFuites(),
+                getNombreRequetesEnCache(), getNombreRequetesPreparees(), getTauxCacheRequetes() * 100);
+    }
+    
+    // ============================================
+    // CONNEXION PHYSIQUE ET POIGNEE RENDUE A L'APPELANT
+    // ============================================
+    
+    private final class ConnexionPhysique {
+        
+        private final Connection connexion;
+        private volatile long derniereUtilisation;
+        private volatile long dateEmprunt;
+        private volatile Throwable traceEmprunt;
+        private volatile boolean fuiteSignalee;
+        
+        // Requetes libres par texte SQL, de la moins a la plus recemment utilisee (ordre d'acces)
+        private final LinkedHashMap<String, PreparedStatement> requetesLibres = new LinkedHashMap<>(16, 0.75f, true);
+        // Requetes remises a l'appelant et pas encore fermees
+        private final List<RequeteEnCache> requetesOuvertes = new ArrayList<>();
+        
+        ConnexionPhysique(Connection connexion) {
+            this.connexion = connexion;
+            this.derniereUtilisation = System.nanoTime();
+        }
+        
+        void marquerEmprunt(boolean tracer) {
+            this.dateEmprunt = System.nanoTime();
+            this.traceEmprunt = tracer ? new Throwable("Emprunt de la connexion") : null;
+            this.fuiteSignalee = false;
+        }
+        
+        /**
+         * Chaque emprunt recoit sa propre poignee: apres close(), la poignee
+         * est inutilisable meme si la connexion physique a ete reempruntee.
+         */
+        Connection creerPoignee() {
+            InvocationHandler handler = new InvocationHandler() {
+                private boolean rendue;
+                
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                    switch (method.getName()) {
+                        case "close":
+                            if (!rendue) {
+                                rendue = true;
+                                rendre(ConnexionPhysique.this);
+                            }
+                            return null;
+                        case "isClosed":
+                            return rendue || connexion.isClosed();
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "toString":
+                            return "PooledConnection[" + connexion + "]";
+                        default:
+                            if (rendue) {
+                                throw new SQLException("Connexion deja rendue au pool");
+                            }
+                            if (tailleCacheRequetes > 0 && args != null && args.length == 1) {
+                                if ("prepareStatement".equals(method.getName())) {
+                                    return preparer((Connection) proxy, (String) args[0], false);
+                                }
+                                if ("prepareCall".equals(method.getName())) {
+                                    return preparer((Connection) proxy, (String) args[0], true);
+                                }
+                            }
+                            try {
+                                return method.invoke(connexion, args);
+                            } catch (InvocationTargetException e) {
+                                throw e.getCause();
+                            }
+                    }
+                }
+            };
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, handler);
+        }
+        
+        // ============================================
+        // CACHE DES REQUETES PREPAREES
+        // ============================================
+        
+        /**
+         * Retourne la requete du cache pour ce texte SQL, ou la prepare si elle n'y est pas.
+         * Une requete deja ouverte n'est pas dans le cache: deux requetes identiques
+         * ouvertes en meme temps sur la meme connexion restent distinctes.
+         */
+        private PreparedStatement preparer(Connection poignee, String sql, boolean appel) throws SQLException {
+            PreparedStatement requete;
+            synchronized (this) {
+                requete = requetesLibres.remove(sql);
+            }
+            if (requete != null) {
+                nombreRequetesEnCache.incrementAndGet();
+            } else {
+                nombreRequetesPreparees.incrementAndGet();
+                requete = appel ? connexion.prepareCall(sql) : connexion.prepareStatement(sql);
+            }
+            
+            RequeteEnCache handler = new RequeteEnCache(poignee, sql, requete);
+            synchronized (this) {
+                requetesOuvertes.add(handler);
+            }
+            Class<?> type = appel ? CallableStatement.class : PreparedStatement.class;
+            return (PreparedStatement) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler);
+        }
+        
+        /**
+         * Remet une requete fermee par l'appelant dans le cache (la moins recemment
+         * utilisee est fermee si le cache est plein)
+         */
+        private void remettreEnCache(RequeteEnCache r) {
+            List<Statement> aFermer = new ArrayList<>();
+            synchronized (this) {
+                requetesOuvertes.remove(r);
+                if (r.reutilisable) {
+                    PreparedStatement doublon = requetesLibres.put(r.sql, r.requete);
+                    if (doublon != null) {
+                        aFermer.add(doublon);
+                    }
+                    Iterator<PreparedStatement> it = requetesLibres.values().iterator();
+                    while (requetesLibres.size() > tailleCacheRequetes) {
+                        aFermer.add(it.next());
+                        it.remove();
+                        nombreRequetesEvincees.incrementAndGet();
+                    }
+                } else {
+                    aFermer.add(r.requete);
+                }
+            }
+            aFermer.forEach(ConnectionPool::fermerRequete);
+        }
+        
+        void fermerRequetesOuvertes() {
+            List<RequeteEnCache> ouvertes;
+            synchronized (this) {
+                if (requetesOuvertes.isEmpty()) {
+                    return;
+                }
+                ouvertes = new ArrayList<>(requetesOuvertes);
+            }
+            ouvertes.forEach(RequeteEnCache::fermer);
+        }
+        
+        /**
+         * Ferme toutes les requetes avant la fermeture de la connexion physique
+         */
+        void viderCacheRequetes() {
+            List<Statement> aFermer = new ArrayList<>();
+            synchronized (this) {
+                aFermer.addAll(requetesLibres.values());
+                requetesOuvertes.forEach(r -> {
+                    r.fermee = true;
+                    aFermer.add(r.requete);
+                });
+                requetesLibres.clear();
+                requetesOuvertes.clear();
+            }
+            aFermer.forEach(ConnectionPool::fermerRequete);
+        }
+        
+        /**
+         * Requete remise a l'appelant: close() la rend au cache, les autres appels
+         * sont transmis a la requete physique
+         */
+        private final class RequeteEnCache implements InvocationHandler {
+            
+            private final Connection poignee;
+            private final String sql;
+            private final PreparedStatement requete;
+            private final List<ResultSet> resultats = new ArrayList<>(1);
+            private boolean fermee;
+            private boolean lotAjoute;
+            private boolean reutilisable = true;
+            
+            RequeteEnCache(Connection poignee, String sql, PreparedStatement requete) {
+                this.poignee = poignee;
+                this.sql = sql;
+                this.requete = requete;
+            }
+            
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                String nom = method.getName();
+                switch (nom) {
+                    case "close":
+                        fermer();
+                        return null;
+                    case "isClosed":
+                        return fermee || requete.isClosed();
+                    case "getConnection":
+                        return poignee;
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "toString":
+                        return "CachedStatement[" + sql + "]";
+                    default:
+                        if (fermee) {
+                            throw new SQLException("Requete deja fermee");
+                        }
+                        if ("addBatch".equals(nom)) {
+                            lotAjoute = true;
+                        } else if (method.getDeclaringClass() == Statement.class && nom.startsWith("set")
+                                && !"setFetchSize".equals(nom)) {
+                            // Reglage propre a cet appel (maxRows, timeout...): la requete n'est pas reutilisee
+                            reutilisable = false;
+                        }
+                        Object resultat;
+                        try {
+                            resultat = method.invoke(requete, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                        if (resultat instanceof ResultSet rs) {
+                            resultats.add(rs);
+                        }
+                        return resultat;
+                }
+            }
+            
+            /**
+             * Ferme les resultats et efface les parametres, puis remet la requete dans le cache
+             */
+            void fermer() {
+                if (fermee) {
+                    return;
+                }
+                fermee = true;
+                for (ResultSet rs : resultats) {
+                    try {
+                        rs.close();
+                    } catch (SQLException e) {
+                        reutilisable = false;
+                    }
+                }
+                resultats.clear();
+                try {
+                    if (reutilisable) {
+                        requete.clearParameters();
+                        if (lotAjoute) {
+                            requete.clearBatch();
+                        }
+                        reutilisable = !requete.isClosed();
+                    }
+                } catch (SQLException e) {
+                    reutilisable = false;
+                }
+                remettreEnCache(this);
+            }
+        }
+    }
+    
+    private static void fermerRequete(Statement requete) {
+        try {
+            requete.close();
+        } catch (SQLException e) {
+            System.err.println("Erreur lors de la fermeture d'une requete en cache: " + e.getMessage());
+        }
+    }
+}
@@ -1,12 +1,12 @@
 package util;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 
 /**
- * Classe utilitaire pour gerer la connexion a la base de donnees Oracle.
- * Utilise le pattern Singleton pour garantir une seule connexion.
+ * Classe utilitaire pour gerer les connexions a la base de donnees Oracle.
+ * Utilise le pattern Singleton pour partager un seul pool de connexions.
+ * Les DAOs empruntent une connexion par operation et la rendent avec close().
  */
 public class DatabaseConnection {
     
@@ -21,9 +21,22 @@ public class DatabaseConnection {
     private static final String URL = String.format(
             "jdbc:oracle:thin:@%s:%s:%s", HOST, PORT, SID);
     
+    // Parametres du pool (modifiables avec -Dpharmacie.pool.xxx=valeur)
+    private static final int POOL_TAILLE_MIN = Integer.getInteger("pharmacie.pool.min", 2);
+    private static final int POOL_TAILLE_MAX = Integer.getInteger("pharmacie.pool.max", 10);
+    private static final long POOL_ATTENTE_MS = Long.getLong("pharmacie.pool.attenteMs", 5_000);
+    private static final long POOL_INACTIVITE_MS = Long.getLong("pharmacie.pool.inactiviteMs", 300_000);
+    private static final long POOL_FUITE_MS = Long.getLong("pharmacie.pool.fuiteMs", 60_000);
+    private static final int POOL_VALIDATION_S = Integer.getInteger("pharmacie.pool.validationS", 2);
+    private static final int POOL_CACHE_REQUETES = Integer.getInteger("pharmacie.pool.cacheRequetes", 64);
+    
+    // Tri binaire (comme les comparaisons): ORDER BY nom suit l'index et la pagination par cle
+    // reste coherente quelle que soit la langue de la JVM (NLS_SORT suit sinon la locale)
+    private static final String INITIALISATION_SESSION = "ALTER SESSION SET NLS_SORT = BINARY";
+    
     // Instance unique (Singleton)
     private static DatabaseConnection instance;
-    private Connection connection;
+    private final ConnectionPool pool;
     
     /**
      * Constructeur prive (Singleton)
@@ -38,6 +51,12 @@ public class DatabaseConnection {
             System.err.println("Assurez-vous que ojdbc11.jar est dans le classpath.");
             throw new RuntimeException("Driver Oracle non trouve", e);
         }
+        
+        this.pool = new ConnectionPool(URL, USER, PASSWORD,
+                POOL_TAILLE_MIN, POOL_TAILLE_MAX,
+                POOL_ATTENTE_MS, POOL_INACTIVITE_MS,
+                POOL_FUITE_MS, POOL_VALIDATION_S,
+                POOL_CACHE_REQUETES, INITIALISATION_SESSION);
     }
     
     /**
@@ -51,38 +70,34 @@ public class DatabaseConnection {
     }
     
     /**
-     * Obtenir une connexion a la base de donnees.
-     * Cree une nouvelle connexion si necessaire.
+     * Emprunter une connexion au pool.
+     * L'appelant doit la fermer (close) pour la rendre au pool.
      */
     public Connection getConnection() throws SQLException {
-        if (connection == null || connection.isClosed()) {
-            connection = DriverManager.getConnection(URL, USER, PASSWORD);
-            System.out.println("Connexion a Oracle etablie avec succes.");
-        }
-        return connection;
+        return pool.emprunter();
+    }
+    
+    /**
+     * Retourne le pool (statistiques: attente, connexions actives/inactives)
+     */
+    public ConnectionPool getPool() {
+        return pool;
     }
     
     /**
-     * Fermer la connexion a la base de donnees
+     * Fermer le pool et les connexions a la base de donnees
      */
     public void closeConnection() {
-        if (connection != null) {
-            try {
-                connection.close();
-                System.out.println("Connexion a Oracle fermee.");
-            } catch (SQLException e) {
-                System.err.println("Erreur lors de la fermeture de la connexion: " + e.getMessage());
-            }
-        }
+        pool.fermer();
+        System.out.println("Connexions a Oracle fermees.");
     }
     
     /**
      * Tester la connexion a la base de donnees
      */
     public static boolean testConnection() {
-        try {
-            Connection conn = getInstance().getConnection();
-            boolean valid = conn != null && !conn.isClosed();
+        try (Connection conn = getInstance().getConnection()) {
+            boolean valid = conn.isValid(POOL_VALIDATION_S);
             System.out.println("Test de connexion: " + (valid ? "REUSSI" : "ECHOUE"));
             return valid;
         } catch (SQLException e) {
@@ -102,6 +117,7 @@ public class DatabaseConnection {
         
         if (testConnection()) {
             System.out.println("\nConnexion reussie! La base de donnees est accessible.");
+            System.out.println(getInstance().getPool());
         } else {
             System.out.println("\nEchec de la connexion. Verifiez:");
             System.out.println("1. Oracle XE est demarre");
@@ -0,0 +1,79 @@
+package util;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dictionnaire de valeurs repetees: chaque valeur distincte recoit une instance canonique
+ * partagee et sa cle normalisee (Normalisation).
+ *
+ * Un catalogue d'un million de medicaments n'a que quelques centaines de genres, constituants
+ * et plantes: en remplacant les chaines lues ligne par ligne par l'instance canonique, chaque
+ * medicament ne garde qu'une reference vers une chaine commune au lieu de sa propre copie.
+ * De meme, les index gardent la cle normalisee partagee, calculee une fois par valeur
+ * distincte au lieu d'une fois par medicament.
+ * Les valeurs ne sont jamais retirees (leur nombre est borne par les valeurs distinctes).
+ * Utilisable depuis plusieurs threads (lectures en arriere-plan).
+ */
+public final class Dictionnaire {
+    
+    // Dictionnaires partages des medicaments (MedicamentDAO, index du catalogue)
+    public static final Dictionnaire GENRES = new Dictionnaire();
+    public static final Dictionnaire TYPES = new Dictionnaire();
+    public static final Dictionnaire CONSTITUANTS = new Dictionnaire();
+    public static final Dictionnaire PLANTES = new Dictionnaire();
+    
+    // Case de null (non enregistre)
+    private static final int AUCUN = -1;
+    
+    // Valeur -> case dans valeurs et cles
+    private final Map<String, Integer> identifiants = new ConcurrentHashMap<>();
+    // Remplaces (copies agrandies) sous le verrou; une case n'est plus modifiee une fois remplie
+    private volatile String[] valeurs = new String[64];
+    private volatile String[] cles = new String[64];
+    private int taille;
+    
+    /**
+     * Instance canonique de la valeur (la premiere vue parmi les chaines egales), null si null
+     */
+    public String canonique(String valeur) {
+        int id = identifiant(valeur);
+        return id == AUCUN ? null : valeurs[id];
+    }
+    
+    /**
+     * Cle normalisee partagee de la valeur (chaine vide si null), comme Normalisation.normaliser()
+     */
+    public String cle(String valeur) {
+        int id = identifiant(valeur);
+        return id == AUCUN ? "" : cles[id];
+    }
+    
+    /**
+     * Case de la valeur, enregistree si elle est nouvelle (AUCUN si null)
+     */
+    private int identifiant(String valeur) {
+        if (valeur == null) {
+            return AUCUN;
+        }
+        Integer id = identifiants.get(valeur);
+        return id != null ? id : enregistrer(valeur);
+    }
+    
+    private synchronized int enregistrer(String valeur) {
+        Integer id = identifiants.get(valeur);
+        if (id != null) {
+            return id;
+        }
+        if (taille == valeurs.length) {
+            valeurs = Arrays.copyOf(valeurs, taille * 2);
+            cles = Arrays.copyOf(cles, taille * 2);
+        }
+        valeurs[taille] = valeur;
+        cles[taille] = Normalisation.normaliser(valeur);
+        // Publie apres les cases: un identifiant lu dans la map designe toujours des cases remplies
+        identifiants.put(valeur, taille);
+        return taille++;
+    }
+}
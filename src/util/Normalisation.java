@@ -0,0 +1,41 @@
+package util;
+
+import java.text.Normalizer;
+import java.util.regex.Pattern;
+
+/**
+ * Classe utilitaire pour normaliser les textes avant indexation et recherche:
+ * minuscules, sans accents et sans espaces superflus.
+ * Ainsi "Paracetamol", "paracétamol" et " PARACETAMOL " ont la meme cle.
+ */
+public final class Normalisation {
+    
+    private static final Pattern DIACRITIQUES = Pattern.compile("\\p{M}+");
+    
+    private Normalisation() {
+    }
+    
+    /**
+     * Retourne la forme normalisee d'un texte (chaine vide si null)
+     */
+    public static String normaliser(String texte) {
+        if (texte == null) {
+            return "";
+        }
+        String resultat = texte.trim().toLowerCase();
+        // Decomposer les caracteres accentues puis supprimer les accents
+        if (!estAscii(resultat)) {
+            resultat = DIACRITIQUES.matcher(Normalizer.normalize(resultat, Normalizer.Form.NFD)).replaceAll("");
+        }
+        return resultat;
+    }
+    
+    private static boolean estAscii(String texte) {
+        for (int i = 0; i < texte.length(); i++) {
+            if (texte.charAt(i) > 127) {
+                return false;
+            }
+        }
+        return true;
+    }
+}